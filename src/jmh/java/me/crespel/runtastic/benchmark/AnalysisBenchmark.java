@@ -0,0 +1,90 @@
+package me.crespel.runtastic.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import me.crespel.runtastic.converter.ExportConverter;
+import me.crespel.runtastic.model.GeoBounds;
+import me.crespel.runtastic.model.SessionSummary;
+import me.crespel.runtastic.model.SportSession;
+
+/**
+ * Overlap and compound analysis of sport sessions (bounds from their summary).
+ * Sessions follow a limited number of routes, as in a real export: most of them overlap with others,
+ * and routes next to each other are compound.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalysisBenchmark {
+
+	@Param({ "1000", "10000" })
+	private int sessions;
+
+	private final ExportConverter converter = new ExportConverter();
+
+	private List<SportSession> sportSessions;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(42);
+		int routes = Math.max(1, sessions / 10);
+		GeoBounds[] routeBounds = new GeoBounds[routes];
+		for (int r = 0; r < routes; r++) {
+			if (r > 0 && random.nextInt(4) == 0) {
+				// north of the previous route
+				GeoBounds previous = routeBounds[r - 1];
+				double size = 0.01 + random.nextDouble() * 0.02;
+				routeBounds[r] = new GeoBounds(previous.getMaxLat(), previous.getMinLon(), previous.getMaxLat() + size, previous.getMaxLon());
+			} else {
+				double lat = 46 + random.nextDouble() * 2;
+				double lon = 7 + random.nextDouble() * 3;
+				routeBounds[r] = new GeoBounds(lat, lon, lat + 0.01 + random.nextDouble() * 0.02, lon + 0.01 + random.nextDouble() * 0.02);
+			}
+		}
+
+		sportSessions = new ArrayList<>(sessions);
+		for (int i = 0; i < sessions; i++) {
+			GeoBounds route = routeBounds[random.nextInt(routes)];
+			double jitter = random.nextDouble() * 0.0003;
+			SessionSummary summary = new SessionSummary();
+			summary.setBounds(new GeoBounds(route.getMinLat() + jitter, route.getMinLon() + jitter, route.getMaxLat() - jitter, route.getMaxLon() - jitter));
+			SportSession session = new SportSession();
+			session.setId("session" + i);
+			session.setDistance(5000);
+			session.setSummary(summary);
+			sportSessions.add(session);
+		}
+	}
+
+	@Benchmark
+	public List<SportSession> doOverlap() {
+		converter.doOverlap(sportSessions);
+		return sportSessions;
+	}
+
+	@Benchmark
+	public List<SportSession> doCompound() {
+		converter.doCompound(sportSessions);
+		return sportSessions;
+	}
+
+}
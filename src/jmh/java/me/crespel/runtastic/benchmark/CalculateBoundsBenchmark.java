@@ -0,0 +1,106 @@
+package me.crespel.runtastic.benchmark;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.topografix.gpx._1._1.BoundsType;
+import com.topografix.gpx._1._1.GpxType;
+import com.topografix.gpx._1._1.TrkType;
+import com.topografix.gpx._1._1.TrksegType;
+import com.topografix.gpx._1._1.WptType;
+
+import me.crespel.runtastic.mapper.GpxSportSessionMapper;
+import me.crespel.runtastic.model.GeoBounds;
+
+/**
+ * Bounds of a GPX track, with BigDecimal comparisons on a BoundsType (legacy behaviour)
+ * and with the extremes only converted to a GeoBounds (GpxSportSessionMapper).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CalculateBoundsBenchmark {
+
+	@Param("50000")
+	private int points;
+
+	private final BoundsMapper mapper = new BoundsMapper();
+
+	private GpxType gpx;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(42);
+		TrksegType trkseg = new TrksegType();
+		double lat = 47.0;
+		double lon = 8.0;
+		for (int i = 0; i < points; i++) {
+			lat += (random.nextDouble() - 0.5) * 0.0002;
+			lon += (random.nextDouble() - 0.5) * 0.0002;
+			WptType wpt = new WptType();
+			wpt.setLat(BigDecimal.valueOf(lat));
+			wpt.setLon(BigDecimal.valueOf(lon));
+			trkseg.getTrkpt().add(wpt);
+		}
+		TrkType trk = new TrkType();
+		trk.getTrkseg().add(trkseg);
+		gpx = new GpxType();
+		gpx.getTrk().add(trk);
+	}
+
+	@Benchmark
+	public BoundsType bigDecimal() {
+		BoundsType bounds = new BoundsType();
+		for (TrkType trk : gpx.getTrk()) {
+			for (TrksegType trkseg : trk.getTrkseg()) {
+				for (WptType wpt : trkseg.getTrkpt()) {
+					if (bounds.getMaxlat() == null || (bounds.getMaxlat().compareTo(wpt.getLat()) == -1)) {
+						bounds.setMaxlat(wpt.getLat());
+					}
+					if (bounds.getMinlat() == null || (bounds.getMinlat().compareTo(wpt.getLat()) == 1)) {
+						bounds.setMinlat(wpt.getLat());
+					}
+					if (bounds.getMaxlon() == null || (bounds.getMaxlon().compareTo(wpt.getLon()) == -1)) {
+						bounds.setMaxlon(wpt.getLon());
+					}
+					if (bounds.getMinlon() == null || (bounds.getMinlon().compareTo(wpt.getLon()) == 1)) {
+						bounds.setMinlon(wpt.getLon());
+					}
+				}
+			}
+		}
+		return bounds;
+	}
+
+	@Benchmark
+	public GeoBounds geoBounds() {
+		return mapper.calculateBounds(gpx, false);
+	}
+
+	private static class BoundsMapper extends GpxSportSessionMapper {
+
+		@Override
+		public GeoBounds calculateBounds(GpxType gpx, boolean considerPhotos) {
+			return super.calculateBounds(gpx, considerPhotos);
+		}
+
+	}
+
+}
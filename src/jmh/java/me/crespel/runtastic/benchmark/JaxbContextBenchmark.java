@@ -0,0 +1,99 @@
+package me.crespel.runtastic.benchmark;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garmin.xmlschemas.trainingcenterdatabase.v2.ObjectFactory;
+import com.garmin.xmlschemas.trainingcenterdatabase.v2.TrainingCenterDatabaseT;
+import com.topografix.gpx._1._1.GpxType;
+
+import me.crespel.runtastic.mapper.GpxSportSessionMapper;
+import me.crespel.runtastic.mapper.TcxSportSessionMapper;
+import me.crespel.runtastic.model.SportSession;
+import me.crespel.runtastic.parser.SportSessionParser;
+
+/**
+ * Per-session conversion cost, with a new JAXB context per session (legacy behaviour)
+ * and with the shared context and marshaller pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JaxbContextBenchmark {
+
+	private final SportSessionParser parser = new SportSessionParser();
+	private final GpxSportSessionMapper gpxMapper = new GpxSportSessionMapper();
+	private final TcxSportSessionMapper tcxMapper = new TcxSportSessionMapper();
+	private final OutputStream out = NullOutputStream.NULL_OUTPUT_STREAM;
+
+	private SportSession session;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		session = new ObjectMapper().readValue(getResource("SportSession.json"), SportSession.class);
+		session.setGpsSession(parser.parseGpsSession(getResource("GpsData.json")));
+		session.setHeartRateSession(parser.parseHeartRateSession(getResource("HeartRateData.json")));
+	}
+
+	@Setup(Level.Invocation)
+	public void reset() {
+		// the GPX mapper stores its result in the session
+		session.setGpxSession(null);
+	}
+
+	@Benchmark
+	public Object gpxNewContext() throws JAXBException {
+		GpxType gpx = gpxMapper.mapSportSession(session, "gpx");
+		Marshaller m = JAXBContext.newInstance(GpxType.class).createMarshaller();
+		m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+		m.marshal(new com.topografix.gpx._1._1.ObjectFactory().createGpx(gpx), out);
+		return gpx;
+	}
+
+	@Benchmark
+	public Object gpxSharedContext() {
+		return gpxMapper.mapSportSession(session, "gpx", out);
+	}
+
+	@Benchmark
+	public Object tcxNewContext() throws JAXBException {
+		TrainingCenterDatabaseT tcx = tcxMapper.mapSportSession(session, "tcx");
+		Marshaller m = JAXBContext.newInstance(TrainingCenterDatabaseT.class).createMarshaller();
+		m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+		m.marshal(new ObjectFactory().createTrainingCenterDatabase(tcx), out);
+		return tcx;
+	}
+
+	@Benchmark
+	public Object tcxSharedContext() {
+		return tcxMapper.mapSportSession(session, "tcx", out);
+	}
+
+	static File getResource(String name) throws URISyntaxException {
+		return new File(JaxbContextBenchmark.class.getResource("/me/crespel/runtastic/" + name).toURI());
+	}
+
+}
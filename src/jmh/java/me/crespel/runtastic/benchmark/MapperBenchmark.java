@@ -0,0 +1,109 @@
+package me.crespel.runtastic.benchmark;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garmin.xmlschemas.trainingcenterdatabase.v2.TrackpointT;
+import com.garmin.xmlschemas.trainingcenterdatabase.v2.TrainingCenterDatabaseT;
+import com.topografix.gpx._1._1.GpxType;
+
+import me.crespel.runtastic.mapper.GpxSportSessionMapper;
+import me.crespel.runtastic.mapper.TcxSportSessionMapper;
+import me.crespel.runtastic.model.SportSession;
+import me.crespel.runtastic.parser.SportSessionParser;
+
+/**
+ * Mapping of a sport session to GPX and TCX documents (JAXB objects), marshalling of these documents,
+ * writing with the streaming writers, and merge of the TCX trackpoints.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+
+	private final SportSessionParser parser = new SportSessionParser();
+	private final GpxSportSessionMapper gpxMapper = new GpxSportSessionMapper();
+	private final GpxSportSessionMapper gpxJaxbMapper = new GpxSportSessionMapper();
+	private final MergeMapper tcxMapper = new MergeMapper();
+	private final MergeMapper tcxJaxbMapper = new MergeMapper();
+	private final OutputStream out = NullOutputStream.NULL_OUTPUT_STREAM;
+
+	private SportSession session;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		gpxJaxbMapper.setStreaming(false);
+		tcxJaxbMapper.setStreaming(false);
+		session = new ObjectMapper().readValue(JaxbContextBenchmark.getResource("SportSession.json"), SportSession.class);
+		session.setGpsSession(parser.parseGpsSession(JaxbContextBenchmark.getResource("GpsData.json")));
+		session.setHeartRateSession(parser.parseHeartRateSession(JaxbContextBenchmark.getResource("HeartRateData.json")));
+	}
+
+	@Setup(Level.Invocation)
+	public void reset() {
+		// the GPX mapper stores its result in the session
+		session.setGpxSession(null);
+	}
+
+	@Benchmark
+	public GpxType mapGpx() {
+		return gpxMapper.mapSportSession(session, "gpx");
+	}
+
+	@Benchmark
+	public Object marshalGpx() {
+		return gpxJaxbMapper.mapSportSession(session, "gpx", out);
+	}
+
+	@Benchmark
+	public Object writeGpx() {
+		return gpxMapper.mapSportSession(session, "gpx", out);
+	}
+
+	@Benchmark
+	public TrainingCenterDatabaseT mapTcx() {
+		return tcxMapper.mapSportSession(session, "tcx");
+	}
+
+	@Benchmark
+	public Object marshalTcx() {
+		return tcxJaxbMapper.mapSportSession(session, "tcx", out);
+	}
+
+	@Benchmark
+	public Object writeTcx() {
+		return tcxMapper.mapSportSession(session, "tcx", out);
+	}
+
+	@Benchmark
+	public List<TrackpointT> mergeTrackpoints() {
+		return tcxMapper.mergeTrackpoints(session);
+	}
+
+	private static class MergeMapper extends TcxSportSessionMapper {
+
+		public List<TrackpointT> mergeTrackpoints(SportSession session) {
+			return mergeTrackpoints(getGpsTrack(session), getHeartRateTrack(session), getElevationTrack(session));
+		}
+
+	}
+
+}
@@ -0,0 +1,99 @@
+package me.crespel.runtastic.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import me.crespel.runtastic.model.SportSession;
+import me.crespel.runtastic.parser.ExportContext;
+import me.crespel.runtastic.parser.ParseMode;
+import me.crespel.runtastic.parser.SportSessionParser;
+
+/**
+ * Parsing of a sport session with all its data, from an export with JSON GPS data (before April 2020)
+ * or with GPX data, and parsing of the GPS and GPX files alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+	private static final String SESSION_ID = "fdd2f131-ef65-4e6c-b27e-50b8ecf465d4";
+
+	@Param({ "json", "gpx" })
+	private String format;
+
+	@Param({ "STREAMING", "DATABIND" })
+	private ParseMode parseMode;
+
+	private final SportSessionParser parser = new SportSessionParser();
+
+	private File root;
+	private File sessionFile;
+	private File gpsFile;
+	private File gpxFile;
+	private ExportContext context;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		parser.setParseMode(parseMode);
+
+		// export with one sport session, its GPS data as JSON or GPX and its heart rate data
+		root = Files.createTempDirectory("runtastic-export").toFile();
+		File sessions = new File(root, "Sport-sessions");
+		sessionFile = new File(sessions, SESSION_ID + ".json");
+		gpsFile = new File(sessions, SportSessionParser.GPS_DATA_DIR + File.separator + SESSION_ID + ".json");
+		gpxFile = new File(sessions, SportSessionParser.GPS_DATA_DIR + File.separator + SESSION_ID + ".gpx");
+		copy("user.json", new File(root, SportSessionParser.USER_DIR + File.separator + "user.json"));
+		copy("SportSession.json", sessionFile);
+		copy("GpsData.json", gpsFile);
+		copy("GpxData.gpx", gpxFile);
+		copy("HeartRateData.json", new File(sessions, SportSessionParser.HEARTRATE_DATA_DIR + File.separator + SESSION_ID + ".json"));
+		if ("json".equals(format)) {
+			Files.delete(gpxFile.toPath());
+		} else {
+			Files.delete(gpsFile.toPath());
+		}
+		context = parser.createContext(root);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(root);
+	}
+
+	@Benchmark
+	public SportSession parseSportSession() throws IOException {
+		return parser.parseSportSession(sessionFile, true, context);
+	}
+
+	@Benchmark
+	public Object parseTrack() throws IOException {
+		return "json".equals(format) ? parser.parseGpsSession(gpsFile) : parser.parseGpxSession(gpxFile);
+	}
+
+	private static void copy(String resource, File dest) throws Exception {
+		dest.getParentFile().mkdirs();
+		Files.copy(JaxbContextBenchmark.getResource(resource).toPath(), dest.toPath());
+	}
+
+}
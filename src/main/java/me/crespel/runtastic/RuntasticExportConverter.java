@@ -6,14 +6,21 @@ import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
-
-import com.topografix.gpx._1._1.BoundsType;
+import java.util.Set;
+import java.util.function.Function;
 
 import me.crespel.runtastic.converter.ExportConverter;
+import me.crespel.runtastic.model.GeoBounds;
 import me.crespel.runtastic.model.ImagesMetaData;
+import me.crespel.runtastic.model.SessionCluster;
 import me.crespel.runtastic.model.SportSession;
 import me.crespel.runtastic.model.User;
+import me.crespel.runtastic.parser.ExportContext;
+import me.crespel.runtastic.util.Metrics;
 
 /**
  * Runtastic export converter main class.
@@ -23,7 +30,12 @@ import me.crespel.runtastic.model.User;
  */
 public class RuntasticExportConverter {
 
+	protected static final List<String> ACTIONS = Arrays.asList("check", "user", "info", "photo", "list", "convert", "export", "overlap", "compound");
+
 	protected final ExportConverter converter = new ExportConverter();
+	protected File summaryIndexFile;
+	protected boolean clusterFiles;
+	protected File metricsFile;
 
 	public static void main(String[] args) throws Exception {
 		RuntasticExportConverter converter = new RuntasticExportConverter();
@@ -39,6 +51,10 @@ public class RuntasticExportConverter {
 
 	public void run(String[] args) throws Exception {
 		String action = args.length > 0 ? args[0] : "";
+		args = parseMetricsOption(args);
+		if (ACTIONS.contains(action)) {
+			args = parseActionOptions(action, args);
+		}
 		switch (action) {
 			case "check":
 				if (args.length < 2) {
@@ -68,7 +84,7 @@ public class RuntasticExportConverter {
 				if (args.length < 3) {
 					throw new IllegalArgumentException("Missing argument for action 'photo'");
 				}
-				doPhoto(new File(args[1]), args[2]);
+				doPhoto(new File(args[1]), args[2], args.length > 3 ? new File(args[3]) : null);
 				break;
 			case "convert":
 				if (args.length < 4) {
@@ -99,45 +115,147 @@ public class RuntasticExportConverter {
 				printUsage();
 				break;
 		}
+		if (metricsFile != null) {
+			converter.getMetrics().writeReport(metricsFile, action);
+			System.out.println("Metrics written to '" + metricsFile + "'");
+		}
 	}
 
 	protected void printUsage() {
 		System.out.println("Expected arguments:");
-		System.out.println("  check    <export path>");
+		System.out.println("  check    <export path> [parse pipeline options] [--summary-cache=<file>]");
 		System.out.println("  user     <export path>");
 		System.out.println("  info     <export path> <activity id>");
-		System.out.println("  photo    <export path> <photo id>");
+		System.out.println("  photo    <export path> <photo id> [photo index file]");
 		System.out.println("  list     <export path> <filter>");
-		System.out.println("  convert  <export path> <filter> <destination path> ['gpx' | 'tcx']");
-		System.out.println("  export   <export path> <filter> <destination path> ['gpx' | 'tcx']");
-		System.out.println("  overlap  <export path> <filter> <destination path> ['gpx' | 'tcx']");
-		System.out.println("  compound <export path> <filter> <destination path> ['gpx' | 'tcx']");
+		System.out.println("  convert  <export path> <filter> <destination path> ['gpx' | 'tcx'] [pipeline options]");
+		System.out.println("  export   <export path> <filter> <destination path> ['gpx' | 'tcx'] [pipeline options] [--link]");
+		System.out.println("  overlap  <export path> <filter> <destination path> ['gpx' | 'tcx'] [parse pipeline options] [--summary-cache=<file>] [--cluster-files]");
+		System.out.println("  compound <export path> <filter> <destination path> ['gpx' | 'tcx'] [parse pipeline options] [--summary-cache=<file>] [--cluster-files]");
 		System.out.println("  help");
+		System.out.println("  NOTE: all actions accept --metrics-out=<file> to write a JSON report of the run (rates, bytes, per-stage and per-session latencies)");
 		System.out.println("  NOTE: <filter> can be either <activity id | 'all' | 'tag' | 'any string'>");
+		System.out.println("  NOTE: [pipeline options] are --parse-threads=<n> --map-threads=<n> --write-threads=<n> --queue-size=<n>");
+		System.out.println("  NOTE: [parse pipeline options] are --parse-threads=<n> --queue-size=<n>, used to load the summaries of the sessions");
+		System.out.println("  NOTE: --link creates hard links to photos and JSON files instead of copies (export, same file system only)");
+		System.out.println("  NOTE: --summary-cache keeps the bounds of the sessions in a file, their tracks are read again only when modified");
+		System.out.println("  NOTE: --cluster-files writes one GPX file per cluster with the track of each session once, and a GPX file per session referencing it (gpx only)");
+	}
+
+	/**
+	 * Apply the metrics option of all actions: metrics are only recorded when a report is requested.
+	 * @return remaining arguments
+	 */
+	protected String[] parseMetricsOption(String[] args) {
+		List<String> remaining = new ArrayList<>();
+		for (String arg : args) {
+			if (arg.startsWith("--metrics-out=")) {
+				metricsFile = new File(arg.substring("--metrics-out=".length()));
+				converter.setMetrics(new Metrics());
+			} else {
+				remaining.add(arg);
+			}
+		}
+		return remaining.toArray(new String[0]);
+	}
+
+	/**
+	 * Apply the options of an action: the pipeline options (pool sizes) of the convert and export actions,
+	 * the parse pipeline options of the check, overlap and compound actions (which only parse sessions to load their summaries),
+	 * the link option of export, the summary cache option of overlap, compound and check and the cluster files option of overlap and compound.
+	 * @return remaining arguments
+	 */
+	protected String[] parseActionOptions(String action, String[] args) {
+		boolean conversion = "convert".equals(action) || "export".equals(action);
+		boolean analysis = "check".equals(action) || "overlap".equals(action) || "compound".equals(action);
+		List<String> remaining = new ArrayList<>();
+		for (String arg : args) {
+			if (!arg.startsWith("--")) {
+				remaining.add(arg);
+				continue;
+			}
+			int eq = arg.indexOf('=');
+			String name = eq > 0 ? arg.substring(2, eq) : arg.substring(2);
+			switch (name) {
+				case "link":
+					checkOption(arg, action, "export".equals(action) && eq < 0);
+					converter.setLinkFiles(true);
+					break;
+				case "summary-cache":
+					checkOption(arg, action, analysis);
+					if (eq < 0 || eq == arg.length() - 1) {
+						throw new IllegalArgumentException("Invalid value for option '" + arg + "'");
+					}
+					summaryIndexFile = new File(arg.substring(eq + 1));
+					break;
+				case "cluster-files":
+					checkOption(arg, action, ("overlap".equals(action) || "compound".equals(action)) && eq < 0);
+					clusterFiles = true;
+					break;
+				case "parse-threads":
+					checkOption(arg, action, conversion || analysis);
+					converter.setParseThreads(parsePositiveInt(arg, eq));
+					break;
+				case "queue-size":
+					checkOption(arg, action, conversion || analysis);
+					converter.setQueueCapacity(parsePositiveInt(arg, eq));
+					break;
+				case "map-threads":
+					checkOption(arg, action, conversion);
+					converter.setMapThreads(parsePositiveInt(arg, eq));
+					break;
+				case "write-threads":
+					checkOption(arg, action, conversion);
+					converter.setWriteThreads(parsePositiveInt(arg, eq));
+					break;
+				default:
+					checkOption(arg, action, false);
+			}
+		}
+		return remaining.toArray(new String[0]);
+	}
+
+	private void checkOption(String arg, String action, boolean applies) {
+		if (!applies) {
+			throw new IllegalArgumentException("Unknown option for action '" + action + "': '" + arg + "'");
+		}
+	}
+
+	private int parsePositiveInt(String arg, int eq) {
+		int value;
+		try {
+			value = Integer.parseInt(eq > 0 ? arg.substring(eq + 1) : "");
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid value for option '" + arg + "'");
+		}
+		if (value < 1) {
+			throw new IllegalArgumentException("Invalid value for option '" + arg + "'");
+		}
+		return value;
 	}
 
 	private void doCheck(File path) throws FileNotFoundException, IOException {
 		System.out.println("Check curent export and provide some statistics ...");
-		List<SportSession> sessions = converter.listSportSessions(path, null, false);
-		System.out.println("      " + sessions.size() + " Sport Sessions found.");
-
-		System.out.println("Load full list of sport session (inclusive all sub-data), this requires some time ...");
-		List<SportSession> fullsessions = converter.loadSportSessions(path, "gpx");
+		ExportContext context = createContext(path);
+		System.out.println("Load summary of all sport sessions (bounds of their tracks), this requires some time the first time ...");
+		List<SportSession> fullsessions = converter.loadSportSessionSummaries(context);
+		System.out.println("      " + fullsessions.size() + " Sport Sessions found.");
 
 		// Calculate statistics ..
-		Integer gpxSessionCount = 0;
+		Integer trackSessionCount = 0;
 		Integer heartRateDataCount = 0;
 		Integer imageSessionCount = 0;
 		Integer imageCount = 0;
 		Integer minDistance = Integer.MAX_VALUE, maxDistance = 0, totDistance = 0;
 		for (SportSession session : fullsessions) {
-			if (session.getGpxSession() != null)
-				gpxSessionCount += 1;
-			if (session.getHeartRateSession() != null)
+			if (session.getSummary().getPointCount() > 0)
+				trackSessionCount += 1;
+			if (converter.hasHeartRateData(session))
 				heartRateDataCount += 1;
-			if (session.getImages() != null) {
+			// sessions are unloaded: count the images of their album (parsed with the session) instead of loading them again
+			if (session.getSessionAlbum() != null) {
 				imageSessionCount += 1;
-				imageCount += session.getImages().size();
+				imageCount += converter.countImages(context, session);
 			}
 			minDistance = Integer.min(minDistance, session.getDistance());
 			maxDistance = Integer.max(maxDistance, session.getDistance());
@@ -150,7 +268,7 @@ public class RuntasticExportConverter {
 
 		System.out.println("Session statistics ...");
 		System.out.println("      " + fullsessions.size() + " Sport Sessions found.");
-		System.out.println("      " + gpxSessionCount + " Sport Sessions found with GPX data assigned. ");
+		System.out.println("      " + trackSessionCount + " Sport Sessions found with GPS or GPX track data assigned. ");
 		System.out.println("      " + heartRateDataCount + " Sport Sessions found with heart rate data assigned.");
 		System.out.println("      " + imageSessionCount + " Sport Sessions found with totally " + imageCount + " photo(s) assigned.");
 		System.out.println("      Total Distance: " + totDistance / 1000.0 + " [km],  Minimum distance: " + minDistance / 1000.0 + " [km],  Maximum distance: " + maxDistance / 1000.0 + " [km]");
@@ -186,13 +304,15 @@ public class RuntasticExportConverter {
 	}
 
 
-	protected void doPhoto(File path, String id) throws FileNotFoundException, IOException {
+	protected void doPhoto(File path, String id, File indexFile) throws FileNotFoundException, IOException {
 		SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-		SportSession session = converter.getSportSessionWithPhoto(path, id);
+		ExportContext context = converter.createContext(path);
+		context.setPhotoIndexFile(indexFile);
+		SportSession session = converter.getSportSessionWithPhoto(context, id);
 		for (ImagesMetaData image : session.getImages()) {
 			if (image != null) {
 				if (image.getId() == Integer.parseInt(id)) {
-					doInfo(path, session.getId());
+					converter.printInfo(converter.getSportSession(context, session.getId()), null);
 					System.out.println(sdf.format(session.getStartTime()) + " - ID: " + session.getId());
 					System.out.println("             [" + image.getId() + ".jpg] " + sdf.format(image.getCreatedAt()) + ": " + image.getDescription() );
 					if( image.getLatitude() != null ) System.out.println("             ( http://maps.google.com/maps?q=" + image.getLatitude() + "," + image.getLongitude() + " )");
@@ -205,7 +325,6 @@ public class RuntasticExportConverter {
 		long startTime = System.currentTimeMillis();
 		int count = converter.convertSportSessions(path, filter, dest, format);
 		long endTime = System.currentTimeMillis();
-		System.out.println(".");
 		System.out.println(count + " activities matching filter '" + filter + "' successfully converted and written to '" + dest + "' in " + (endTime - startTime) / 1000 + " seconds");
 	}
 
@@ -213,63 +332,105 @@ public class RuntasticExportConverter {
 		long startTime = System.currentTimeMillis();
 		int count = converter.exportSportSessions(path, filter, dest, format);
 		long endTime = System.currentTimeMillis();
-		System.out.println(".");
 		System.out.println(count + " activities matching filter '" + filter + "' successfully exported and written to '" + dest + "' in " + (endTime - startTime) / 1000 + " seconds");
 	}
 
 	private void doOverlap(File path, String filter, File dest, String format) throws FileNotFoundException, IOException {
 		long startTime = System.currentTimeMillis();
-		System.out.println("Load full list of sport session (inclusive all sub-data), this requires some time ...");
-		List<SportSession> sessions = converter.loadSportSessions(path, format);
+		System.out.println("Load summary of all sport sessions (bounds of their tracks), this requires some time the first time ...");
+		List<SportSession> sessions = converter.loadSportSessionSummaries(createContext(path));
 		converter.doOverlap(sessions);
 		displaySummary(sessions, false);
 
 		List<SportSession> convertedSessions = new ArrayList<>();
 		if(dest!=null) {
 			System.out.println("Convert '" + filter + "' overlap sport session(s) ...");
-			for( SportSession session : sessions) {
-				List<SportSession> overlapSessions = session.getOverlapSessions();
-				if((overlapSessions!=null) && (overlapSessions.size() > 0)) {
-					if ("all".equalsIgnoreCase(filter) || (filter.equalsIgnoreCase(session.getId()))) {
-						converter.convertSportSession(session, dest, format);
-						convertedSessions.add(session);
-					}
-				}
-			}
+			convertedSessions = convertClusters(sessions, SportSession::getOverlapCluster, "overlap", filter, dest, format);
 		}
 
 		long endTime = System.currentTimeMillis();
-		System.out.println(".");
 		System.out.println(convertedSessions.size() + " activities matching filter '" + filter + "' successfully processed and written to '" + dest + "' in " + (endTime - startTime) / 1000 + " seconds");
 	}
 
 	private void doCompound(File path, String filter, File dest, String format) throws FileNotFoundException, IOException {
 		long startTime = System.currentTimeMillis();
-		System.out.println("Load full list of sport session (inclusive all sub-data), this requires some time ...");
-		List<SportSession> sessions = converter.loadSportSessions(path, format);
+		System.out.println("Load summary of all sport sessions (bounds of their tracks), this requires some time the first time ...");
+		List<SportSession> sessions = converter.loadSportSessionSummaries(createContext(path));
 		converter.doCompound(sessions);
 		displaySummary(sessions, false);
 
 		List<SportSession> convertedSessions = new ArrayList<>();
 		if(dest!=null){
 			System.out.println("Convert '" + filter + "' compound sport session(S) ...");
-			for( SportSession session : sessions) {
-				List<SportSession> compoundSessions = session.getCompoundSessions();
-				if((compoundSessions!=null) && (compoundSessions.size() > 0)) {
-					if ("all".equalsIgnoreCase(filter) || (filter.equalsIgnoreCase(session.getId()))) {
-						converter.convertSportSession(session, dest, format);
-						convertedSessions.add(session);
-					}
-				}
-			}
+			convertedSessions = convertClusters(sessions, SportSession::getCompoundCluster, "compound", filter, dest, format);
 		}
 
 		long endTime = System.currentTimeMillis();
-		System.out.println(".");
 		System.out.println(convertedSessions.size() + " activities matching filter '" + filter + "' successfully processed and written to '" + dest + "' in " + (endTime - startTime) / 1000 + " seconds");
 	}
 
 
+	/**
+	 * Convert the sessions (matching the filter) of clusters, one cluster after the other: the data of the sessions of a cluster
+	 * is loaded before converting them (each converted session contains the tracks of all sessions of its cluster), and released after.
+	 * With cluster files, the tracks of a cluster are written once to the cluster file instead, and each converted session references it.
+	 * @param clusterOf cluster of a session, or null if none
+	 * @param kind kind of clusters, "overlap" or "compound"
+	 * @return sessions converted
+	 */
+	protected List<SportSession> convertClusters(List<SportSession> sessions, Function<SportSession, SessionCluster> clusterOf, String kind, String filter, File dest, String format) throws FileNotFoundException, IOException {
+		if (clusterFiles && !"gpx".equalsIgnoreCase(format)) {
+			throw new IllegalArgumentException("Cluster files are only supported for format 'gpx'");
+		}
+		if (clusterFiles && !dest.isDirectory()) {
+			throw new IllegalArgumentException("Destination '" + dest + "' is not a valid directory");
+		}
+		List<SportSession> convertedSessions = new ArrayList<>();
+		Set<SessionCluster> convertedClusters = Collections.newSetFromMap(new IdentityHashMap<>());
+		for( SportSession session : sessions) {
+			SessionCluster cluster = clusterOf.apply(session);
+			if (cluster == null || !convertedClusters.add(cluster)) {
+				continue;
+			}
+			List<SportSession> matchingSessions = new ArrayList<>();
+			for (SportSession clusterSession : cluster.getSessions()) {
+				if ("all".equalsIgnoreCase(filter) || (filter.equalsIgnoreCase(clusterSession.getId()))) {
+					matchingSessions.add(clusterSession);
+				}
+			}
+			if (matchingSessions.isEmpty()) {
+				continue;
+			}
+			for (SportSession clusterSession : cluster.getSessions()) {
+				converter.loadSportSessionData(clusterSession, format);
+			}
+			if (clusterFiles) {
+				converter.convertSessionCluster(cluster, kind, dest);
+			}
+			for (SportSession matchingSession : matchingSessions) {
+				if (clusterFiles) {
+					converter.convertSessionClusterReference(matchingSession, cluster, kind, dest);
+				} else {
+					converter.convertSportSession(matchingSession, dest, format);
+				}
+				convertedSessions.add(matchingSession);
+			}
+			for (SportSession clusterSession : cluster.getSessions()) {
+				clusterSession.unload();
+			}
+		}
+		return convertedSessions;
+	}
+
+	/**
+	 * Create a context for an export, with the summary cache file (if any).
+	 */
+	protected ExportContext createContext(File path) {
+		ExportContext context = converter.createContext(path);
+		context.setSummaryIndexFile(summaryIndexFile);
+		return context;
+	}
+
 	// display summary of sport sessions
 	public void displaySummary(List<SportSession> sessions, boolean full) {
 		SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
@@ -283,7 +444,7 @@ public class RuntasticExportConverter {
 		System.out.println("Sessions with 'empty' GPX track(s) ...");
 		Integer emptyGPXTrackSessionCount = 0;
 		for (SportSession session : sessions) {
-			if (session.getGpxSession() == null) {
+			if (converter.getBounds(session) == null) {
 				System.out.println("      " + sdf.format(session.getStartTime()) + " - ID: " + session.getId() + ", Sport Type: " + session.getSportTypeId() + ", duration: " + Duration.ofMillis(session.getDuration()).toString() + " (" + session.getDuration() / 60000 + " min), Notes: '" + session.getNotes() + "'");
 				emptyGPXTrackSessionCount += 1;
 			}
@@ -338,32 +499,32 @@ public class RuntasticExportConverter {
 				}
 
 				// check bounds ..
-				if((session.getGpxSession()!=null) && (session.getGpxSession().getGpx().getMetadata()!=null) && (session.getGpxSession().getGpx().getMetadata().getBounds()!=null)) {
-					BoundsType sessionBound = session.getGpxSession().getGpx().getMetadata().getBounds();
+				GeoBounds sessionBound = converter.getBounds(session);
+				if(sessionBound!=null) {
 					if ((session.getInnerBound() != null) && (session.getOuterBound() != null) ) {
-						if(sessionBound.getMinlat().compareTo(session.getInnerBound().getMinlat()) == 1 ) {
-							System.out.println("            ----> Inner bound mismatch, getMinlat: ID=" + session.getId() + "  with session bound: " + sessionBound.getMinlat() + " vs. overlap bound: " + session.getInnerBound().getMinlat() + "." );
+						if(sessionBound.getMinLat() > session.getInnerBound().getMinLat() ) {
+							System.out.println("            ----> Inner bound mismatch, getMinlat: ID=" + session.getId() + "  with session bound: " + sessionBound.getMinLat() + " vs. overlap bound: " + session.getInnerBound().getMinLat() + "." );
 						}
-						if(sessionBound.getMaxlat().compareTo(session.getInnerBound().getMaxlat()) == -1 ) {
-							System.out.println("            ----> Inner bound mismatch, getMaxlat: ID=" + session.getId() + "  with session bound: " + sessionBound.getMaxlat() + " vs. overlap bound: " + session.getInnerBound().getMaxlat() + "." );
+						if(sessionBound.getMaxLat() < session.getInnerBound().getMaxLat() ) {
+							System.out.println("            ----> Inner bound mismatch, getMaxlat: ID=" + session.getId() + "  with session bound: " + sessionBound.getMaxLat() + " vs. overlap bound: " + session.getInnerBound().getMaxLat() + "." );
 						}
-						if(sessionBound.getMinlon().compareTo(session.getInnerBound().getMinlon()) == 1 ) {
-							System.out.println("            ----> Inner bound mismatch, getMinlon: ID=" + session.getId() + "  with session bound: " + sessionBound.getMinlon() + " vs. overlap bound: " + session.getInnerBound().getMinlon() + "." );
+						if(sessionBound.getMinLon() > session.getInnerBound().getMinLon() ) {
+							System.out.println("            ----> Inner bound mismatch, getMinlon: ID=" + session.getId() + "  with session bound: " + sessionBound.getMinLon() + " vs. overlap bound: " + session.getInnerBound().getMinLon() + "." );
 						}
-						if(sessionBound.getMaxlon().compareTo(session.getInnerBound().getMaxlon()) == -1 ) {
-							System.out.println("            ----> Inner bound mismatch, getMaxlon: ID=" + session.getId() + "  with session bound: " + sessionBound.getMaxlon() + " vs. overlap bound: " + session.getInnerBound().getMaxlon() + "." );
+						if(sessionBound.getMaxLon() < session.getInnerBound().getMaxLon() ) {
+							System.out.println("            ----> Inner bound mismatch, getMaxlon: ID=" + session.getId() + "  with session bound: " + sessionBound.getMaxLon() + " vs. overlap bound: " + session.getInnerBound().getMaxLon() + "." );
 						}
-						if(sessionBound.getMinlat().compareTo(session.getOuterBound().getMinlat()) == -1 ) {
-							System.out.println("            ----> Outer bound mismatch, getMinlat: ID=" + session.getId() + "  with session bound: " + sessionBound.getMinlat() + " vs. overlap bound: " + session.getInnerBound().getMinlat() + "." );
+						if(sessionBound.getMinLat() < session.getOuterBound().getMinLat() ) {
+							System.out.println("            ----> Outer bound mismatch, getMinlat: ID=" + session.getId() + "  with session bound: " + sessionBound.getMinLat() + " vs. overlap bound: " + session.getInnerBound().getMinLat() + "." );
 						}
-						if(sessionBound.getMaxlat().compareTo(session.getOuterBound().getMaxlat()) == 1 ) {
-							System.out.println("            ----> Outer bound mismatch, getMaxlat: ID=" + session.getId() + "  with session bound: " + sessionBound.getMaxlat() + " vs. overlap bound: " + session.getInnerBound().getMaxlat() + "." );
+						if(sessionBound.getMaxLat() > session.getOuterBound().getMaxLat() ) {
+							System.out.println("            ----> Outer bound mismatch, getMaxlat: ID=" + session.getId() + "  with session bound: " + sessionBound.getMaxLat() + " vs. overlap bound: " + session.getInnerBound().getMaxLat() + "." );
 						}
-						if(sessionBound.getMinlon().compareTo(session.getOuterBound().getMinlon()) == -1 ) {
-							System.out.println("            ----> Outer bound mismatch, getMinlon: ID=" + session.getId() + "  with session bound: " + sessionBound.getMinlon() + " vs. overlap bound: " + session.getInnerBound().getMinlon() + "." );
+						if(sessionBound.getMinLon() < session.getOuterBound().getMinLon() ) {
+							System.out.println("            ----> Outer bound mismatch, getMinlon: ID=" + session.getId() + "  with session bound: " + sessionBound.getMinLon() + " vs. overlap bound: " + session.getInnerBound().getMinLon() + "." );
 						}
-						if(sessionBound.getMaxlon().compareTo(session.getOuterBound().getMaxlon()) == 1 ) {
-							System.out.println("            ----> Outer bound mismatch, getMaxlon: ID=" + session.getId() + "  with session bound: " + sessionBound.getMaxlon() + " vs. overlap bound: " + session.getInnerBound().getMaxlon() + "." );
+						if(sessionBound.getMaxLon() > session.getOuterBound().getMaxLon() ) {
+							System.out.println("            ----> Outer bound mismatch, getMaxlon: ID=" + session.getId() + "  with session bound: " + sessionBound.getMaxLon() + " vs. overlap bound: " + session.getInnerBound().getMaxLon() + "." );
 						}
 					} else {
 						System.out.println("            ----> Inner and/or outer bounds not available: ID=" + session.getId() + "  with " + overlapsessions.size() + " sessions." );
@@ -385,18 +546,18 @@ public class RuntasticExportConverter {
 			if( (compoundSessions!=null) && (compoundSessions.size() > 0) ) {
 				compoundSessionCount+=1;
 				if( full ) System.out.println("      " + sdf.format(session.getStartTime())  + "["+compoundSessionCount+"] - ID: " + session.getId() + ", Sport Type: " + session.getSportTypeId() + ", Notes: '" + session.getNotes() 
-				+ "', Bounds[MinLat="+session.getGpxSession().getGpx().getMetadata().getBounds().getMinlat()
-				+ ", MaxLat="+session.getGpxSession().getGpx().getMetadata().getBounds().getMaxlat()
-				+ ", MinLon="+session.getGpxSession().getGpx().getMetadata().getBounds().getMinlon()
-				+ ", MaxLon="+session.getGpxSession().getGpx().getMetadata().getBounds().getMaxlon()+"]");
+				+ "', Bounds[MinLat="+converter.getBounds(session).getMinLat()
+				+ ", MaxLat="+converter.getBounds(session).getMaxLat()
+				+ ", MinLon="+converter.getBounds(session).getMinLon()
+				+ ", MaxLon="+converter.getBounds(session).getMaxLon()+"]");
 			if( full ) {
 				for( SportSession compoundSession : compoundSessions ) {
 					System.out.println("            ID: " + compoundSession.getId() + ", Sport Type: " + compoundSession.getSportTypeId() 
 					+ ", Notes: '" + compoundSession.getNotes() 
-					+ "', Bounds[MinLat="+compoundSession.getGpxSession().getGpx().getMetadata().getBounds().getMinlat()
-					+ ", MaxLat="+compoundSession.getGpxSession().getGpx().getMetadata().getBounds().getMaxlat()
-					+ ", MinLon="+compoundSession.getGpxSession().getGpx().getMetadata().getBounds().getMinlon()
-					+ ", MaxLon="+compoundSession.getGpxSession().getGpx().getMetadata().getBounds().getMaxlon()+"]");
+					+ "', Bounds[MinLat="+converter.getBounds(compoundSession).getMinLat()
+					+ ", MaxLat="+converter.getBounds(compoundSession).getMaxLat()
+					+ ", MinLon="+converter.getBounds(compoundSession).getMinLon()
+					+ ", MaxLon="+converter.getBounds(compoundSession).getMaxLon()+"]");
 				}
 			}
 		}
@@ -407,7 +568,7 @@ public class RuntasticExportConverter {
 			System.out.println("      " + compoundSessionCount + " compound sessions found." );
 		}
 
-		System.out.println(sessions.size() + " activities successfully processed with max. deviation of " + distance(0, 0, 0, converter.diff.doubleValue(), "K") + " km.");
+		System.out.println(sessions.size() + " activities successfully processed with max. deviation of " + distance(0, 0, 0, converter.diff, "K") + " km.");
 	}
 
 
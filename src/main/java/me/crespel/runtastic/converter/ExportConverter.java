@@ -1,33 +1,46 @@
 package me.crespel.runtastic.converter;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
-import java.math.BigDecimal;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import static java.nio.file.StandardCopyOption.*;
 import java.text.SimpleDateFormat;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-
-import com.topografix.gpx._1._1.BoundsType;
+import java.util.Map;
+import java.util.function.IntConsumer;
 
 import org.apache.commons.io.FilenameUtils;
 
+import com.topografix.gpx._1._1.GpxType;
+
+import me.crespel.runtastic.jfr.OverlapPassEvent;
 import me.crespel.runtastic.mapper.DelegatingSportSessionMapper;
+import me.crespel.runtastic.mapper.GpxSportSessionMapper;
 import me.crespel.runtastic.mapper.SportSessionMapper;
+import me.crespel.runtastic.model.GeoBounds;
+import me.crespel.runtastic.model.GpxSession;
 import me.crespel.runtastic.model.ImagesMetaData;
+import me.crespel.runtastic.model.SessionCluster;
 import me.crespel.runtastic.model.SportSession;
-import me.crespel.runtastic.model.SportSessionAlbums;
 import me.crespel.runtastic.model.User;
+import me.crespel.runtastic.parser.ExportContext;
+import me.crespel.runtastic.parser.ParseMode;
 import me.crespel.runtastic.parser.SportSessionParser;
+import me.crespel.runtastic.util.BoundsTree;
+import me.crespel.runtastic.util.DisjointSets;
+import me.crespel.runtastic.util.FileCopier;
+import me.crespel.runtastic.util.GridIndex;
+import me.crespel.runtastic.util.Metrics;
 import me.crespel.runtastic.util.TeePrintStream;
 
 /**
@@ -37,7 +50,7 @@ import me.crespel.runtastic.util.TeePrintStream;
  */
 public class ExportConverter {
 
-	public BigDecimal diff = new BigDecimal(0.0005); // max. allowed "deviation" between bounds of sessions
+	public double diff = 0.0005; // max. allowed "deviation" between bounds of sessions
 
 	public static final String SPORT_SESSIONS_DIR = "Sport-sessions";
 	public static final String PHOTOS_DIR = "Photos";
@@ -45,17 +58,117 @@ public class ExportConverter {
 	public static final String PHOTOS_SPORT_SESSION_ALBUMS_DIR = "Photos" + File.separator + "Images-meta-data" + File.separator + "Sport-session-albums";
 	public static final String USER_DIR = "User";
 	public static final String DEFAULT_FORMAT = "tcx";
+	// margin added to bounds tree queries and grid cells, larger than the rounding error of coordinates converted to doubles
+	private static final double BOUNDS_MARGIN = 1e-9;
 
 	protected final SportSessionParser parser = new SportSessionParser();
 	protected final SportSessionMapper<?> mapper = new DelegatingSportSessionMapper();
+	protected final GpxSportSessionMapper gpxMapper = new GpxSportSessionMapper();
+	protected int parseThreads = SportSessionPipeline.DEFAULT_PARSE_THREADS;
+	protected int mapThreads = SportSessionPipeline.DEFAULT_MAP_THREADS;
+	protected int writeThreads = SportSessionPipeline.DEFAULT_WRITE_THREADS;
+	protected int queueCapacity = SportSessionPipeline.DEFAULT_QUEUE_CAPACITY;
+	protected FileCopier copier = new FileCopier();
+	protected Metrics metrics = Metrics.NONE;
+
+	public ExportConverter() {
+		// GPS, heart rate and elevation data are kept as primitive tracks, as consumed by the mappers
+		parser.setParseMode(ParseMode.STREAMING);
+		// sub-files are only read for sessions actually matching the filter, mapped or exported
+		parser.setLazy(true);
+	}
+
+	public int getParseThreads() {
+		return parseThreads;
+	}
+
+	/**
+	 * Set the number of threads parsing sport sessions (and reading their sub-data) in convert, export and load.
+	 */
+	public void setParseThreads(int parseThreads) {
+		this.parseThreads = parseThreads;
+	}
+
+	public int getMapThreads() {
+		return mapThreads;
+	}
+
+	/**
+	 * Set the number of threads mapping sport sessions to GPX/TCX in convert, export and load.
+	 */
+	public void setMapThreads(int mapThreads) {
+		this.mapThreads = mapThreads;
+	}
+
+	public int getWriteThreads() {
+		return writeThreads;
+	}
+
+	/**
+	 * Set the number of threads writing converted sport sessions (and copying exported files) in convert and export.
+	 */
+	public void setWriteThreads(int writeThreads) {
+		this.writeThreads = writeThreads;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * Set the number of sport sessions waiting between two stages of convert, export and load (bounds memory usage).
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	public boolean isLinkFiles() {
+		return copier.isLink();
+	}
+
+	/**
+	 * Set whether export creates hard links to photos and raw JSON files instead of copies (when on the same file system).
+	 */
+	public void setLinkFiles(boolean linkFiles) {
+		this.copier = new FileCopier(linkFiles);
+		copier.setMetrics(metrics);
+	}
+
+	public Metrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Set the metrics of the run, recorded by the parser, the mappers, the file copies, the pipeline stages
+	 * and the phases of the overlap and compound calculations.
+	 */
+	public void setMetrics(Metrics metrics) {
+		this.metrics = metrics;
+		parser.setMetrics(metrics);
+		((DelegatingSportSessionMapper) mapper).setMetrics(metrics);
+		gpxMapper.setMetrics(metrics);
+		copier.setMetrics(metrics);
+	}
+
+	/**
+	 * Create a context for an export, shared by all operations on this export during a run.
+	 * @param path export path (root or "Sport-sessions" directory)
+	 * @return export context
+	 */
+	public ExportContext createContext(File path) {
+		return parser.createContext(normalizeExportPath(path, SPORT_SESSIONS_DIR).getParentFile());
+	}
 
 	public List<SportSession> listSportSessions(File path, String filter, boolean full) throws FileNotFoundException, IOException {
-		path = normalizeExportPath(path, SPORT_SESSIONS_DIR);
+		return listSportSessions(createContext(path), filter, full);
+	}
+
+	public List<SportSession> listSportSessions(ExportContext context, String filter, boolean full) throws FileNotFoundException, IOException {
 		List<SportSession> sessions = new ArrayList<>();
-		File[] files = path.listFiles(file -> file.getName().endsWith(".json"));
+		File[] files = listSportSessionFiles(context);
 		for (File file : files) {
-			SportSession session = parser.parseSportSession(file,full);
-			if (filter == null || "all".equalsIgnoreCase(filter) || session.contains(filter)) {
+			SportSession session = parser.parseSportSession(file, full, context);
+			if (matchesFilter(session, filter, context)) {
 					sessions.add(session);
 			}
 		}
@@ -68,34 +181,35 @@ public class ExportConverter {
 		return parser.parseUser(new File(normalizeExportPath(path, USER_DIR), "user.json"));
 	}
 
+	public User getUser(ExportContext context) throws FileNotFoundException, IOException {
+		return parser.getUser(context);
+	}
+
 	public SportSession getSportSession(File path, String id) throws FileNotFoundException, IOException {
-		return parser.parseSportSession(new File(normalizeExportPath(path, SPORT_SESSIONS_DIR), id + ".json"), true);
+		return getSportSession(createContext(path), id);
+	}
+
+	public SportSession getSportSession(ExportContext context, String id) throws FileNotFoundException, IOException {
+		return parser.parseSportSession(new File(normalizeExportPath(context.getRoot(), SPORT_SESSIONS_DIR), id + ".json"), true, context);
 	}
 
 	public SportSession getSportSessionWithPhoto(File path, String photoid) throws FileNotFoundException, IOException {
+		return getSportSessionWithPhoto(createContext(path), photoid);
+	}
+
+	public SportSession getSportSessionWithPhoto(ExportContext context, String photoid) throws FileNotFoundException, IOException {
 		String sessionid = null;
 
-		File photofile = new File(normalizeExportPath(path, PHOTOS_DIR), photoid + ".jpg");
+		File photofile = context.getIndex().getFile(new File(normalizeExportPath(context.getRoot(), PHOTOS_DIR), photoid + ".jpg"));
 		if( photofile.exists() ) {
 			// photo file found ...
 
-			ImagesMetaData image = parser.parseImagesMetaData(new File(normalizeExportPath(path, PHOTOS_META_DATA_DIR), photoid + ".json"));
+			ImagesMetaData image = parser.parseImagesMetaData(new File(normalizeExportPath(context.getRoot(), PHOTOS_META_DATA_DIR), photoid + ".json"));
 			if( image != null ) {
 				// photo meta data file found ...
 
-				// search trough sport session album data, to find sport session related to the photo
-				File[] files = normalizeExportPath(path, PHOTOS_SPORT_SESSION_ALBUMS_DIR).listFiles(file -> file.getName().endsWith(".json"));
-				for( File file : files ) {
-					try {
-						SportSessionAlbums mysessionalbum = parser.parseSportSessionAlbumsData(file);
-						if (mysessionalbum.getPhotosIds().contains(photoid)) {
-							// Sport session id found within sport session albums
-							sessionid = mysessionalbum.getId();
-						}
-					} catch (IOException e) {
-						throw new RuntimeException(e);
-					}
-				}
+				// search through sport session album data (indexed by photo id), to find sport session related to the photo
+				sessionid = parser.getPhotoIndex(context).getSessionId(photoid);
 			}
 		}
 
@@ -103,24 +217,71 @@ public class ExportConverter {
 			throw new FileNotFoundException("Sport Session file not found for photo id = '" + photoid + "'");
 		}
 
-		return getSportSession(path, sessionid);
+		return getSportSession(context, sessionid);
 	}
 
 	public List<SportSession> loadSportSessions(File path, String format) throws FileNotFoundException, IOException {
-		File[] files = normalizeExportPath(path, SPORT_SESSIONS_DIR).listFiles(file -> file.getName().endsWith(".json"));
-		List<SportSession> sessionlist = new ArrayList<>();
-		Arrays.asList(files).parallelStream().forEach(file -> {
-			try {
-				SportSession session = parser.parseSportSession(file, true);
-				if (session.getGpsSession() != null || session.getHeartRateSession() != null || session.getGpxSession() != null) {
-					mapper.mapSportSession(session, format);
-				}
-				sessionlist.add(session);
-			} catch (IOException e) {
-				throw new RuntimeException(e);
+		return loadSportSessions(createContext(path), format);
+	}
+
+	public List<SportSession> loadSportSessions(ExportContext context, String format) throws FileNotFoundException, IOException {
+		File[] files = listSportSessionFiles(context);
+		SportSessionPipeline.Result result = runPipeline(files, file -> {
+			SportSession session = parser.parseSportSession(file, true, context);
+			session.load();
+			session.setSummary(parser.getSessionSummary(context, session, true));
+			return session;
+		}, session -> {
+			if (hasData(session)) {
+				mapper.mapSportSession(session, format);
 			}
-		});
-		return sessionlist;
+			return null;
+		}, null);
+		parser.saveSessionSummaryIndex(context);
+		return result.getSessions();
+	}
+
+	/**
+	 * Load all sport sessions with their summary only (see SportSessionParser.getSessionSummary), e.g. to calculate overlapping
+	 * or compound sessions: their tracks are read only to compute summaries missing from the summary index, and not kept.
+	 * The sessions are parsed in lazy mode, their data is read by {@link #loadSportSessionData(SportSession, String)}.
+	 */
+	public List<SportSession> loadSportSessionSummaries(ExportContext context) throws FileNotFoundException, IOException {
+		File[] files = listSportSessionFiles(context);
+		SportSessionPipeline.Result result = runPipeline(files, file -> {
+			SportSession session = parser.parseSportSession(file, true, context);
+			session.setSummary(parser.getSessionSummary(context, session, true));
+			session.unload();
+			return session;
+		}, session -> null, null);
+		parser.saveSessionSummaryIndex(context);
+		return result.getSessions();
+	}
+
+	/**
+	 * Load the data of a sport session loaded with its summary only, before converting it (or the sessions it overlaps or compounds with).
+	 * As in loadSportSessions, the GPX session is replaced by the mapped one (bounds and first track) for GPX.
+	 * Release the data with {@link SportSession#unload()} once converted.
+	 */
+	public void loadSportSessionData(SportSession session, String format) {
+		session.load();
+		if (gpxMapper.supports(format) && hasData(session)) {
+			session.setGpxSession(gpxMapper.mapGpxSession(session));
+		}
+	}
+
+	/**
+	 * @return true if the sport session has heart rate data (without reading it)
+	 */
+	public boolean hasHeartRateData(SportSession session) {
+		return parser.hasHeartRateData(session);
+	}
+
+	/**
+	 * @return number of images of the sport session (without reading their meta data), as {@link SportSession#getImages()} loads them
+	 */
+	public int countImages(ExportContext context, SportSession session) {
+		return parser.countImages(context, session.getSessionAlbum());
 	}
 
 	public void convertSportSession(SportSession session, File dest, String format) throws FileNotFoundException, IOException {
@@ -128,118 +289,187 @@ public class ExportConverter {
 			dest = new File(dest, buildFileName(session, format));
 		}
 		mapper.mapSportSession(session, format, dest);
+		metrics.add(Metrics.BYTES_WRITTEN, dest.length());
+	}
+
+	/**
+	 * Write a cluster of overlapping (or compound) sport sessions as one GPX file, with the track of each session once.
+	 * The data of the sessions must be loaded (see {@link #loadSportSessionData(SportSession, String)}).
+	 * @param kind kind of cluster, "overlap" or "compound"
+	 * @return cluster file
+	 */
+	public File convertSessionCluster(SessionCluster cluster, String kind, File dest) throws FileNotFoundException, IOException {
+		File destFile = new File(dest, buildFileName(cluster, kind));
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(destFile))) {
+			gpxMapper.writeSessionCluster(cluster, buildClusterName(cluster, kind), out);
+		}
+		metrics.add(Metrics.BYTES_WRITTEN, destFile.length());
+		return destFile;
+	}
+
+	/**
+	 * Write a sport session of a cluster as GPX file without tracks, referencing the cluster file (see {@link #convertSessionCluster}).
+	 */
+	public void convertSessionClusterReference(SportSession session, SessionCluster cluster, String kind, File dest) throws FileNotFoundException, IOException {
+		File destFile = new File(dest, buildFileName(session, "gpx"));
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(destFile))) {
+			gpxMapper.writeSessionClusterReference(session, getBounds(session), buildClusterName(cluster, kind), buildFileName(cluster, kind), out);
+		}
+		metrics.add(Metrics.BYTES_WRITTEN, destFile.length());
 	}
 
 	public int convertSportSessions(File path, String filter, File dest, String format) throws FileNotFoundException, IOException {
+		return convertSportSessions(createContext(path), filter, dest, format);
+	}
+
+	public int convertSportSessions(ExportContext context, String filter, File dest, String format) throws FileNotFoundException, IOException {
 		if (dest.exists() && !dest.isDirectory()) {
 			throw new IllegalArgumentException("Destination '" + dest + "' is not a valid directory");
 		}
 		dest.mkdirs();
-		File[] files = normalizeExportPath(path, SPORT_SESSIONS_DIR).listFiles(file -> file.getName().endsWith(".json"));
-		List<SportSession> sessions = new ArrayList<>();
-		Arrays.asList(files).parallelStream().forEach(file -> {
-			System.out.print(".");
-			try {
-				SportSession session = parser.parseSportSession(file, true);
-				if (filter == null || "all".equalsIgnoreCase(filter) || session.contains(filter)) {
-					sessions.add(session);
-					if (session.getGpsSession() != null || session.getHeartRateSession() != null || session.getGpxSession() != null) {
-						File destFile = new File(dest, buildFileName(session, format));
-						mapper.mapSportSession(session, format, destFile);
+		File[] files = listSportSessionFiles(context);
+		// the output is streamed to its file in the write stage, only its destination is passed from the map stage
+		SportSessionPipeline.Result result = runPipeline(files, file -> parseMatchingSportSession(file, filter, context),
+				session -> hasData(session) ? new File(dest, buildFileName(session, format)) : null,
+				(session, destFile) -> {
+					if (destFile != null) {
+						convertSportSession(session, destFile, format);
 					}
-				}
-			} catch (IOException e) {
-				throw new RuntimeException(e);
-			}
-		});
-		return sessions.size();
+					session.unload();
+				});
+		return result.getSessions().size();
 	}
 
 	// Loop through all sport session and export sessions matching filter criteria
 	public int exportSportSessions(File path, String filter, File dest, String format) throws FileNotFoundException, IOException {
+		return exportSportSessions(createContext(path), filter, dest, format);
+	}
+
+	public int exportSportSessions(ExportContext context, String filter, File dest, String format) throws FileNotFoundException, IOException {
 		if (dest.exists() && !dest.isDirectory()) {
 			throw new IllegalArgumentException("Destination '" + dest + "' is not a valid directory");
 		}
 		dest.mkdirs();
-		File[] files = normalizeExportPath(path, SPORT_SESSIONS_DIR).listFiles(file -> file.getName().endsWith(".json"));
-		List<SportSession> sessions = new ArrayList<>();
-		Arrays.asList(files).forEach(file -> {
-			System.out.print(".");
-			try {
-				SportSession session = parser.parseSportSession(file, true);
-				if (filter == null || "all".equalsIgnoreCase(filter) || session.contains(filter)) {
-					// Create sub-folder to store export of this sport session
-					String fileNameWithOutExt = FilenameUtils.removeExtension(session.getFileName());
-					String folderName = FilenameUtils.getName(fileNameWithOutExt);
-					File sessionDestFolder = new File(dest,folderName);
-					sessionDestFolder.mkdirs();
-					sessions.add(session);
+		File[] files = listSportSessionFiles(context);
+		// the output is streamed to its file in the write stage, only the session folder is passed from the map stage
+		SportSessionPipeline.Result result = runPipeline(files, file -> parseMatchingSportSession(file, filter, context),
+				session -> createExportFolder(session, dest),
+				(session, sessionDestFolder) -> {
+					exportSportSession(context, session, sessionDestFolder, format);
+					session.unload();
+				});
+		return result.getSessions().size();
+	}
 
-					// Convert Sport Session
-					if (session.getGpsSession() != null || session.getHeartRateSession() != null || session.getGpxSession() != null) {
-						File destFile = new File(sessionDestFolder, buildFileName(session, format));
-						mapper.mapSportSession(session, format, destFile);
-					}
+	/**
+	 * Create the sub-folder of the export of a sport session.
+	 * @return sub-folder
+	 */
+	protected File createExportFolder(SportSession session, File dest) {
+		String fileNameWithOutExt = FilenameUtils.removeExtension(session.getFileName());
+		String folderName = FilenameUtils.getName(fileNameWithOutExt);
+		File sessionDestFolder = new File(dest,folderName);
+		sessionDestFolder.mkdirs();
+		return sessionDestFolder;
+	}
 
-					if( session.getImages() != null ) {
-						for (ImagesMetaData image : session.getImages() ) {
-							// Copy session image meta data to export of this sport session
-							Path target = Paths.get(sessionDestFolder.getAbsolutePath()+"\\"+FilenameUtils.getName(image.getFileName()));
-							Path source = Paths.get(image.getFileName());
-							Files.copy(source, target, REPLACE_EXISTING);
-
-							// Copy images to export of this sport session
-							Path targetImage = Paths.get(sessionDestFolder.getAbsolutePath()+"\\"+ image.getId() + ".jpg");
-							Path sourceImage = Paths.get(normalizeExportPath(path, PHOTOS_DIR).getAbsolutePath(), image.getId() + ".jpg");
-							Files.copy(sourceImage, targetImage, REPLACE_EXISTING);
-						}
-					}
+	protected void exportSportSession(ExportContext context, SportSession session, File sessionDestFolder, String format) throws IOException {
+		// Convert Sport Session
+		if (hasData(session)) {
+			convertSportSession(session, new File(sessionDestFolder, buildFileName(session, format)), format);
+		}
 
-					if( session.getElevationSession() != null ) {
-						// copy elevation session file 
-						Path target = Paths.get(sessionDestFolder.getAbsolutePath()+"\\"+FilenameUtils.getName(session.getElevationSession().getFileName()));
-						Path source = Paths.get(session.getElevationSession().getFileName());
-						Files.copy(source, target, REPLACE_EXISTING);
-					}
+		Path folder = sessionDestFolder.toPath();
+		if( session.getImages() != null ) {
+			Path photos = normalizeExportPath(context.getRoot(), PHOTOS_DIR).toPath();
+			for (ImagesMetaData image : session.getImages() ) {
+				// Copy session image meta data to export of this sport session
+				copyToFolder(Paths.get(image.getFileName()), folder);
 
-					if( session.getGpsSession() != null ) {
-						// copy gps session data file
-						Path target = Paths.get(sessionDestFolder.getAbsolutePath()+"\\"+FilenameUtils.getName(session.getGpsSession().getFileName()));
-						Path source = Paths.get(session.getGpsSession().getFileName());
-						Files.copy(source, target, REPLACE_EXISTING);
-					}
+				// Copy images to export of this sport session
+				copier.copy(photos.resolve(image.getId() + ".jpg"), folder.resolve(image.getId() + ".jpg"));
+			}
+		}
 
-					if( session.getGpxSession() != null && session.getGpxSession().getFileName() != null ) {
-						// copy gpx session data file
-						Path target = Paths.get(sessionDestFolder.getAbsolutePath()+"\\"+FilenameUtils.getName(session.getGpxSession().getFileName()));
-						Path source = Paths.get(session.getGpxSession().getFileName());
-						Files.copy(source, target, REPLACE_EXISTING);
-					}
+		if( session.getElevationSession() != null ) {
+			// copy elevation session file 
+			copyToFolder(Paths.get(session.getElevationSession().getFileName()), folder);
+		}
 
-					if( session.getHeartRateSession() != null ) {
-						// copy heart rate session data file
-						Path target = Paths.get(sessionDestFolder.getAbsolutePath()+"\\"+FilenameUtils.getName(session.getHeartRateSession().getFileName()));
-						Path source = Paths.get(session.getHeartRateSession().getFileName());
-						Files.copy(source, target, REPLACE_EXISTING);
-					}
+		if( session.getGpsSession() != null ) {
+			// copy gps session data file
+			copyToFolder(Paths.get(session.getGpsSession().getFileName()), folder);
+		}
 
-					if( session.getUser() != null ) {
-						// copy heart rate session data file
-						Path target = Paths.get(sessionDestFolder.getAbsolutePath()+"\\"+FilenameUtils.getName(session.getUser().getFileName()));
-						Path source = Paths.get(session.getUser().getFileName());
-						Files.copy(source, target, REPLACE_EXISTING);
-					}
+		if( session.getGpxSession() != null && session.getGpxSession().getFileName() != null ) {
+			// copy gpx session data file
+			copyToFolder(Paths.get(session.getGpxSession().getFileName()), folder);
+		}
 
-					FileOutputStream infofile = new FileOutputStream(sessionDestFolder.getCanonicalFile() + "\\info.txt");
-					printInfo(session, infofile);
-				}
-			} catch (IOException e) {
-				throw new RuntimeException(e);
-			}
-		});
-		return sessions.size();
+		if( session.getHeartRateSession() != null ) {
+			// copy heart rate session data file
+			copyToFolder(Paths.get(session.getHeartRateSession().getFileName()), folder);
+		}
+
+		if( session.getUser() != null ) {
+			// copy user data file
+			copyToFolder(Paths.get(session.getUser().getFileName()), folder);
+		}
+
+		FileOutputStream infofile = new FileOutputStream(folder.resolve("info.txt").toFile());
+		// info is also printed to the console, keep the lines of a session together
+		synchronized (System.out) {
+			printInfo(session, infofile);
+		}
+	}
+
+	/**
+	 * Copy (or link) a file to a folder, with the same name.
+	 */
+	protected void copyToFolder(Path source, Path folder) throws IOException {
+		copier.copy(source, folder.resolve(source.getFileName()));
+	}
+
+	/**
+	 * Parse a sport session with its sub-data (read in the parse stage of the pipeline), if it matches the filter.
+	 * @return sport session, or null if not matching
+	 */
+	protected SportSession parseMatchingSportSession(File file, String filter, ExportContext context) throws IOException {
+		SportSession session = parser.parseSportSession(file, true, context);
+		if (!matchesFilter(session, filter, context)) {
+			return null;
+		}
+		session.load();
+		return session;
 	}
 
+	protected boolean hasData(SportSession session) {
+		return session.getGpsSession() != null || session.getHeartRateSession() != null || session.getGpxSession() != null;
+	}
+
+	/**
+	 * Run sport session files through a parse, map and write pipeline, with the configured pool sizes.
+	 * Errors are reported per session and do not abort the run.
+	 */
+	protected <M> SportSessionPipeline.Result runPipeline(File[] files, SportSessionPipeline.Parser parser, SportSessionPipeline.Mapper<M> mapper, SportSessionPipeline.Writer<M> writer) throws IOException {
+		SportSessionPipeline<M> pipeline = new SportSessionPipeline<>();
+		pipeline.setParseThreads(parseThreads);
+		pipeline.setMapThreads(mapThreads);
+		pipeline.setWriteThreads(writeThreads);
+		pipeline.setQueueCapacity(queueCapacity);
+		pipeline.setMetrics(metrics);
+		SportSessionPipeline.Result result;
+		try {
+			result = pipeline.run(files, parser, mapper, writer);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while processing sport sessions");
+		}
+		for (Map.Entry<File, Exception> error : result.getErrors().entrySet()) {
+			System.err.println("Failed to process sport session '" + error.getKey() + "': " + error.getValue());
+		}
+		return result;
+	}
 
 	public void printInfo(SportSession session, FileOutputStream filestream) {
 		SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
@@ -254,7 +484,7 @@ public class ExportConverter {
 			tee.println("      Start: " + sdf.format(session.getStartTime()) + ", End: " + sdf.format(session.getEndTime()) + ", Created: " + sdf.format(session.getCreatedAt()) + ", Updated: " + sdf.format(session.getUpdatedAt()));
 			tee.println("      Elevation: (+) " + session.getElevationGain() + " m , (-) " + session.getElevationLoss() + " m  /  " + ( session.getLatitude() != null ? "Latitude: " + session.getLatitude() + ", Longitude: " + session.getLongitude() + "  ( http://maps.google.com/maps?q=" + session.getLatitude() + "," + session.getLongitude() + " )" : "No GPS information available.") );
 			tee.println("      Notes: " + session.getNotes());
-			tee.println("      Waypoints: " + ((session.getGpsSession() == null) ? "0" : session.getGpsSession().getGpsData().size()) + " JSON points, " + ((session.getGpxSession() == null) ? "0" : (session.getGpxSession().getGpx().getTrk()==null) ? "0" : (session.getGpxSession().getGpx().getTrk().size()==0)  ? "0" : session.getGpxSession().getGpx().getTrk().get(0).getTrkseg().get(0).getTrkpt().size()) + " GPX points.");
+			tee.println("      Waypoints: " + ((session.getGpsSession() == null) ? "0" : session.getGpsSession().size()) + " JSON points, " + ((session.getGpxSession() == null) ? "0" : countGpxPoints(session.getGpxSession())) + " GPX points.");
 			tee.println("      Tags: " + ((session.getTags() == null) ? "none" : session.getTags().toString()) + " / SortTag=" + session.getSortTag());
 			tee.println("      Photos:" + (session.getSessionAlbum() != null ? session.getSessionAlbum().getPhotosIds().toString() : "none"));
 			if (session.getImages() != null) {
@@ -275,6 +505,26 @@ public class ExportConverter {
 
 
 
+	/**
+	 * @return points of the first segment of the first GPX track, counted on the streamed track if any (not converted to JAXB)
+	 */
+	public int countGpxPoints(GpxSession gpxSession) {
+		if (gpxSession.getTrack() != null) {
+			int[] segments = gpxSession.getSegments();
+			if (segments == null) {
+				return gpxSession.getTrack().size();
+			} else if (segments.length == 0) {
+				return 0;
+			}
+			return (segments.length > 1 ? segments[1] : gpxSession.getTrack().size()) - segments[0];
+		}
+		GpxType gpx = gpxSession.getGpx();
+		if (gpx == null || gpx.getTrk().isEmpty() || gpx.getTrk().get(0).getTrkseg().isEmpty()) {
+			return 0;
+		}
+		return gpx.getTrk().get(0).getTrkseg().get(0).getTrkpt().size();
+	}
+
 	// Loop through all sport session and add "overlapping" session to each sport session
 	public void doOverlap(List<SportSession> sessions) {
 		// (1) search per session for all overlapping sessions
@@ -283,108 +533,148 @@ public class ExportConverter {
 		// - Session D, overlaps only with B and C (this because B & C are in range of D, but not of A)
 		// but expected is that all mention sessions above are calculated as "overlapping"
 		// This circumstance will be "normalized" in a second step.
+		// Candidates are found with a bounds tree: an overlapping session is within the bounds of the session expanded by diff
+		// (plus a margin for the rounding of bounds to doubles), the exact check is then done on the candidates only.
+		OverlapPassEvent event = beginPass();
+		long start = metrics.start();
+		List<SportSession> boundedSessions = new ArrayList<>();
+		List<GeoBounds> sessionBounds = new ArrayList<>();
 		for (SportSession session : sessions) {
-			if (session.getGpxSession() != null && session.getGpxSession().getGpx().getMetadata() != null
-					&& session.getGpxSession().getGpx().getMetadata().getBounds() != null) {
-				List<SportSession> overlapSessions = new ArrayList<>();
-				for (SportSession session2 : sessions) {
-					if (!session.getId().equals(session2.getId())) {
-						if ((session2.getGpxSession() != null && session2.getGpxSession().getGpx().getMetadata() != null
-								&& session2.getGpxSession().getGpx().getMetadata().getBounds() != null)) {
-							BoundsType bounds = session.getGpxSession().getGpx().getMetadata().getBounds();
-							BoundsType bounds2 = session2.getGpxSession().getGpx().getMetadata().getBounds();
-							if( (bounds != null) && (bounds2 != null) )
-							{
-								if( bounds.getMaxlat() != null && bounds.getMaxlon() != null && bounds.getMinlat() != null && bounds.getMinlon() != null &&
-									bounds2.getMaxlat() != null && bounds2.getMaxlon() != null && bounds2.getMinlat() != null && bounds2.getMinlon() != null )
-								{
-									BigDecimal diffMaxlat = bounds.getMaxlat().subtract(bounds2.getMaxlat()).abs();
-									BigDecimal diffMaxlon = bounds.getMaxlon().subtract(bounds2.getMaxlon()).abs();
-									BigDecimal diffMinlat = bounds.getMinlat().subtract(bounds2.getMinlat()).abs();
-									BigDecimal diffMinlon = bounds.getMinlon().subtract(bounds2.getMinlon()).abs();
-									if ((diffMaxlat.compareTo(diff) < 0) && (diffMaxlon.compareTo(diff) < 0)
-											&& (diffMinlat.compareTo(diff) < 0) && (diffMinlon.compareTo(diff) < 0)) {
-										// overlapping sport session found
-										overlapSessions.add(session2);
-									}
-								}	
-							}
-						}
-					}
-				}
-				if( overlapSessions.size()>0) {
-					session.setOverlapSessions(overlapSessions);
-				}
+			session.setOverlapCluster(null);
+			GeoBounds bounds = getBounds(session);
+			if (bounds != null) {
+				boundedSessions.add(session);
+				sessionBounds.add(bounds);
 			}
 		}
-		// (2) Normalize overlapping sport sessions
-		for (SportSession session : sessions) {
-			if( session.getOverlapSessions() != null ) {
-				List<SportSession> normalizedOverlapSessions = new ArrayList<>();
-				for (SportSession overlapSession : session.getOverlapSessions()) {
-					addOverlapSessions(normalizedOverlapSessions, overlapSession);
+		BoundsTree tree = buildBoundsTree(sessionBounds);
+		recordPass(event, "overlap", "index", start, boundedSessions.size(), 0);
+		event = beginPass();
+		start = metrics.start();
+		DisjointSets sets = new DisjointSets(boundedSessions.size());
+		double margin = diff + BOUNDS_MARGIN;
+		for (int i = 0; i < boundedSessions.size(); i++) {
+			SportSession session = boundedSessions.get(i);
+			GeoBounds bounds = sessionBounds.get(i);
+			int index = i;
+			tree.searchWithin(bounds.getMinLat() - margin, bounds.getMinLon() - margin, bounds.getMaxLat() + margin, bounds.getMaxLon() + margin, candidate -> {
+				// overlapping is symmetric, check each pair once
+				SportSession session2 = boundedSessions.get(candidate);
+				if (candidate > index && !session.getId().equals(session2.getId()) && isOverlap(bounds, sessionBounds.get(candidate))) {
+					// overlapping sport session found
+					sets.union(index, candidate);
 				}
-				session.setOverlapSessions(normalizedOverlapSessions);
+			});
+		}
+		recordPass(event, "overlap", "search", start, boundedSessions.size(), 0);
+		event = beginPass();
+		start = metrics.start();
+		// (2) Normalize overlapping sport sessions: each set of (transitively) overlapping sessions is a cluster
+		List<SessionCluster> clusters = buildClusters(boundedSessions, sets);
+		for (SessionCluster cluster : clusters) {
+			for (SportSession session : cluster.getSessions()) {
+				session.setOverlapCluster(cluster);
 			}
 		}
-		// (3) Calculate inner and outer bound (of normalized overlapping sessions)
-		for (SportSession session : sessions) {
-			calculateInnerAndOuterBound(session);
+		// (3) Calculate inner and outer bound (of normalized overlapping sessions), once per cluster
+		for (SessionCluster cluster : clusters) {
+			calculateInnerAndOuterBound(cluster);
 		}
+		recordPass(event, "overlap", "cluster", start, boundedSessions.size(), clusters.size());
+	}
+
+	/**
+	 * @return true if all edges of the bounds are closer than diff
+	 */
+	public boolean isOverlap(GeoBounds bounds, GeoBounds bounds2) {
+		return Math.abs(bounds.getMaxLat() - bounds2.getMaxLat()) < diff && Math.abs(bounds.getMaxLon() - bounds2.getMaxLon()) < diff
+				&& Math.abs(bounds.getMinLat() - bounds2.getMinLat()) < diff && Math.abs(bounds.getMinLon() - bounds2.getMinLon()) < diff;
 	}
 
-	private void addOverlapSessions(List<SportSession> normalizedOverlapSessions, SportSession overlapSession) {
-		if((normalizedOverlapSessions != null) && (overlapSession.getOverlapSessions() != null)) {
-			for (SportSession innerOverlapSession : overlapSession.getOverlapSessions()) {
-				if( (innerOverlapSession != null) && (!normalizedOverlapSessions.contains(innerOverlapSession)) ) {
-					normalizedOverlapSessions.add(innerOverlapSession);
-					addOverlapSessions(normalizedOverlapSessions, innerOverlapSession);
+	/**
+	 * @return true if the session has GPX bounds
+	 */
+	protected boolean hasBounds(SportSession session) {
+		return getBounds(session) != null;
+	}
+
+	/**
+	 * @return bounds of the session (from its summary if any, otherwise from its GPX session), or null if it has none
+	 */
+	public GeoBounds getBounds(SportSession session) {
+		GeoBounds bounds;
+		if (session.getSummary() != null) {
+			bounds = session.getSummary().getBounds();
+		} else if (session.getGpxSession() != null) {
+			bounds = session.getGpxSession().getBounds();
+		} else {
+			return null;
+		}
+		return bounds != null && !bounds.isEmpty() ? bounds : null;
+	}
+
+	/**
+	 * Build a bounds tree of bounds, the id of each entry being its index in the list.
+	 */
+	protected BoundsTree buildBoundsTree(List<GeoBounds> bounds) {
+		int n = bounds.size();
+		double[] minLat = new double[n];
+		double[] minLon = new double[n];
+		double[] maxLat = new double[n];
+		double[] maxLon = new double[n];
+		for (int i = 0; i < n; i++) {
+			minLat[i] = bounds.get(i).getMinLat();
+			minLon[i] = bounds.get(i).getMinLon();
+			maxLat[i] = bounds.get(i).getMaxLat();
+			maxLon[i] = bounds.get(i).getMaxLon();
+		}
+		return new BoundsTree(minLat, minLon, maxLat, maxLon);
+	}
+
+	/**
+	 * Build the clusters of sessions (of more than one session), in the order of the sessions.
+	 * @param sets sets of the session indexes
+	 */
+	protected List<SessionCluster> buildClusters(List<SportSession> sessions, DisjointSets sets) {
+		List<SessionCluster> clusters = new ArrayList<>();
+		SessionCluster[] clustersBySet = new SessionCluster[sessions.size()];
+		for (int i = 0; i < sessions.size(); i++) {
+			int set = sets.find(i);
+			if (sets.size(set) > 1) {
+				if (clustersBySet[set] == null) {
+					clustersBySet[set] = new SessionCluster(clusters.size() + 1);
+					clusters.add(clustersBySet[set]);
 				}
+				clustersBySet[set].getSessions().add(sessions.get(i));
 			}
 		}
+		return clusters;
 	}
 
 	public void calculateInnerAndOuterBound(SportSession session) {
-		if( session.getOverlapSessions() != null ) {
-			BoundsType innerBounds = null;
-			BoundsType outerBounds = null;
-			for (SportSession overlapSession : session.getOverlapSessions()) {
-				BoundsType sessionBounds = overlapSession.getGpxSession().getGpx().getMetadata().getBounds();;
-				if( (innerBounds == null) && (outerBounds == null) ) {
-					// init bounds with "any" existing bounds from sessions
-					innerBounds = new BoundsType();
-					innerBounds.setMaxlat(sessionBounds.getMaxlat());
-					innerBounds.setMinlat(sessionBounds.getMinlat());
-					innerBounds.setMaxlon(sessionBounds.getMaxlon());
-					innerBounds.setMinlon(sessionBounds.getMinlon());
-					outerBounds = new BoundsType();
-					outerBounds.setMaxlat(sessionBounds.getMaxlat());
-					outerBounds.setMinlat(sessionBounds.getMinlat());
-					outerBounds.setMaxlon(sessionBounds.getMaxlon());
-					outerBounds.setMinlon(sessionBounds.getMinlon());
-				} else {
-					// calculate "left" side of inner bounds ...
-					innerBounds.setMinlon(sessionBounds.getMinlon().max(innerBounds.getMinlon()));
-					// calculate "right" side of inner bounds ...
-					innerBounds.setMaxlon(sessionBounds.getMaxlon().min(innerBounds.getMaxlon()));
-					// caluclate "top" side of inner bounds ...
-					innerBounds.setMaxlat(sessionBounds.getMaxlat().min(innerBounds.getMaxlat()));
-					// calculate "lower" side of inner bounds ...
-					innerBounds.setMinlat(sessionBounds.getMinlat().max(innerBounds.getMinlat()));
-					// calculate "left" side of outer bounds ...
-					outerBounds.setMinlon(sessionBounds.getMinlon().min(outerBounds.getMinlon()));
-					// caluclate "right" side of outer bounds ...
-					outerBounds.setMaxlon(sessionBounds.getMaxlon().max(outerBounds.getMaxlon()));
-					// calculate "top" side of outer bounds ...
-					outerBounds.setMaxlat(sessionBounds.getMaxlat().max(outerBounds.getMaxlat()));
-					// calculate "lower" side of outer bounds ...
-					outerBounds.setMinlat(sessionBounds.getMinlat().min(outerBounds.getMinlat()));
-				}
+		if( session.getOverlapCluster() != null ) {
+			calculateInnerAndOuterBound(session.getOverlapCluster());
+		}
+	}
+
+	public void calculateInnerAndOuterBound(SessionCluster cluster) {
+		GeoBounds innerBounds = null;
+		GeoBounds outerBounds = null;
+		for (SportSession overlapSession : cluster.getSessions()) {
+			GeoBounds sessionBounds = getBounds(overlapSession);
+			if( (innerBounds == null) && (outerBounds == null) ) {
+				// init bounds with "any" existing bounds from sessions
+				innerBounds = sessionBounds;
+				outerBounds = sessionBounds;
+			} else {
+				// inner bounds are included in all sessions, outer bounds include all sessions
+				innerBounds = innerBounds.intersection(sessionBounds);
+				outerBounds = outerBounds.union(sessionBounds);
 			}
-			// Store inner and outer bounds in sport session
-			session.setInnerBound(innerBounds);
-			session.setOuterBound(outerBounds);
 		}
+		// Store inner and outer bounds in cluster
+		cluster.setInnerBound(innerBounds);
+		cluster.setOuterBound(outerBounds);
 	}
 
 	// Loop through all sport session and search for "adjuncted" sessions
@@ -392,70 +682,132 @@ public class ExportConverter {
 		// calculate overlapping sessions, as those are not considered as "compound" session
 		doOverlap(sessions);
 
+		OverlapPassEvent event = beginPass();
+		long start = metrics.start();
 		// (1) search per session for all "adjuncted sessions
+		List<SportSession> boundedSessions = new ArrayList<>();
+		List<GeoBounds> sessionBounds = new ArrayList<>();
 		for (SportSession session : sessions) {
-			if (session.getGpxSession() != null && session.getGpxSession().getGpx().getMetadata() != null && session.getGpxSession().getGpx().getMetadata().getBounds() != null && session.getDistance() > 0) {
-				List<SportSession> compoundSessions = new ArrayList<>();
-				for (SportSession session2 : sessions) {
-					if (!session.getId().equals(session2.getId()) && session2.getDistance() > 0 ) {
-						if( (session.getOverlapSessions()==null) ||
-						    ((session.getOverlapSessions()!=null) && (!session.getOverlapSessions().contains(session2))) ) {
-							// process session only if it isn't an "overlapping" session
-							if(isCompound(session,session2))
-							{
-								// compound sport session found
-								compoundSessions.add(session2);
-							}
-						}
-					}
+			session.setCompoundCluster(null);
+			GeoBounds bounds = getBounds(session);
+			if (bounds != null && session.getDistance() != null && session.getDistance() > 0) {
+				boundedSessions.add(session);
+				sessionBounds.add(bounds);
+			}
+		}
+		// Candidates are found with grid indexes of the edges: a compound session has its opposite edge closer than diff,
+		// i.e. in the same or a neighbouring cell (cells are slightly larger than diff, for the rounding of bounds to doubles).
+		int n = boundedSessions.size();
+		double[] minLat = new double[n];
+		double[] minLon = new double[n];
+		double[] maxLat = new double[n];
+		double[] maxLon = new double[n];
+		for (int i = 0; i < n; i++) {
+			GeoBounds bounds = sessionBounds.get(i);
+			minLat[i] = bounds.getMinLat();
+			minLon[i] = bounds.getMinLon();
+			maxLat[i] = bounds.getMaxLat();
+			maxLon[i] = bounds.getMaxLon();
+		}
+		double cellSize = diff + BOUNDS_MARGIN;
+		GridIndex bottomEdges = new GridIndex(minLat, cellSize);
+		GridIndex leftEdges = new GridIndex(minLon, cellSize);
+		GridIndex topEdges = new GridIndex(maxLat, cellSize);
+		GridIndex rightEdges = new GridIndex(maxLon, cellSize);
+		recordPass(event, "compound", "index", start, n, 0);
+		event = beginPass();
+		start = metrics.start();
+		DisjointSets sets = new DisjointSets(n);
+		// session last checked against each session, as a session can be found on several edges
+		int[] checked = new int[n];
+		Arrays.fill(checked, -1);
+		for (int i = 0; i < n; i++) {
+			SportSession session = boundedSessions.get(i);
+			int index = i;
+			IntConsumer check = j -> {
+				// compound is symmetric, check each pair once
+				if (j <= index || checked[j] == index) {
+					return;
 				}
-				if( compoundSessions.size() > 0 ) {
-					session.setCompoundSessions(compoundSessions);
+				checked[j] = index;
+				SportSession session2 = boundedSessions.get(j);
+				if (!session.getId().equals(session2.getId())
+						&& (session.getOverlapCluster() == null || session.getOverlapCluster() != session2.getOverlapCluster())) {
+					// process session only if it isn't an "overlapping" session
+					if(isCompound(sessionBounds.get(index), sessionBounds.get(j)))
+					{
+						// compound sport session found
+						sets.union(index, j);
+					}
 				}
-			}
+			};
+			bottomEdges.searchNear(maxLat[i], check);
+			topEdges.searchNear(minLat[i], check);
+			leftEdges.searchNear(maxLon[i], check);
+			rightEdges.searchNear(minLon[i], check);
 		}
+		recordPass(event, "compound", "search", start, n, 0);
+		event = beginPass();
+		start = metrics.start();
 		// (2) Normalize compound sport sessions (add all compound sessions to one "chain")
-		for (SportSession session : sessions) {
-			if( session.getCompoundSessions() != null ) {
-				List<SportSession> normalizedCompoundSessions = new ArrayList<>();
-				for (SportSession compoundSession : session.getCompoundSessions()) {
-					addCompoundSessions(normalizedCompoundSessions, compoundSession);
-				}
-				session.setCompoundSessions(normalizedCompoundSessions);
+		List<SessionCluster> clusters = buildClusters(boundedSessions, sets);
+		for (SessionCluster cluster : clusters) {
+			for (SportSession session : cluster.getSessions()) {
+				session.setCompoundCluster(cluster);
 			}
 		}
+		recordPass(event, "compound", "cluster", start, n, clusters.size());
 	}
 
-	public boolean isCompound(SportSession session, SportSession session2) {
-		if ((session2.getGpxSession() != null && session2.getGpxSession().getGpx().getMetadata() != null && session2.getGpxSession().getGpx().getMetadata().getBounds() != null)) {
-			BoundsType bounds = session.getGpxSession().getGpx().getMetadata().getBounds();
-			BoundsType bounds2 = session2.getGpxSession().getGpx().getMetadata().getBounds();
-			BigDecimal diffTop = bounds.getMaxlat().subtract(bounds2.getMinlat()).abs();
-			BigDecimal diffRight = bounds.getMaxlon().subtract(bounds2.getMinlon()).abs();
-			BigDecimal diffDown = bounds.getMinlat().subtract(bounds2.getMaxlat()).abs();
-			BigDecimal diffLeft = bounds.getMinlon().subtract(bounds2.getMaxlon()).abs();
-			if (((diffTop.compareTo(diff)  < 0) && (bounds.getMinlon().compareTo(bounds2.getMaxlon())<=0) && (bounds.getMaxlon().compareTo(bounds2.getMinlon())>=0)) 
-			||  ((diffRight.compareTo(diff)< 0) && (bounds.getMinlat().compareTo(bounds2.getMaxlat())<=0) && (bounds.getMaxlat().compareTo(bounds2.getMinlat())>=0)) 
-			||  ((diffDown.compareTo(diff) < 0) && (bounds.getMinlon().compareTo(bounds2.getMaxlon())<=0) && (bounds.getMaxlon().compareTo(bounds2.getMinlon())>=0)) 
-			||  ((diffLeft.compareTo(diff) < 0) && (bounds.getMinlat().compareTo(bounds2.getMaxlat())<=0) && (bounds.getMaxlat().compareTo(bounds2.getMinlat())>=0)) ) {
-				// compound sport session found
-				return true;
-			}
-		}
-		return false;
+	private static OverlapPassEvent beginPass() {
+		OverlapPassEvent event = new OverlapPassEvent();
+		event.begin();
+		return event;
 	}
 
-	private void addCompoundSessions(List<SportSession> normalizedCompoundSessions, SportSession compoundSession) {
-		if((normalizedCompoundSessions != null) && (compoundSession.getCompoundSessions() != null)) {
-			for (SportSession innerCompoundSession : compoundSession.getCompoundSessions()) {
-				if( (innerCompoundSession != null) && (!normalizedCompoundSessions.contains(innerCompoundSession)) ) {
-					normalizedCompoundSessions.add(innerCompoundSession);
-					addCompoundSessions(normalizedCompoundSessions, innerCompoundSession);
-				}
-			}
+	/**
+	 * Record a phase of the overlap or compound calculation: its time, and its flight recorder event.
+	 * @param kind "overlap" or "compound"
+	 * @param phase "index", "search" or "cluster"
+	 */
+	protected void recordPass(OverlapPassEvent event, String kind, String phase, long start, int sessions, int clusters) {
+		if (metrics.isEnabled()) {
+			metrics.record(kind + "." + phase, start);
 		}
+		if (event.shouldCommit()) {
+			event.kind = kind;
+			event.phase = phase;
+			event.sessions = sessions;
+			event.clusters = clusters;
+			event.commit();
+		}
+	}
+
+	public boolean isCompound(SportSession session, SportSession session2) {
+		GeoBounds bounds = getBounds(session);
+		GeoBounds bounds2 = getBounds(session2);
+		return bounds != null && bounds2 != null && isCompound(bounds, bounds2);
 	}
 
+	/**
+	 * @return true if an edge of the bounds is closer than diff to the opposite edge of bounds2, both bounds facing each other
+	 */
+	public boolean isCompound(GeoBounds bounds, GeoBounds bounds2) {
+		boolean lonRangesOverlap = bounds.getMinLon() <= bounds2.getMaxLon() && bounds.getMaxLon() >= bounds2.getMinLon();
+		boolean latRangesOverlap = bounds.getMinLat() <= bounds2.getMaxLat() && bounds.getMaxLat() >= bounds2.getMinLat();
+		return (Math.abs(bounds.getMaxLat() - bounds2.getMinLat()) < diff && lonRangesOverlap)
+				|| (Math.abs(bounds.getMaxLon() - bounds2.getMinLon()) < diff && latRangesOverlap)
+				|| (Math.abs(bounds.getMinLat() - bounds2.getMaxLat()) < diff && lonRangesOverlap)
+				|| (Math.abs(bounds.getMinLon() - bounds2.getMaxLon()) < diff && latRangesOverlap);
+	}
+
+	protected boolean matchesFilter(SportSession session, String filter, ExportContext context) throws FileNotFoundException, IOException {
+		return filter == null || "all".equalsIgnoreCase(filter) || session.contains(filter, parser.getPhotoIndex(context));
+	}
+
+	protected File[] listSportSessionFiles(ExportContext context) {
+		return normalizeExportPath(context.getRoot(), SPORT_SESSIONS_DIR).listFiles(file -> file.getName().endsWith(".json"));
+	}
 
 	protected File normalizeExportPath(File path, String subpath) {
 		// check if "Sport Session" sub-directory is provided ...
@@ -475,6 +827,14 @@ public class ExportConverter {
 	}
 
 
+	protected String buildFileName(SessionCluster cluster, String kind) {
+		return "runtastic_" + kind + "_cluster_" + cluster.getId() + ".gpx";
+	}
+
+	protected String buildClusterName(SessionCluster cluster, String kind) {
+		return Character.toUpperCase(kind.charAt(0)) + kind.substring(1) + " cluster " + cluster.getId();
+	}
+
 	protected String buildFileName(SportSession session, String format) {
 		SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss");
 		return new StringBuilder("runtastic_")
@@ -0,0 +1,333 @@
+package me.crespel.runtastic.converter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import me.crespel.runtastic.model.SportSession;
+import me.crespel.runtastic.util.Metrics;
+
+/**
+ * Sport session pipeline.
+ * This class processes sport session files in three stages, each with its own workers, connected by bounded queues:
+ * parse (read the session and its sub-data, I/O bound), map (prepare the output) and write (e.g. stream the output to its file).
+ * A full queue blocks the previous stage, so that only a bounded number of sessions is held in memory at once;
+ * mapped outputs wait in the write queue too, so they should stay small (e.g. the destination file, not the file content).
+ * Results are collected in input order; an exception while processing a session is recorded for this session and
+ * does not abort the other sessions.
+ * The time of each stage, and the total time of each processed session, are recorded in the metrics.
+ * @param <M> mapped output type
+ */
+public class SportSessionPipeline<M> {
+
+	public static final int DEFAULT_PARSE_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+	public static final int DEFAULT_MAP_THREADS = Runtime.getRuntime().availableProcessors();
+	public static final int DEFAULT_WRITE_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+	public static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+	/**
+	 * Parse stage: parse a sport session file.
+	 */
+	public interface Parser {
+		/**
+		 * @return sport session, or null to skip this file (e.g. not matching a filter)
+		 */
+		SportSession parse(File file) throws Exception;
+	}
+
+	/**
+	 * Map stage: map a parsed sport session.
+	 */
+	public interface Mapper<M> {
+		/**
+		 * @return mapped output (may be null)
+		 */
+		M map(SportSession session) throws Exception;
+	}
+
+	/**
+	 * Write stage: write a mapped sport session.
+	 */
+	public interface Writer<M> {
+		void write(SportSession session, M mapped) throws Exception;
+	}
+
+	private int parseThreads = DEFAULT_PARSE_THREADS;
+	private int mapThreads = DEFAULT_MAP_THREADS;
+	private int writeThreads = DEFAULT_WRITE_THREADS;
+	private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+	private Metrics metrics = Metrics.NONE;
+
+	public int getParseThreads() {
+		return parseThreads;
+	}
+
+	public void setParseThreads(int parseThreads) {
+		this.parseThreads = positive(parseThreads, "parse threads");
+	}
+
+	public int getMapThreads() {
+		return mapThreads;
+	}
+
+	public void setMapThreads(int mapThreads) {
+		this.mapThreads = positive(mapThreads, "map threads");
+	}
+
+	public int getWriteThreads() {
+		return writeThreads;
+	}
+
+	public void setWriteThreads(int writeThreads) {
+		this.writeThreads = positive(writeThreads, "write threads");
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * Set the capacity of the queues between stages, i.e. the number of sessions waiting for the next stage.
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = positive(queueCapacity, "queue capacity");
+	}
+
+	public Metrics getMetrics() {
+		return metrics;
+	}
+
+	public void setMetrics(Metrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Process sport session files.
+	 * @param files sport session files
+	 * @param parser parse stage
+	 * @param mapper map stage, or null to skip it (mapped output is then null)
+	 * @param writer write stage, or null to skip it
+	 * @return processed sessions (in input order) and errors
+	 * @throws InterruptedException if interrupted while waiting for the workers
+	 */
+	public Result run(File[] files, Parser parser, Mapper<M> mapper, Writer<M> writer) throws InterruptedException {
+		BlockingQueue<Item<M>> mapQueue = new ArrayBlockingQueue<>(queueCapacity);
+		BlockingQueue<Item<M>> writeQueue = new ArrayBlockingQueue<>(queueCapacity);
+		Queue<Item<M>> done = new ConcurrentLinkedQueue<>();
+		Map<File, Exception> errors = Collections.synchronizedMap(new LinkedHashMap<>());
+		AtomicInteger next = new AtomicInteger();
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		ExecutorService executor = Executors.newFixedThreadPool(parseThreads + mapThreads + writeThreads, new WorkerThreadFactory());
+		try {
+			List<Future<?>> parseWorkers = new ArrayList<>();
+			for (int t = 0; t < parseThreads; t++) {
+				parseWorkers.add(submit(executor, failure, () -> {
+					int i;
+					while ((i = next.getAndIncrement()) < files.length) {
+						Item<M> item = new Item<>(i, files[i]);
+						long start = metrics.start();
+						try {
+							item.session = parser.parse(files[i]);
+							item.nanos += metrics.record("pipeline.parse", start);
+						} catch (Exception e) {
+							errors.put(files[i], e);
+							continue;
+						}
+						if (item.session != null) {
+							mapQueue.put(item);
+						}
+					}
+					return null;
+				}));
+			}
+			List<Future<?>> mapWorkers = new ArrayList<>();
+			for (int t = 0; t < mapThreads; t++) {
+				mapWorkers.add(submit(executor, failure, () -> {
+					Item<M> item;
+					while ((item = mapQueue.take()).session != null) {
+						long start = metrics.start();
+						try {
+							item.mapped = mapper != null ? mapper.map(item.session) : null;
+							item.nanos += metrics.record("pipeline.map", start);
+						} catch (Exception e) {
+							errors.put(item.file, e);
+							continue;
+						}
+						writeQueue.put(item);
+					}
+					return null;
+				}));
+			}
+			List<Future<?>> writeWorkers = new ArrayList<>();
+			for (int t = 0; t < writeThreads; t++) {
+				writeWorkers.add(submit(executor, failure, () -> {
+					Item<M> item;
+					while ((item = writeQueue.take()).session != null) {
+						long start = metrics.start();
+						try {
+							if (writer != null) {
+								writer.write(item.session, item.mapped);
+							}
+							item.nanos += metrics.record("pipeline.write", start);
+							// processing time of the session, without its waits in the queues
+							metrics.recordNanos(Metrics.SESSIONS, item.nanos);
+							item.mapped = null;
+							done.add(item);
+						} catch (Exception e) {
+							errors.put(item.file, e);
+						}
+					}
+					return null;
+				}));
+			}
+
+			// stop each stage once the previous one is complete
+			await(parseWorkers, failure);
+			for (int t = 0; t < mapThreads; t++) {
+				mapQueue.put(new Item<>(-1, null));
+			}
+			await(mapWorkers, failure);
+			for (int t = 0; t < writeThreads; t++) {
+				writeQueue.put(new Item<>(-1, null));
+			}
+			await(writeWorkers, failure);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		List<Item<M>> items = new ArrayList<>(done);
+		items.sort(Comparator.comparingInt(item -> item.index));
+		List<SportSession> sessions = new ArrayList<>(items.size());
+		for (Item<M> item : items) {
+			sessions.add(item.session);
+		}
+		return new Result(sessions, new LinkedHashMap<>(errors));
+	}
+
+	/**
+	 * Submit a worker; if it fails (not with an exception of a session, these are recorded), all workers are stopped.
+	 */
+	private Future<?> submit(ExecutorService executor, AtomicReference<Throwable> failure, Callable<?> worker) {
+		return executor.submit(() -> {
+			try {
+				return worker.call();
+			} catch (Throwable t) {
+				if (failure.compareAndSet(null, t)) {
+					executor.shutdownNow();
+				}
+				throw t;
+			}
+		});
+	}
+
+	private void await(List<Future<?>> workers, AtomicReference<Throwable> failure) throws InterruptedException {
+		for (Future<?> worker : workers) {
+			while (true) {
+				try {
+					worker.get(1, TimeUnit.SECONDS);
+					break;
+				} catch (ExecutionException e) {
+					throw failure(failure.get() != null ? failure.get() : e.getCause());
+				} catch (TimeoutException e) {
+					// workers not started yet when all were stopped are never completed
+					if (failure.get() != null) {
+						throw failure(failure.get());
+					}
+				}
+			}
+		}
+	}
+
+	private static RuntimeException failure(Throwable cause) {
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		} else if (cause instanceof RuntimeException) {
+			return (RuntimeException) cause;
+		}
+		return new RuntimeException(cause);
+	}
+
+	private static int positive(int value, String name) {
+		if (value < 1) {
+			throw new IllegalArgumentException("Invalid " + name + ": " + value);
+		}
+		return value;
+	}
+
+	/**
+	 * Pipeline result.
+	 */
+	public static class Result {
+
+		private final List<SportSession> sessions;
+		private final Map<File, Exception> errors;
+
+		public Result(List<SportSession> sessions, Map<File, Exception> errors) {
+			this.sessions = sessions;
+			this.errors = errors;
+		}
+
+		/**
+		 * @return sessions processed by all stages, in input order
+		 */
+		public List<SportSession> getSessions() {
+			return sessions;
+		}
+
+		/**
+		 * @return exception of each session that failed, by sport session file
+		 */
+		public Map<File, Exception> getErrors() {
+			return errors;
+		}
+
+	}
+
+	private static class Item<M> {
+
+		private final int index;
+		private final File file;
+		private SportSession session;
+		private M mapped;
+		private long nanos;
+
+		private Item(int index, File file) {
+			this.index = index;
+			this.file = file;
+		}
+
+	}
+
+	private static class WorkerThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "sport-session-pipeline-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+
+	}
+
+}
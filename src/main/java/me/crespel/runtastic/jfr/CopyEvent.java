@@ -0,0 +1,19 @@
+package me.crespel.runtastic.jfr;
+
+/**
+ * Copy (or hard link) of a file of a sport session to its export folder.
+ */
+public class CopyEvent extends FlightEvent {
+
+	public String sessionId;
+	public String source;
+	public String target;
+	/** hard link created instead of a copy */
+	public boolean link;
+	public long bytes;
+
+	public CopyEvent() {
+		super(RECORDERS.copy());
+	}
+
+}
@@ -0,0 +1,42 @@
+package me.crespel.runtastic.jfr;
+
+import me.crespel.runtastic.model.SportSession;
+
+/**
+ * Helpers for the JDK Flight Recorder events of the converter.
+ * Events are only committed when Flight Recorder is available and the events are enabled in a recording, e.g. with
+ * {@code java -XX:StartFlightRecording=filename=run.jfr -jar runtastic-export-converter-jar-with-dependencies.jar ...},
+ * so their fields are set after {@code shouldCommit()} to avoid any work without a recording.
+ */
+public final class Events {
+
+	private Events() {
+	}
+
+	/**
+	 * @param fileName name of a sport session file or sub-file (or of its export folder), with or without extension
+	 * @return id of the sport session: sub-files are named after it, prefixed with the session date since 2021
+	 */
+	public static String sessionId(String fileName) {
+		if (fileName == null) {
+			return null;
+		}
+		int dot = fileName.lastIndexOf('.');
+		String name = dot > 0 ? fileName.substring(0, dot) : fileName;
+		return name.substring(name.lastIndexOf('_') + 1);
+	}
+
+	/**
+	 * @return track points of a sport session (GPS data, or GPX track if none), 0 if not loaded
+	 */
+	public static int points(SportSession session) {
+		if (session.getGpsSession() != null) {
+			return session.getGpsSession().size();
+		}
+		if (session.getGpxSession() != null && session.getGpxSession().getTrack() != null) {
+			return session.getGpxSession().getTrack().size();
+		}
+		return 0;
+	}
+
+}
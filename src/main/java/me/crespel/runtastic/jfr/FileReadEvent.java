@@ -0,0 +1,20 @@
+package me.crespel.runtastic.jfr;
+
+/**
+ * Read of a sub-file of a sport session (GPS, GPX, elevation, heart rate, album or image data), or of the user file.
+ */
+public class FileReadEvent extends FlightEvent {
+
+	/** id of the sport session, or of the album, image or user for these files */
+	public String sessionId;
+	/** gps, gpx, elevation, heartRate, album, image or user */
+	public String fileType;
+	public String file;
+	public int points;
+	public long bytes;
+
+	public FileReadEvent() {
+		super(RECORDERS.fileRead());
+	}
+
+}
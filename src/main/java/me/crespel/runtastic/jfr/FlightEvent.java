@@ -0,0 +1,129 @@
+package me.crespel.runtastic.jfr;
+
+/**
+ * Flight recorder event of the converter, recorded as a JDK Flight Recorder event when the JRE has Flight Recorder,
+ * and a no-op otherwise: the jdk.jfr classes are only loaded after checking once that they are present (see {@link JfrEvents}).
+ * Usage is the same as for a jdk.jfr event: {@code begin()}, then set the fields and {@code commit()} if {@code shouldCommit()}.
+ */
+public abstract class FlightEvent {
+
+	static final Recorders RECORDERS = loadRecorders();
+
+	private final Recorder recorder;
+
+	protected FlightEvent(Recorder recorder) {
+		this.recorder = recorder;
+	}
+
+	/**
+	 * @return true if Flight Recorder is available in this JRE
+	 */
+	public static boolean isAvailable() {
+		return RECORDERS != Recorders.NONE;
+	}
+
+	public void begin() {
+		recorder.begin();
+	}
+
+	/**
+	 * @return true if the event is enabled in a recording
+	 */
+	public boolean isEnabled() {
+		return recorder.isEnabled();
+	}
+
+	/**
+	 * @return true if the event is enabled and within the thresholds of the recording, i.e. its fields should be set and committed
+	 */
+	public boolean shouldCommit() {
+		return recorder.shouldCommit();
+	}
+
+	public void commit() {
+		recorder.commit(this);
+	}
+
+	private static Recorders loadRecorders() {
+		try {
+			Class.forName("jdk.jfr.Event", false, FlightEvent.class.getClassLoader());
+			return (Recorders) Class.forName(FlightEvent.class.getPackage().getName() + ".JfrEvents").newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			// no Flight Recorder (e.g. Java 8 before 8u262)
+			return Recorders.NONE;
+		}
+	}
+
+	/**
+	 * Recorder of an event.
+	 */
+	interface Recorder {
+
+		Recorder NONE = new Recorder() {
+			@Override
+			public void begin() {
+			}
+
+			@Override
+			public boolean isEnabled() {
+				return false;
+			}
+
+			@Override
+			public boolean shouldCommit() {
+				return false;
+			}
+
+			@Override
+			public void commit(FlightEvent event) {
+			}
+		};
+
+		void begin();
+
+		boolean isEnabled();
+
+		boolean shouldCommit();
+
+		/**
+		 * Commit the event, with the fields of the converter event.
+		 */
+		void commit(FlightEvent event);
+
+	}
+
+	/**
+	 * Factory of the recorders of each event.
+	 */
+	interface Recorders {
+
+		Recorders NONE = new Recorders() {
+		};
+
+		default Recorder sessionParse() {
+			return Recorder.NONE;
+		}
+
+		default Recorder fileRead() {
+			return Recorder.NONE;
+		}
+
+		default Recorder map() {
+			return Recorder.NONE;
+		}
+
+		default Recorder marshal() {
+			return Recorder.NONE;
+		}
+
+		default Recorder copy() {
+			return Recorder.NONE;
+		}
+
+		default Recorder overlapPass() {
+			return Recorder.NONE;
+		}
+
+	}
+
+}
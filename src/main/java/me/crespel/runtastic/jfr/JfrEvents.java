@@ -0,0 +1,243 @@
+package me.crespel.runtastic.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder events of the converter events.
+ * This is the only class referencing jdk.jfr: it is loaded by {@link FlightEvent} only if Flight Recorder is available.
+ */
+class JfrEvents implements FlightEvent.Recorders {
+
+	static final String CATEGORY = "Runtastic Export Converter";
+
+	@Override
+	public FlightEvent.Recorder sessionParse() {
+		return new SessionParse();
+	}
+
+	@Override
+	public FlightEvent.Recorder fileRead() {
+		return new FileRead();
+	}
+
+	@Override
+	public FlightEvent.Recorder map() {
+		return new Map();
+	}
+
+	@Override
+	public FlightEvent.Recorder marshal() {
+		return new Marshal();
+	}
+
+	@Override
+	public FlightEvent.Recorder copy() {
+		return new Copy();
+	}
+
+	@Override
+	public FlightEvent.Recorder overlapPass() {
+		return new OverlapPass();
+	}
+
+	@Name("runtastic.SessionParse")
+	@Label("Session Parse")
+	@Description("Parse of a sport session JSON file")
+	@Category({ CATEGORY, "Parser" })
+	static class SessionParse extends Event implements FlightEvent.Recorder {
+
+		@Label("Session Id")
+		String sessionId;
+
+		@Label("File")
+		String file;
+
+		@Label("Bytes")
+		@DataAmount
+		long bytes;
+
+		@Override
+		public void commit(FlightEvent event) {
+			SessionParseEvent e = (SessionParseEvent) event;
+			sessionId = e.sessionId;
+			file = e.file;
+			bytes = e.bytes;
+			commit();
+		}
+
+	}
+
+	@Name("runtastic.FileRead")
+	@Label("Sub-File Read")
+	@Description("Read of a sport session sub-file")
+	@Category({ CATEGORY, "Parser" })
+	static class FileRead extends Event implements FlightEvent.Recorder {
+
+		@Label("Session Id")
+		@Description("Id of the sport session, or of the album, image or user for these files")
+		String sessionId;
+
+		@Label("File Type")
+		@Description("gps, gpx, elevation, heartRate, album, image or user")
+		String fileType;
+
+		@Label("File")
+		String file;
+
+		@Label("Points")
+		int points;
+
+		@Label("Bytes")
+		@DataAmount
+		long bytes;
+
+		@Override
+		public void commit(FlightEvent event) {
+			FileReadEvent e = (FileReadEvent) event;
+			sessionId = e.sessionId;
+			fileType = e.fileType;
+			file = e.file;
+			points = e.points;
+			bytes = e.bytes;
+			commit();
+		}
+
+	}
+
+	@Name("runtastic.Map")
+	@Label("Session Map")
+	@Description("Mapping of a sport session to a GPX or TCX document")
+	@Category({ CATEGORY, "Mapper" })
+	static class Map extends Event implements FlightEvent.Recorder {
+
+		@Label("Session Id")
+		String sessionId;
+
+		@Label("Format")
+		String format;
+
+		@Label("Points")
+		int points;
+
+		@Override
+		public void commit(FlightEvent event) {
+			MapEvent e = (MapEvent) event;
+			sessionId = e.sessionId;
+			format = e.format;
+			points = e.points;
+			commit();
+		}
+
+	}
+
+	@Name("runtastic.Marshal")
+	@Label("Session Marshal")
+	@Description("Marshalling of a GPX or TCX document, or streaming write of a sport session")
+	@Category({ CATEGORY, "Mapper" })
+	static class Marshal extends Event implements FlightEvent.Recorder {
+
+		@Label("Session Id")
+		String sessionId;
+
+		@Label("Format")
+		String format;
+
+		@Label("Streaming")
+		@Description("Written with the streaming writer, without a mapped document")
+		boolean streaming;
+
+		@Label("Points")
+		int points;
+
+		@Label("Bytes")
+		@DataAmount
+		long bytes;
+
+		@Override
+		public void commit(FlightEvent event) {
+			MarshalEvent e = (MarshalEvent) event;
+			sessionId = e.sessionId;
+			format = e.format;
+			streaming = e.streaming;
+			points = e.points;
+			bytes = e.bytes;
+			commit();
+		}
+
+	}
+
+	@Name("runtastic.Copy")
+	@Label("File Copy")
+	@Description("Copy or hard link of a file to an export folder")
+	@Category({ CATEGORY, "Export" })
+	static class Copy extends Event implements FlightEvent.Recorder {
+
+		@Label("Session Id")
+		String sessionId;
+
+		@Label("Source")
+		String source;
+
+		@Label("Target")
+		String target;
+
+		@Label("Link")
+		@Description("Hard link created instead of a copy")
+		boolean link;
+
+		@Label("Bytes")
+		@DataAmount
+		long bytes;
+
+		@Override
+		public void commit(FlightEvent event) {
+			CopyEvent e = (CopyEvent) event;
+			sessionId = e.sessionId;
+			source = e.source;
+			target = e.target;
+			link = e.link;
+			bytes = e.bytes;
+			commit();
+		}
+
+	}
+
+	@Name("runtastic.OverlapPass")
+	@Label("Overlap Pass")
+	@Description("Phase of the overlap or compound calculation")
+	@Category({ CATEGORY, "Analysis" })
+	static class OverlapPass extends Event implements FlightEvent.Recorder {
+
+		@Label("Kind")
+		@Description("overlap or compound")
+		String kind;
+
+		@Label("Phase")
+		@Description("index, search or cluster")
+		String phase;
+
+		@Label("Sessions")
+		@Description("Sessions with bounds")
+		int sessions;
+
+		@Label("Clusters")
+		int clusters;
+
+		@Override
+		public void commit(FlightEvent event) {
+			OverlapPassEvent e = (OverlapPassEvent) event;
+			kind = e.kind;
+			phase = e.phase;
+			sessions = e.sessions;
+			clusters = e.clusters;
+			commit();
+		}
+
+	}
+
+}
@@ -0,0 +1,16 @@
+package me.crespel.runtastic.jfr;
+
+/**
+ * Mapping of a sport session to a GPX or TCX document (JAXB objects).
+ */
+public class MapEvent extends FlightEvent {
+
+	public String sessionId;
+	public String format;
+	public int points;
+
+	public MapEvent() {
+		super(RECORDERS.map());
+	}
+
+}
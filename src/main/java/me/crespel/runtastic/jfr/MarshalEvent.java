@@ -0,0 +1,19 @@
+package me.crespel.runtastic.jfr;
+
+/**
+ * Marshalling of a GPX or TCX document, or write of a sport session with the streaming writer (mapped and marshalled at once).
+ */
+public class MarshalEvent extends FlightEvent {
+
+	public String sessionId;
+	public String format;
+	/** written with the streaming writer, without a mapped document */
+	public boolean streaming;
+	public int points;
+	public long bytes;
+
+	public MarshalEvent() {
+		super(RECORDERS.marshal());
+	}
+
+}
@@ -0,0 +1,20 @@
+package me.crespel.runtastic.jfr;
+
+/**
+ * Phase of the overlap or compound calculation: index of the session bounds, search of the pairs, clusters.
+ */
+public class OverlapPassEvent extends FlightEvent {
+
+	/** overlap or compound */
+	public String kind;
+	/** index, search or cluster */
+	public String phase;
+	/** sessions with bounds */
+	public int sessions;
+	public int clusters;
+
+	public OverlapPassEvent() {
+		super(RECORDERS.overlapPass());
+	}
+
+}
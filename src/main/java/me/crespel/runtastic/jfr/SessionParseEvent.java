@@ -0,0 +1,16 @@
+package me.crespel.runtastic.jfr;
+
+/**
+ * Parse of a sport session file (its sub-files are read separately, see {@link FileReadEvent}).
+ */
+public class SessionParseEvent extends FlightEvent {
+
+	public String sessionId;
+	public String file;
+	public long bytes;
+
+	public SessionParseEvent() {
+		super(RECORDERS.sessionParse());
+	}
+
+}
@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.OutputStream;
 
 import me.crespel.runtastic.model.SportSession;
+import me.crespel.runtastic.util.Metrics;
 
 /**
  * Delegating sport session mapper.
@@ -14,6 +15,32 @@ public class DelegatingSportSessionMapper implements SportSessionMapper<Object>
 
 	private final SportSessionMapper<?>[] mappers = { new GpxSportSessionMapper(), new TcxSportSessionMapper() };
 
+	/**
+	 * Write files and streams without indentation, for mappers supporting it.
+	 */
+	public void setCompact(boolean compact) {
+		for (SportSessionMapper<?> mapper : mappers) {
+			if (mapper instanceof GpxSportSessionMapper) {
+				((GpxSportSessionMapper) mapper).setCompact(compact);
+			} else if (mapper instanceof TcxSportSessionMapper) {
+				((TcxSportSessionMapper) mapper).setCompact(compact);
+			}
+		}
+	}
+
+	/**
+	 * Set the metrics of the mappers (time to map and marshal sessions).
+	 */
+	public void setMetrics(Metrics metrics) {
+		for (SportSessionMapper<?> mapper : mappers) {
+			if (mapper instanceof GpxSportSessionMapper) {
+				((GpxSportSessionMapper) mapper).setMetrics(metrics);
+			} else if (mapper instanceof TcxSportSessionMapper) {
+				((TcxSportSessionMapper) mapper).setMetrics(metrics);
+			}
+		}
+	}
+
 	@Override
 	public boolean supports(String format) {
 		for (SportSessionMapper<?> mapper : mappers) {
@@ -1,19 +1,24 @@
 package me.crespel.runtastic.mapper;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.List;
 
-import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeFactory;
 import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
 
 import com.topografix.gpx._1._1.BoundsType;
 import com.topografix.gpx._1._1.EmailType;
@@ -26,13 +31,27 @@ import com.topografix.gpx._1._1.TrkType;
 import com.topografix.gpx._1._1.TrksegType;
 import com.topografix.gpx._1._1.WptType;
 
-import me.crespel.runtastic.model.GpsData;
+import org.apache.commons.io.output.CountingOutputStream;
+
+import me.crespel.runtastic.jfr.Events;
+import me.crespel.runtastic.jfr.MapEvent;
+import me.crespel.runtastic.jfr.MarshalEvent;
+import me.crespel.runtastic.model.ElevationSession;
+import me.crespel.runtastic.model.GeoBounds;
+import me.crespel.runtastic.model.GpsTrack;
 import me.crespel.runtastic.model.GpxSession;
 import me.crespel.runtastic.model.ImagesMetaData;
+import me.crespel.runtastic.model.SessionCluster;
 import me.crespel.runtastic.model.SportSession;
+import me.crespel.runtastic.util.JaxbContextPool;
+import me.crespel.runtastic.util.Metrics;
+import me.crespel.runtastic.util.TimestampCodec;
+import me.crespel.runtastic.util.XmlWriter;
 
 /**
  * GPX sport session mapper.
+ * Sessions mapped to a file or stream are written with a streaming writer by default (no GpxType object graph),
+ * producing the same document as the JAXB marshaller.
  * 
  * @author Fabien CRESPEL (fabien@crespel.net)
  * @author Christian IMFELD (imfeldc@gmail.com)
@@ -40,7 +59,14 @@ import me.crespel.runtastic.model.SportSession;
 public class GpxSportSessionMapper implements SportSessionMapper<GpxType> {
 
 	protected final DatatypeFactory dtf;
+	public static final String GPX_NAMESPACE = "http://www.topografix.com/GPX/1/1";
+
 	protected final ObjectFactory factory = new ObjectFactory();
+	protected boolean streaming = true;
+	protected boolean compact = false;
+	protected Metrics metrics = Metrics.NONE;
+	// timestamp codecs of the streaming writer, per thread as mappers are shared
+	protected final ThreadLocal<TimestampCodec> codecs = ThreadLocal.withInitial(TimestampCodec::new);
 
 	public GpxSportSessionMapper() {
 		try {
@@ -50,6 +76,39 @@ public class GpxSportSessionMapper implements SportSessionMapper<GpxType> {
 		}
 	}
 
+	public boolean isStreaming() {
+		return streaming;
+	}
+
+	/**
+	 * Write sessions mapped to a file or stream with the streaming writer (default), or marshal them with JAXB.
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+
+	public boolean isCompact() {
+		return compact;
+	}
+
+	/**
+	 * Write sessions without indentation (streaming writer only).
+	 */
+	public void setCompact(boolean compact) {
+		this.compact = compact;
+	}
+
+	public Metrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Set the metrics recording the time to map and marshal sessions (or to write them with the streaming writer).
+	 */
+	public void setMetrics(Metrics metrics) {
+		this.metrics = metrics;
+	}
+
 	@Override
 	public boolean supports(String format) {
 		return format != null && format.toLowerCase().endsWith("gpx");
@@ -66,11 +125,11 @@ public class GpxSportSessionMapper implements SportSessionMapper<GpxType> {
 
 		mapImages(session, gpx);
 
-		mapGPSdata(session, gpx);
+		TrkType gpsTrk = mapGPSdata(session, gpx);
 
-		mapGPXdata(session, gpx);
+		TrkType gpxTrk = mapGPXdata(session, gpx);
 
-		mapBoundsdata(session, gpx);
+		mapBoundsdata(session, gpx, gpsTrk, gpxTrk);
 
 		mapOverlapSessions(session, gpx);
 
@@ -91,10 +150,8 @@ public class GpxSportSessionMapper implements SportSessionMapper<GpxType> {
 		meta.setDesc(session.getNotes() + " (ID:" + session.getId()+")");
 		if (session.getUser() != null) {
 			PersonType author = factory.createPersonType();
-			EmailType email = factory.createEmailType();
 			author.setName(session.getUser().getFirstName() + " " + session.getUser().getLastName());
-			email.setId(session.getUser().getEmail());
-			author.setEmail(email);
+			author.setEmail(mapEmail(session.getUser().getEmail()));
 			meta.setAuthor(author);
 		}
 		meta.setKeywords("runtastic"); // add comma separated keywords
@@ -117,41 +174,71 @@ public class GpxSportSessionMapper implements SportSessionMapper<GpxType> {
 		}
 	}
 
-	private void mapGPSdata(SportSession session, GpxType gpx) {
+	private TrkType mapGPSdata(SportSession session, GpxType gpx) {
 		if (session.getGpsSession() != null) {
 			TrkType trk = factory.createTrkType();
 			trk.setName(session.getNotes());
 			trk.setType(mapSport(session.getSportTypeId()));
 			// handling JSON GPS data
 			TrksegType trkseg = factory.createTrksegType();
-			for (GpsData gps : session.getGpsSession().getGpsData()) {
+			for (GpsTrack.Point gps : getGpsTrack(session)) {
 				WptType wpt = factory.createWptType();
-				wpt.setLat(gps.getLatitude());
-				wpt.setLon(gps.getLongitude());
-				wpt.setEle(gps.getAltitude());
-				wpt.setTime(mapDate(gps.getTimestamp()));
+				wpt.setLat(mapDecimal(gps.getLatitude()));
+				wpt.setLon(mapDecimal(gps.getLongitude()));
+				wpt.setEle(mapDecimal(gps.getAltitude()));
+				wpt.setTime(mapDate(new Date(gps.getTimestamp())));
 				trkseg.getTrkpt().add(wpt);
 			}
 			trk.getTrkseg().add(trkseg);
 			gpx.getTrk().add(trk);
+			return trk;
 		}
+		return null;
 	}
 
-	private void mapGPXdata(SportSession session, GpxType gpx) {
+	private TrkType mapGPXdata(SportSession session, GpxType gpx) {
 		if (session.getGpxSession() != null) {
 			TrkType trk = factory.createTrkType();
 			trk.setName(session.getNotes() + " (" + session.getId() + ")");
 			trk.setDesc(session.getNotes() + " (" + session.getId() + ")");
 			trk.setType(mapSport(session.getSportTypeId()));
+			gpx.getTrk().add(trk);
+			GpsTrack track = session.getGpxSession().getTrack();
+			if (track != null) {
+				// handling streamed GPX GPS data
+				int[] segments = session.getGpxSession().getSegments();
+				for (int s = 0; s < segments.length; s++) {
+					int end = s + 1 < segments.length ? segments[s + 1] : track.size();
+					TrksegType trkseg = factory.createTrksegType();
+					for (int i = segments[s]; i < end; i++) {
+						WptType wpt = factory.createWptType();
+						wpt.setLat(mapDecimal(track.getLatitude(i)));
+						wpt.setLon(mapDecimal(track.getLongitude(i)));
+						wpt.setEle(mapDecimal(track.getAltitude(i)));
+						wpt.setTime(track.getTimestamp(i) != 0 ? mapDate(new Date(track.getTimestamp(i))) : null);
+						trkseg.getTrkpt().add(wpt);
+					}
+					trk.getTrkseg().add(trkseg);
+				}
+				return trk;
+			}
 			// handling GPX GPS data
 			trk.getTrkseg().addAll(session.getGpxSession().getGpx().getTrk().get(0).getTrkseg());
-			gpx.getTrk().add(trk);
 		}
+		return null;
 	}
 
-	private void mapBoundsdata(SportSession session, GpxType gpx) {
+	private void mapBoundsdata(SportSession session, GpxType gpx, TrkType gpsTrk, TrkType gpxTrk) {
 		// Calculate bounds and set them in meta data
-		gpx.getMetadata().setBounds(calculateBounds(gpx,false));
+		// (bounds of the JSON GPS data and streamed GPX data are taken from their track, without iterating its waypoints again)
+		GeoBounds bounds = calculateBounds(gpx, false, gpsTrk, gpxTrk);
+		if (gpsTrk != null) {
+			bounds = bounds.union(GeoBounds.of(session.getGpsSession().asTrack()));
+		}
+		if (gpxTrk != null) {
+			bounds = bounds.union(GeoBounds.of(session.getGpxSession().getTrack()));
+		}
+		gpx.getMetadata().setBounds(bounds.toBoundsType());
 
 		// Add bounds as waypoints
 		gpx.getWpt().addAll(getBoundsAsWpt(gpx.getMetadata().getBounds(),"Session bounds"));
@@ -161,11 +248,11 @@ public class GpxSportSessionMapper implements SportSessionMapper<GpxType> {
 
 		if( session.getInnerBound() != null ) {
 			// Add "inner bounds" as "rte" and "rtept"
-			gpx.getRte().add(getBoundsAsRte(session.getInnerBound(),"Inner bounds of all overlapping sessions"));
+			gpx.getRte().add(getBoundsAsRte(session.getInnerBound().toBoundsType(),"Inner bounds of all overlapping sessions"));
 		}
 		if( session.getOuterBound() != null ) {
 			// Add "outer bounds" as "rte" and "rtept"
-			gpx.getRte().add(getBoundsAsRte(session.getOuterBound(),"Outer bounds of all overlapping sessions"));
+			gpx.getRte().add(getBoundsAsRte(session.getOuterBound().toBoundsType(),"Outer bounds of all overlapping sessions"));
 		}
 	}
 
@@ -230,34 +317,488 @@ public class GpxSportSessionMapper implements SportSessionMapper<GpxType> {
 	}
 
 
+	/**
+	 * {@inheritDoc}
+	 * @return GPX document, or null if written with the streaming writer
+	 */
 	@Override
 	public GpxType mapSportSession(SportSession session, String format, File dest) {
-		GpxType gpx = mapSportSession(session, format);
+		MarshalEvent marshalEvent = new MarshalEvent();
+		if (streaming) {
+			marshalEvent.begin();
+			long start = metrics.start();
+			try (OutputStream out = new BufferedOutputStream(new FileOutputStream(dest))) {
+				writeSportSession(session, out);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			metrics.record("write.gpx", start);
+			commit(marshalEvent, session, true, dest.length());
+			return null;
+		}
+		GpxType gpx = map(session, format);
+		marshalEvent.begin();
+		long start = metrics.start();
 		try {
-			JAXBContext ctx = JAXBContext.newInstance(GpxType.class);
-			Marshaller m = ctx.createMarshaller();
-			m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-			m.marshal(factory.createGpx(gpx), dest);
+			JaxbContextPool.GPX.getMarshaller().marshal(factory.createGpx(gpx), dest);
 		} catch (JAXBException e) {
 			throw new RuntimeException(e);
 		}
+		metrics.record("marshal.gpx", start);
+		commit(marshalEvent, session, false, dest.length());
 		return gpx;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * @return GPX document, or null if written with the streaming writer
+	 */
 	@Override
 	public GpxType mapSportSession(SportSession session, String format, OutputStream dest) {
-		GpxType gpx = mapSportSession(session, format);
+		MarshalEvent marshalEvent = new MarshalEvent();
+		// bytes written are only counted for a recording
+		CountingOutputStream out = marshalEvent.isEnabled() ? new CountingOutputStream(dest) : null;
+		if (streaming) {
+			marshalEvent.begin();
+			long start = metrics.start();
+			writeSportSession(session, out != null ? out : dest);
+			metrics.record("write.gpx", start);
+			commit(marshalEvent, session, true, out != null ? out.getByteCount() : 0);
+			return null;
+		}
+		GpxType gpx = map(session, format);
+		marshalEvent.begin();
+		long start = metrics.start();
 		try {
-			JAXBContext ctx = JAXBContext.newInstance(GpxType.class);
-			Marshaller m = ctx.createMarshaller();
-			m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-			m.marshal(factory.createGpx(gpx), dest);
+			JaxbContextPool.GPX.getMarshaller().marshal(factory.createGpx(gpx), out != null ? out : dest);
 		} catch (JAXBException e) {
 			throw new RuntimeException(e);
 		}
+		metrics.record("marshal.gpx", start);
+		commit(marshalEvent, session, false, out != null ? out.getByteCount() : 0);
+		return gpx;
+	}
+
+	/**
+	 * Map a sport session to a GPX document, recording the time to map it and its flight recorder event.
+	 */
+	protected GpxType map(SportSession session, String format) {
+		MapEvent event = new MapEvent();
+		event.begin();
+		long start = metrics.start();
+		GpxType gpx = mapSportSession(session, format);
+		metrics.record("map.gpx", start);
+		if (event.shouldCommit()) {
+			event.sessionId = session.getId();
+			event.format = "gpx";
+			event.points = Events.points(session);
+			event.commit();
+		}
 		return gpx;
 	}
 
+	private void commit(MarshalEvent event, SportSession session, boolean streaming, long bytes) {
+		if (event.shouldCommit()) {
+			event.sessionId = session.getId();
+			event.format = "gpx";
+			event.streaming = streaming;
+			event.points = Events.points(session);
+			event.bytes = bytes;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Write a sport session as GPX straight from the session data, in the same order as {@link #mapSportSession(SportSession, String)}.
+	 * As after mapping, the GPX session of the sport session then holds its bounds and first track (converted only on demand).
+	 */
+	public void writeSportSession(SportSession session, OutputStream dest) {
+		// tracks of this session: JSON GPS data, and GPX data (streamed track, or track segments unmarshalled with JAXB)
+		GpsTrack gpsTrack = session.getGpsSession() != null ? getGpsTrack(session) : null;
+		GpxSession gpxSession = session.getGpxSession();
+		GpsTrack gpxTrack = gpxSession != null ? gpxSession.getTrack() : null;
+		int[] gpxSegments = gpxSession != null ? gpxSession.getSegments() : null;
+		List<TrksegType> gpxTrksegs = gpxSession != null && gpxTrack == null ? gpxSession.getGpx().getTrk().get(0).getTrkseg() : null;
+		GeoBounds bounds = calculateBounds(gpsTrack, gpxTrack, gpxTrksegs);
+
+		try (XmlWriter w = new XmlWriter(dest, !compact)) {
+			w.startDocument("gpx", GPX_NAMESPACE)
+				.attribute("version", "1.1")
+				.attribute("creator", "RuntasticExportConverter");
+
+			writeMetadata(w, session, null, null, bounds);
+
+			writeImages(w, session.getImages(), "");
+			writeBoundsAsWpt(w, bounds, "Session bounds");
+			if (session.getOverlapSessions() != null) {
+				int overlapSessionCount = 0;
+				for (SportSession overlapSession : session.getOverlapSessions()) {
+					overlapSessionCount += 1;
+					writeImages(w, overlapSession.getImages(), "Overlap Session " + overlapSessionCount + ": ");
+				}
+			}
+			if (session.getCompoundSessions() != null) {
+				int compoundSessionCount = 0;
+				for (SportSession compoundSession : session.getCompoundSessions()) {
+					compoundSessionCount += 1;
+					writeImages(w, compoundSession.getImages(), "Compound Session " + compoundSessionCount + ": ");
+				}
+			}
+
+			writeBoundsAsRte(w, bounds, "Session bounds");
+			if( session.getInnerBound() != null ) {
+				writeBoundsAsRte(w, session.getInnerBound(), "Inner bounds of all overlapping sessions");
+			}
+			if( session.getOuterBound() != null ) {
+				writeBoundsAsRte(w, session.getOuterBound(), "Outer bounds of all overlapping sessions");
+			}
+
+			if (gpsTrack != null) {
+				writeTrk(w, session.getNotes(), null, mapSport(session.getSportTypeId()));
+				writeTrkseg(w, gpsTrack, 0, gpsTrack.size(), true);
+				w.endElement();
+			}
+			if (gpxSession != null) {
+				writeTrk(w, session.getNotes() + " (" + session.getId() + ")", session.getNotes() + " (" + session.getId() + ")", mapSport(session.getSportTypeId()));
+				writeTrksegs(w, gpxTrack, gpxSegments, gpxTrksegs);
+				w.endElement();
+			}
+			if (session.getOverlapSessions() != null) {
+				int overlapSessionCount = 0;
+				for (SportSession overlapSession : session.getOverlapSessions()) {
+					overlapSessionCount += 1;
+					writeTrk(w, "Overlap Session " + overlapSessionCount + ": " + overlapSession.getId(), "Overlap Session " + overlapSessionCount + ": " + overlapSession.getNotes(), mapSport(overlapSession.getSportTypeId()));
+					writeTrksegs(w, overlapSession.getGpxSession());
+					w.endElement();
+				}
+			}
+			if (session.getCompoundSessions() != null) {
+				int compoundSessionCount = 0;
+				for (SportSession compoundSession : session.getCompoundSessions()) {
+					compoundSessionCount += 1;
+					writeTrk(w, "Compound Session " + compoundSessionCount + ": " + compoundSession.getId(), "Compound Session " + compoundSessionCount + ": " + compoundSession.getNotes(), mapSport(compoundSession.getSportTypeId()));
+					writeTrksegs(w, compoundSession.getGpxSession());
+					w.endElement();
+				}
+			}
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+
+		// store bounds and first track in session, as mapSportSession does with the whole document
+		session.setGpxSession(mapGpxSession(gpxSession, gpsTrack, gpxTrack, gpxSegments, gpxTrksegs, bounds));
+	}
+
+	/**
+	 * Write a cluster of overlapping (or compound) sport sessions as one GPX, with the track of each session once,
+	 * instead of the tracks of all sessions in the file of each session (see {@link #writeSessionClusterReference}).
+	 * The sessions must hold their mapped GPX session (see {@link #mapGpxSession(SportSession)}).
+	 * @param name name of the cluster, e.g. "Overlap cluster 3"
+	 */
+	public void writeSessionCluster(SessionCluster cluster, String name, OutputStream dest) {
+		long start = metrics.start();
+		GeoBounds bounds = GeoBounds.EMPTY;
+		for (SportSession session : cluster.getSessions()) {
+			bounds = bounds.union(session.getGpxSession().getBounds());
+		}
+
+		try (XmlWriter w = new XmlWriter(dest, !compact)) {
+			w.startDocument("gpx", GPX_NAMESPACE)
+				.attribute("version", "1.1")
+				.attribute("creator", "RuntasticExportConverter");
+
+			w.startElement("metadata");
+			w.element("name", name);
+			w.element("desc", name + " (" + cluster.getSessions().size() + " sessions)");
+			w.element("keywords", "runtastic");
+			if (!bounds.isEmpty()) {
+				writeBounds(w, bounds);
+			}
+			w.endElement();
+
+			int sessionCount = 0;
+			for (SportSession session : cluster.getSessions()) {
+				sessionCount += 1;
+				writeImages(w, session.getImages(), "Session " + sessionCount + ": ");
+			}
+
+			if (!bounds.isEmpty()) {
+				writeBoundsAsRte(w, bounds, "Cluster bounds");
+			}
+			if (cluster.getInnerBound() != null) {
+				writeBoundsAsRte(w, cluster.getInnerBound(), "Inner bounds of all overlapping sessions");
+			}
+			if (cluster.getOuterBound() != null) {
+				writeBoundsAsRte(w, cluster.getOuterBound(), "Outer bounds of all overlapping sessions");
+			}
+
+			sessionCount = 0;
+			for (SportSession session : cluster.getSessions()) {
+				sessionCount += 1;
+				writeTrk(w, "Session " + sessionCount + ": " + session.getNotes() + " (" + session.getId() + ")", "Session " + sessionCount + ": " + session.getNotes(), mapSport(session.getSportTypeId()));
+				writeTrksegs(w, session.getGpxSession());
+				w.endElement();
+			}
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+		metrics.record("write.gpx.cluster", start);
+	}
+
+	/**
+	 * Write a sport session of a cluster as GPX without tracks: metadata (with a link to the cluster file) and photos.
+	 * @param bounds bounds of the session, null if unknown
+	 * @param clusterName name of the cluster (see {@link #writeSessionCluster})
+	 * @param clusterFileName file name of the cluster, relative to this file
+	 */
+	public void writeSessionClusterReference(SportSession session, GeoBounds bounds, String clusterName, String clusterFileName, OutputStream dest) {
+		long start = metrics.start();
+		try (XmlWriter w = new XmlWriter(dest, !compact)) {
+			w.startDocument("gpx", GPX_NAMESPACE)
+				.attribute("version", "1.1")
+				.attribute("creator", "RuntasticExportConverter");
+
+			writeMetadata(w, session, clusterFileName, clusterName, bounds);
+
+			writeImages(w, session.getImages(), "");
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+		metrics.record("write.gpx.reference", start);
+	}
+
+	/**
+	 * Map the tracks of a sport session to the GPX session it holds after mapping (bounds and first track),
+	 * i.e. the track written for it as member of overlapping or compound sessions, without mapping the whole session.
+	 * @return GPX session, to be set in the sport session
+	 */
+	public GpxSession mapGpxSession(SportSession session) {
+		GpsTrack gpsTrack = session.getGpsSession() != null ? getGpsTrack(session) : null;
+		GpxSession gpxSession = session.getGpxSession();
+		GpsTrack gpxTrack = gpxSession != null ? gpxSession.getTrack() : null;
+		int[] gpxSegments = gpxSession != null ? gpxSession.getSegments() : null;
+		List<TrksegType> gpxTrksegs = gpxSession != null && gpxTrack == null ? gpxSession.getGpx().getTrk().get(0).getTrkseg() : null;
+		return mapGpxSession(gpxSession, gpsTrack, gpxTrack, gpxSegments, gpxTrksegs, calculateBounds(gpsTrack, gpxTrack, gpxTrksegs));
+	}
+
+	private GpxSession mapGpxSession(GpxSession gpxSession, GpsTrack gpsTrack, GpsTrack gpxTrack, int[] gpxSegments, List<TrksegType> gpxTrksegs, GeoBounds bounds) {
+		GpxSession mapped = new GpxSession();
+		if (gpsTrack != null || gpxTrack != null) {
+			mapped.setTrack(gpsTrack != null ? gpsTrack : gpxTrack);
+			mapped.setSegments(gpsTrack != null ? new int[] { 0 } : gpxSegments);
+			mapped.setBounds(bounds);
+		} else {
+			GpxType gpx = factory.createGpxType();
+			gpx.setMetadata(factory.createMetadataType());
+			gpx.getMetadata().setBounds(bounds.toBoundsType());
+			if (gpxTrksegs != null) {
+				TrkType trk = factory.createTrkType();
+				trk.getTrkseg().addAll(gpxTrksegs);
+				gpx.getTrk().add(trk);
+			}
+			mapped.setGpx(gpx);
+		}
+		mapped.setFileName(gpxSession != null ? gpxSession.getFileName() : null);
+		return mapped;
+	}
+
+	/**
+	 * Calculate bounds the same way as mapBoundsdata, from the JSON GPS track and the GPX track (streamed, or unmarshalled track segments).
+	 */
+	private GeoBounds calculateBounds(GpsTrack gpsTrack, GpsTrack gpxTrack, List<TrksegType> gpxTrksegs) {
+		GpxType boundsGpx = factory.createGpxType();
+		if (gpxTrksegs != null) {
+			TrkType trk = factory.createTrkType();
+			trk.getTrkseg().addAll(gpxTrksegs);
+			boundsGpx.getTrk().add(trk);
+		}
+		return calculateBounds(boundsGpx, false).union(GeoBounds.of(gpsTrack)).union(GeoBounds.of(gpxTrack));
+	}
+
+	/**
+	 * @param link link of the session (e.g. to its cluster), null if none
+	 * @param bounds bounds of the session, omitted if null or empty
+	 */
+	private void writeMetadata(XmlWriter w, SportSession session, String link, String linkText, GeoBounds bounds) throws XMLStreamException {
+		w.startElement("metadata");
+		w.element("desc", session.getNotes() + " (ID:" + session.getId()+")");
+		if (session.getUser() != null) {
+			w.startElement("author");
+			w.element("name", session.getUser().getFirstName() + " " + session.getUser().getLastName());
+			EmailType email = mapEmail(session.getUser().getEmail());
+			if (email != null) {
+				w.emptyElement("email").attribute("id", email.getId()).attribute("domain", email.getDomain());
+			}
+			w.endElement();
+		}
+		if (link != null) {
+			w.startElement("link").attribute("href", link);
+			w.element("text", linkText);
+			w.endElement();
+		}
+		w.element("time", printDate(session.getCreatedAt()));
+		w.element("keywords", "runtastic");
+		if (bounds != null && !bounds.isEmpty()) {
+			writeBounds(w, bounds);
+		}
+		w.endElement();
+	}
+
+	private void writeImages(XmlWriter w, List<ImagesMetaData> images, String prefix) throws XMLStreamException {
+		if (images != null) {
+			// Add the photos as "way points"
+			for (ImagesMetaData image : images) {
+				w.startElement("wpt")
+					.attribute("lat", printDecimal(image.getLatitude()))
+					.attribute("lon", printDecimal(image.getLongitude()));
+				w.element("time", printDate(image.getCreatedAt()));
+				w.element("name", prefix + "Photo: " + image.getId() + ".jpg");
+				w.element("desc", prefix.isEmpty() ? image.getDescription() : prefix + image.getDescription());
+				w.element("type", "photo");
+				w.endElement();
+			}
+		}
+	}
+
+	private void writeBounds(XmlWriter w, GeoBounds bounds) throws XMLStreamException {
+		w.emptyElement("bounds")
+			.attribute("minlat", printDecimal(mapDecimal(bounds.getMinLat())))
+			.attribute("minlon", printDecimal(mapDecimal(bounds.getMinLon())))
+			.attribute("maxlat", printDecimal(mapDecimal(bounds.getMaxLat())))
+			.attribute("maxlon", printDecimal(mapDecimal(bounds.getMaxLon())));
+	}
+
+	private void writeBoundsAsWpt(XmlWriter w, GeoBounds bounds, String boundName) throws XMLStreamException {
+		writeBoundsPoint(w, "wpt", bounds.getMaxLat(), bounds.getMaxLon(), boundName + ": top-right corner");
+		writeBoundsPoint(w, "wpt", bounds.getMinLat(), bounds.getMaxLon(), boundName + ": down-right corner");
+		writeBoundsPoint(w, "wpt", bounds.getMaxLat(), bounds.getMinLon(), boundName + ": top-left corner");
+		writeBoundsPoint(w, "wpt", bounds.getMinLat(), bounds.getMinLon(), boundName + ": down-left corner");
+	}
+
+	private void writeBoundsAsRte(XmlWriter w, GeoBounds bounds, String boundName) throws XMLStreamException {
+		w.startElement("rte");
+		w.element("name", boundName);
+		w.element("desc", boundName + ": Bounds of this sport session.");
+		writeBoundsPoint(w, "rtept", bounds.getMaxLat(), bounds.getMaxLon(), boundName + ": top-right corner");
+		writeBoundsPoint(w, "rtept", bounds.getMinLat(), bounds.getMaxLon(), boundName + ": down-right corner");
+		writeBoundsPoint(w, "rtept", bounds.getMinLat(), bounds.getMinLon(), boundName + ": down-left corner");
+		writeBoundsPoint(w, "rtept", bounds.getMaxLat(), bounds.getMinLon(), boundName + ": top-left corner");
+		writeBoundsPoint(w, "rtept", bounds.getMaxLat(), bounds.getMaxLon(), boundName + ": top-right corner");
+		w.endElement();
+	}
+
+	private void writeBoundsPoint(XmlWriter w, String element, double lat, double lon, String name) throws XMLStreamException {
+		w.startElement(element)
+			.attribute("lat", printDecimal(mapDecimal(lat)))
+			.attribute("lon", printDecimal(mapDecimal(lon)));
+		w.element("name", name);
+		w.element("type", "bounds");
+		w.endElement();
+	}
+
+	private void writeTrk(XmlWriter w, String name, String desc, String type) throws XMLStreamException {
+		w.startElement("trk");
+		w.element("name", name);
+		w.element("desc", desc);
+		w.element("type", type);
+	}
+
+	private void writeTrksegs(XmlWriter w, GpxSession gpxSession) throws XMLStreamException {
+		if (gpxSession.getTrack() != null) {
+			writeTrksegs(w, gpxSession.getTrack(), gpxSession.getSegments(), null);
+		} else {
+			writeTrksegs(w, null, null, gpxSession.getGpx().getTrk().get(0).getTrkseg());
+		}
+	}
+
+	private void writeTrksegs(XmlWriter w, GpsTrack track, int[] segments, List<TrksegType> trksegs) throws XMLStreamException {
+		if (track != null) {
+			for (int s = 0; s < segments.length; s++) {
+				writeTrkseg(w, track, segments[s], s + 1 < segments.length ? segments[s + 1] : track.size(), false);
+			}
+		} else {
+			for (TrksegType trkseg : trksegs) {
+				if (trkseg.getExtensions() != null) {
+					// keep content not handled here as is
+					w.fragment(JaxbContextPool.GPX.getMarshaller(), new JAXBElement<>(new QName(GPX_NAMESPACE, "trkseg"), TrksegType.class, trkseg));
+					continue;
+				}
+				w.startElement("trkseg");
+				for (WptType wpt : trkseg.getTrkpt()) {
+					writeTrkpt(w, wpt);
+				}
+				w.endElement();
+			}
+		}
+	}
+
+	/**
+	 * @param gpsData true for JSON GPS data (time always set, as in mapGPSdata), false for GPX data (no time if unknown, as in mapGPXdata)
+	 */
+	private void writeTrkseg(XmlWriter w, GpsTrack track, int start, int end, boolean gpsData) throws XMLStreamException {
+		TimestampCodec codec = codecs.get();
+		w.startElement("trkseg");
+		for (int i = start; i < end; i++) {
+			String ele = printDecimal(mapDecimal(track.getAltitude(i)));
+			boolean time = gpsData || track.getTimestamp(i) != 0;
+			if (ele == null && !time) {
+				w.emptyElement("trkpt");
+			} else {
+				w.startElement("trkpt");
+			}
+			w.attribute("lat", printDecimal(mapDecimal(track.getLatitude(i))))
+				.attribute("lon", printDecimal(mapDecimal(track.getLongitude(i))));
+			if (ele != null || time) {
+				w.element("ele", ele);
+				if (time) {
+					w.element("time", codec.getBuffer(), 0, codec.format(track.getTimestamp(i)));
+				}
+				w.endElement();
+			}
+		}
+		w.endElement();
+	}
+
+	private void writeTrkpt(XmlWriter w, WptType wpt) throws XMLStreamException {
+		if (wpt.getMagvar() != null || wpt.getGeoidheight() != null || !wpt.getLink().isEmpty() || wpt.getFix() != null || wpt.getSat() != null
+				|| wpt.getHdop() != null || wpt.getVdop() != null || wpt.getPdop() != null || wpt.getAgeofdgpsdata() != null || wpt.getDgpsid() != null
+				|| wpt.getExtensions() != null) {
+			// keep content not handled here as is
+			w.fragment(JaxbContextPool.GPX.getMarshaller(), new JAXBElement<>(new QName(GPX_NAMESPACE, "trkpt"), WptType.class, wpt));
+			return;
+		}
+		String ele = printDecimal(wpt.getEle());
+		String time = wpt.getTime() != null ? wpt.getTime().toXMLFormat() : null;
+		boolean empty = ele == null && time == null && wpt.getName() == null && wpt.getCmt() == null && wpt.getDesc() == null && wpt.getSrc() == null
+				&& wpt.getSym() == null && wpt.getType() == null;
+		if (empty) {
+			w.emptyElement("trkpt");
+		} else {
+			w.startElement("trkpt");
+		}
+		w.attribute("lat", printDecimal(wpt.getLat()))
+			.attribute("lon", printDecimal(wpt.getLon()));
+		if (!empty) {
+			w.element("ele", ele);
+			w.element("time", time);
+			w.element("name", wpt.getName());
+			w.element("cmt", wpt.getCmt());
+			w.element("desc", wpt.getDesc());
+			w.element("src", wpt.getSrc());
+			w.element("sym", wpt.getSym());
+			w.element("type", wpt.getType());
+			w.endElement();
+		}
+	}
+
+	/**
+	 * @return JSON GPS data, with unknown altitudes completed by elevation data at the same time (see {@link TrackpointMerger})
+	 */
+	protected GpsTrack getGpsTrack(SportSession session) {
+		ElevationSession elevationSession = session.getElevationSession();
+		return TrackpointMerger.withElevation(session.getGpsSession().asTrack(), elevationSession != null ? elevationSession.asTrack() : null);
+	}
+
 	protected XMLGregorianCalendar mapDate(Date date) {
 		if (date != null) {
 			GregorianCalendar cal = new GregorianCalendar();
@@ -267,6 +808,28 @@ public class GpxSportSessionMapper implements SportSessionMapper<GpxType> {
 		return null;
 	}
 
+	/**
+	 * Map an e-mail address to its id and domain ("id@domain"), as required by the GPX schema.
+	 */
+	protected EmailType mapEmail(String address) {
+		if (address == null) {
+			return null;
+		}
+		EmailType email = factory.createEmailType();
+		int at = address.lastIndexOf('@');
+		email.setId(at >= 0 ? address.substring(0, at) : address);
+		email.setDomain(at >= 0 ? address.substring(at + 1) : "");
+		return email;
+	}
+
+	protected String printDate(Date date) {
+		return date != null ? codecs.get().formatToString(date.getTime()) : null;
+	}
+
+	protected String printDecimal(BigDecimal value) {
+		return value != null ? value.toPlainString() : null;
+	}
+
 	protected String mapSport(String sportTypeId) {
 		switch (sportTypeId) {
 		case "1":
@@ -286,48 +849,64 @@ public class GpxSportSessionMapper implements SportSessionMapper<GpxType> {
 		}
 	}
 
-	protected BoundsType calculateBounds( GpxType gpx, boolean considerPhotos ) {
-		BoundsType bounds = factory.createBoundsType();
+	protected BigDecimal mapDecimal(double value) {
+		return Double.isNaN(value) ? null : BigDecimal.valueOf(value);
+	}
+
+	protected GeoBounds calculateBounds( GpxType gpx, boolean considerPhotos ) {
+		return calculateBounds(gpx, considerPhotos, null, null);
+	}
+
+	protected GeoBounds calculateBounds( GpxType gpx, boolean considerPhotos, TrkType skipTrk, TrkType skipTrk2 ) {
+		// compare the JAXB decimals and convert the extremes only (BigDecimal.doubleValue is costly)
+		BigDecimal[] extremes = new BigDecimal[4];
 
 		// search through waypoints (=photos)
 		if( considerPhotos ) {
 			for( WptType wpt : gpx.getWpt() ) {
-				if( bounds.getMaxlat() == null || (bounds.getMaxlat().compareTo(wpt.getLat()) == -1)) {
-						bounds.setMaxlat(wpt.getLat());
-				}
-				if( bounds.getMinlat() == null || (bounds.getMinlat().compareTo(wpt.getLat()) == 1)) {
-					bounds.setMinlat(wpt.getLat());
-				}
-				if( bounds.getMaxlon() == null || (bounds.getMaxlon().compareTo(wpt.getLon()) == -1)) {
-					bounds.setMaxlon(wpt.getLon());
-				}
-				if( bounds.getMinlon() == null || (bounds.getMinlon().compareTo(wpt.getLon()) == 1)) {
-					bounds.setMinlon(wpt.getLon());
-				}
+				updateExtremes(extremes, wpt);
 			}
 		}
 
 		// search through sport session tracks
 		for( TrkType trk : gpx.getTrk()) {
+			if( trk == skipTrk || trk == skipTrk2 ) {
+				continue;
+			}
 			for( TrksegType trkseg : trk.getTrkseg() ) {
 				for( WptType wpt : trkseg.getTrkpt() ) {
-					if( bounds.getMaxlat() == null || (bounds.getMaxlat().compareTo(wpt.getLat()) == -1 )) {
-						bounds.setMaxlat(wpt.getLat());
-					}
-					if( bounds.getMinlat() == null || (bounds.getMinlat().compareTo(wpt.getLat()) == 1)) {
-						bounds.setMinlat(wpt.getLat());
-					}
-					if( bounds.getMaxlon() == null || (bounds.getMaxlon().compareTo(wpt.getLon()) == -1)) {
-						bounds.setMaxlon(wpt.getLon());
-					}
-					if( bounds.getMinlon() == null || (bounds.getMinlon().compareTo(wpt.getLon()) == 1)) {
-						bounds.setMinlon(wpt.getLon());
-					}
+					updateExtremes(extremes, wpt);
 				}
 			}
 		}
 
-		return bounds;
+		if( extremes[0] == null ) {
+			return GeoBounds.EMPTY;
+		}
+		return new GeoBounds(extremes[0].doubleValue(), extremes[1].doubleValue(), extremes[2].doubleValue(), extremes[3].doubleValue());
+	}
+
+	/**
+	 * Update the extremes (minimum latitude, minimum longitude, maximum latitude, maximum longitude) with a point.
+	 */
+	private void updateExtremes( BigDecimal[] extremes, WptType wpt ) {
+		BigDecimal lat = wpt.getLat();
+		BigDecimal lon = wpt.getLon();
+		if( extremes[0] == null ) {
+			extremes[0] = extremes[2] = lat;
+			extremes[1] = extremes[3] = lon;
+			return;
+		}
+		if( lat.compareTo(extremes[0]) < 0 ) {
+			extremes[0] = lat;
+		} else if( lat.compareTo(extremes[2]) > 0 ) {
+			extremes[2] = lat;
+		}
+		if( lon.compareTo(extremes[1]) < 0 ) {
+			extremes[1] = lon;
+		} else if( lon.compareTo(extremes[3]) > 0 ) {
+			extremes[3] = lon;
+		}
 	}
 
 	private Collection<? extends WptType> getBoundsAsWpt(BoundsType bounds, String boundName) {
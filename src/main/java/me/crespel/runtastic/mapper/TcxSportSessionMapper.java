@@ -1,24 +1,26 @@
 package me.crespel.runtastic.mapper;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.List;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeFactory;
 import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.stream.XMLStreamException;
 
 import com.garmin.xmlschemas.trainingcenterdatabase.v2.ActivityLapT;
 import com.garmin.xmlschemas.trainingcenterdatabase.v2.ActivityListT;
 import com.garmin.xmlschemas.trainingcenterdatabase.v2.ActivityT;
 import com.garmin.xmlschemas.trainingcenterdatabase.v2.HeartRateInBeatsPerMinuteT;
+import com.garmin.xmlschemas.trainingcenterdatabase.v2.IntensityT;
 import com.garmin.xmlschemas.trainingcenterdatabase.v2.ObjectFactory;
 import com.garmin.xmlschemas.trainingcenterdatabase.v2.PositionT;
 import com.garmin.xmlschemas.trainingcenterdatabase.v2.SportT;
@@ -27,18 +29,37 @@ import com.garmin.xmlschemas.trainingcenterdatabase.v2.TrackpointT;
 import com.garmin.xmlschemas.trainingcenterdatabase.v2.TrainingCenterDatabaseT;
 import com.garmin.xmlschemas.trainingcenterdatabase.v2.TriggerMethodT;
 
-import me.crespel.runtastic.model.GpsData;
-import me.crespel.runtastic.model.HeartRateData;
+import org.apache.commons.io.output.CountingOutputStream;
+
+import me.crespel.runtastic.jfr.Events;
+import me.crespel.runtastic.jfr.MapEvent;
+import me.crespel.runtastic.jfr.MarshalEvent;
+import me.crespel.runtastic.model.ElevationTrack;
+import me.crespel.runtastic.model.GpsTrack;
+import me.crespel.runtastic.model.HeartRateTrack;
 import me.crespel.runtastic.model.SportSession;
+import me.crespel.runtastic.util.JaxbContextPool;
+import me.crespel.runtastic.util.Metrics;
+import me.crespel.runtastic.util.TimestampCodec;
+import me.crespel.runtastic.util.XmlWriter;
 
 /**
  * TCX sport session mapper.
+ * Sessions mapped to a file or stream are written with a streaming writer by default, merging GPS and heart rate data
+ * while writing trackpoints (no TrackpointT object per data point), producing the same document as the JAXB marshaller.
  * @author Fabien CRESPEL (fabien@crespel.net)
  */
 public class TcxSportSessionMapper implements SportSessionMapper<TrainingCenterDatabaseT> {
 
 	protected final DatatypeFactory dtf;
+	public static final String TCX_NAMESPACE = "http://www.garmin.com/xmlschemas/TrainingCenterDatabase/v2";
+
 	protected final ObjectFactory factory = new ObjectFactory();
+	protected boolean streaming = true;
+	protected boolean compact = false;
+	protected Metrics metrics = Metrics.NONE;
+	// timestamp codecs of the streaming writer, per thread as mappers are shared
+	protected final ThreadLocal<TimestampCodec> codecs = ThreadLocal.withInitial(TimestampCodec::new);
 
 	public TcxSportSessionMapper() {
 		try {
@@ -48,6 +69,39 @@ public class TcxSportSessionMapper implements SportSessionMapper<TrainingCenterD
 		}
 	}
 
+	public boolean isStreaming() {
+		return streaming;
+	}
+
+	/**
+	 * Write sessions mapped to a file or stream with the streaming writer (default), or marshal them with JAXB.
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+
+	public boolean isCompact() {
+		return compact;
+	}
+
+	/**
+	 * Write sessions without indentation (streaming writer only).
+	 */
+	public void setCompact(boolean compact) {
+		this.compact = compact;
+	}
+
+	public Metrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Set the metrics recording the time to map and marshal sessions (or to write them with the streaming writer).
+	 */
+	public void setMetrics(Metrics metrics) {
+		this.metrics = metrics;
+	}
+
 	@Override
 	public boolean supports(String format) {
 		return format != null && format.toLowerCase().endsWith("tcx");
@@ -55,11 +109,8 @@ public class TcxSportSessionMapper implements SportSessionMapper<TrainingCenterD
 
 	@Override
 	public TrainingCenterDatabaseT mapSportSession(SportSession session, String format) {
-		List<TrackpointT> trackpoints = new ArrayList<>();
-		trackpoints.addAll(mapGpsData(session.getGpsSession().getGpsData()));
-		trackpoints.addAll(mapHeartRateData(session.getHeartRateSession().getHeartRateData()));
 		TrackT track = factory.createTrackT();
-		track.getTrackpoint().addAll(mergeTrackpoints(trackpoints));
+		track.getTrackpoint().addAll(mergeTrackpoints(getGpsTrack(session), getHeartRateTrack(session), getElevationTrack(session)));
 
 		ActivityLapT lap = factory.createActivityLapT();
 		lap.setStartTime(mapDate(session.getStartTime()));
@@ -69,6 +120,7 @@ public class TcxSportSessionMapper implements SportSessionMapper<TrainingCenterD
 		lap.setAverageHeartRateBpm(mapHeartRate(session.getPulseAvg()));
 		lap.setMaximumHeartRateBpm(mapHeartRate(session.getPulseMax()));
 		lap.setMaximumSpeed(session.getMaxSpeed().doubleValue());
+		lap.setIntensity(IntensityT.ACTIVE);
 		lap.setTriggerMethod(TriggerMethodT.MANUAL);
 		lap.getTrack().add(track);
 
@@ -85,34 +137,178 @@ public class TcxSportSessionMapper implements SportSessionMapper<TrainingCenterD
 		return tcx;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * @return TCX document, or null if written with the streaming writer
+	 */
 	@Override
 	public TrainingCenterDatabaseT mapSportSession(SportSession session, String format, File dest) {
-		TrainingCenterDatabaseT tcx = mapSportSession(session, format);
+		MarshalEvent marshalEvent = new MarshalEvent();
+		if (streaming) {
+			marshalEvent.begin();
+			long start = metrics.start();
+			try (OutputStream out = new BufferedOutputStream(new FileOutputStream(dest))) {
+				writeSportSession(session, out);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			metrics.record("write.tcx", start);
+			commit(marshalEvent, session, true, dest.length());
+			return null;
+		}
+		TrainingCenterDatabaseT tcx = map(session, format);
+		marshalEvent.begin();
+		long start = metrics.start();
 		try {
-			JAXBContext ctx = JAXBContext.newInstance(TrainingCenterDatabaseT.class);
-			Marshaller m = ctx.createMarshaller();
-			m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-			m.marshal(factory.createTrainingCenterDatabase(tcx), dest);
+			JaxbContextPool.TCX.getMarshaller().marshal(factory.createTrainingCenterDatabase(tcx), dest);
 		} catch (JAXBException e) {
 			throw new RuntimeException(e);
 		}
+		metrics.record("marshal.tcx", start);
+		commit(marshalEvent, session, false, dest.length());
 		return tcx;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * @return TCX document, or null if written with the streaming writer
+	 */
 	@Override
 	public TrainingCenterDatabaseT mapSportSession(SportSession session, String format, OutputStream dest) {
-		TrainingCenterDatabaseT tcx = mapSportSession(session, format);
+		MarshalEvent marshalEvent = new MarshalEvent();
+		// bytes written are only counted for a recording
+		CountingOutputStream out = marshalEvent.isEnabled() ? new CountingOutputStream(dest) : null;
+		if (streaming) {
+			marshalEvent.begin();
+			long start = metrics.start();
+			writeSportSession(session, out != null ? out : dest);
+			metrics.record("write.tcx", start);
+			commit(marshalEvent, session, true, out != null ? out.getByteCount() : 0);
+			return null;
+		}
+		TrainingCenterDatabaseT tcx = map(session, format);
+		marshalEvent.begin();
+		long start = metrics.start();
 		try {
-			JAXBContext ctx = JAXBContext.newInstance(TrainingCenterDatabaseT.class);
-			Marshaller m = ctx.createMarshaller();
-			m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-			m.marshal(factory.createTrainingCenterDatabase(tcx), dest);
+			JaxbContextPool.TCX.getMarshaller().marshal(factory.createTrainingCenterDatabase(tcx), out != null ? out : dest);
 		} catch (JAXBException e) {
 			throw new RuntimeException(e);
 		}
+		metrics.record("marshal.tcx", start);
+		commit(marshalEvent, session, false, out != null ? out.getByteCount() : 0);
+		return tcx;
+	}
+
+	/**
+	 * Map a sport session to a TCX document, recording the time to map it and its flight recorder event.
+	 */
+	protected TrainingCenterDatabaseT map(SportSession session, String format) {
+		MapEvent event = new MapEvent();
+		event.begin();
+		long start = metrics.start();
+		TrainingCenterDatabaseT tcx = mapSportSession(session, format);
+		metrics.record("map.tcx", start);
+		if (event.shouldCommit()) {
+			event.sessionId = session.getId();
+			event.format = "tcx";
+			event.points = Events.points(session);
+			event.commit();
+		}
 		return tcx;
 	}
 
+	private void commit(MarshalEvent event, SportSession session, boolean streaming, long bytes) {
+		if (event.shouldCommit()) {
+			event.sessionId = session.getId();
+			event.format = "tcx";
+			event.streaming = streaming;
+			event.points = Events.points(session);
+			event.bytes = bytes;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Write a sport session as TCX straight from the session data, in the same order as {@link #mapSportSession(SportSession, String)}.
+	 */
+	public void writeSportSession(SportSession session, OutputStream dest) {
+		TrackpointMerger merger = new TrackpointMerger(getGpsTrack(session), getHeartRateTrack(session), getElevationTrack(session));
+		double maximumSpeed = session.getMaxSpeed().doubleValue();
+
+		try (XmlWriter w = new XmlWriter(dest, !compact)) {
+			w.startDocument("TrainingCenterDatabase", TCX_NAMESPACE);
+			w.startElement("Activities");
+			w.startElement("Activity").attribute("Sport", mapSport(session.getSportTypeId()).value());
+			w.element("Id", printDate(session.getStartTime()));
+			w.startElement("Lap").attribute("StartTime", printDate(session.getStartTime()));
+			w.element("TotalTimeSeconds", session.getDuration() != null ? printDouble(session.getDuration()) : null);
+			w.element("DistanceMeters", session.getDistance() != null ? printDouble(session.getDistance()) : null);
+			w.element("MaximumSpeed", printDouble(maximumSpeed));
+			w.element("Calories", session.getCalories());
+			writeHeartRate(w, "AverageHeartRateBpm", session.getPulseAvg());
+			writeHeartRate(w, "MaximumHeartRateBpm", session.getPulseMax());
+			w.element("Intensity", IntensityT.ACTIVE.value());
+			w.element("TriggerMethod", TriggerMethodT.MANUAL.value());
+			if (!merger.next()) {
+				w.emptyElement("Track");
+			} else {
+				w.startElement("Track");
+				do {
+					writeTrackpoint(w, merger);
+				} while (merger.next());
+				w.endElement();
+			}
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void writeTrackpoint(XmlWriter w, TrackpointMerger merger) throws XMLStreamException {
+		w.startElement("Trackpoint");
+		TimestampCodec codec = codecs.get();
+		w.element("Time", codec.getBuffer(), 0, codec.format(merger.getTimestamp()));
+		int gps = merger.getGpsIndex();
+		if (gps >= 0) {
+			GpsTrack gpsTrack = merger.getGpsTrack();
+			w.startElement("Position");
+			w.element("LatitudeDegrees", printDouble(gpsTrack.getLatitude(gps)));
+			w.element("LongitudeDegrees", printDouble(gpsTrack.getLongitude(gps)));
+			w.endElement();
+		}
+		double altitude = merger.getAltitude();
+		if (!Double.isNaN(altitude)) {
+			w.element("AltitudeMeters", printDouble(altitude));
+		}
+		w.element("DistanceMeters", printDouble(merger.getDistance()));
+		if (merger.getHeartRateIndex() >= 0) {
+			writeHeartRate(w, "HeartRateBpm", merger.getHeartRateTrack().getHeartRate(merger.getHeartRateIndex()));
+		}
+		w.endElement();
+	}
+
+	private void writeHeartRate(XmlWriter w, String element, Integer value) throws XMLStreamException {
+		if (value != null) {
+			w.startElement(element);
+			w.element("Value", value.shortValue());
+			w.endElement();
+		}
+	}
+
+	protected String printDate(Date date) {
+		return date != null ? codecs.get().formatToString(date.getTime()) : null;
+	}
+
+	protected String printDouble(double value) {
+		if (Double.isNaN(value)) {
+			return "NaN";
+		} else if (value == Double.POSITIVE_INFINITY) {
+			return "INF";
+		} else if (value == Double.NEGATIVE_INFINITY) {
+			return "-INF";
+		}
+		return String.valueOf(value);
+	}
+
 	protected XMLGregorianCalendar mapDate(Date date) {
 		if (date != null) {
 			GregorianCalendar cal = new GregorianCalendar();
@@ -142,60 +338,44 @@ public class TcxSportSessionMapper implements SportSessionMapper<TrainingCenterD
 		}
 	}
 
-	protected List<TrackpointT> mapGpsData(List<GpsData> gpsData) {
-		List<TrackpointT> trackpoints = new ArrayList<>();
-		if (gpsData != null) {
-			for (GpsData gps : gpsData) {
-				PositionT pos = factory.createPositionT();
-				pos.setLatitudeDegrees(gps.getLatitude().doubleValue());
-				pos.setLongitudeDegrees(gps.getLongitude().doubleValue());
-				TrackpointT trackpoint = factory.createTrackpointT();
-				trackpoint.setTime(mapDate(gps.getTimestamp()));
-				trackpoint.setDistanceMeters(gps.getDistance().doubleValue());
-				trackpoint.setAltitudeMeters(gps.getAltitude().doubleValue());
-				trackpoint.setPosition(pos);
-				trackpoints.add(trackpoint);
-			}
-		}
-		return trackpoints;
+	protected GpsTrack getGpsTrack(SportSession session) {
+		return session.getGpsSession() != null ? session.getGpsSession().asTrack() : null;
 	}
 
-	protected List<TrackpointT> mapHeartRateData(List<HeartRateData> heartRateData) {
-		List<TrackpointT> trackpoints = new ArrayList<>();
-		if (heartRateData != null) {
-			for (HeartRateData hr : heartRateData) {
-				TrackpointT trackpoint = factory.createTrackpointT();
-				trackpoint.setTime(mapDate(hr.getTimestamp()));
-				trackpoint.setDistanceMeters(hr.getDistance().doubleValue());
-				trackpoint.setHeartRateBpm(mapHeartRate(hr.getHeartRate()));
-				trackpoints.add(trackpoint);
-			}
-		}
-		return trackpoints;
+	protected HeartRateTrack getHeartRateTrack(SportSession session) {
+		return session.getHeartRateSession() != null ? session.getHeartRateSession().asTrack() : null;
 	}
 
-	protected List<TrackpointT> mergeTrackpoints(List<TrackpointT> trackpoints) {
+	protected ElevationTrack getElevationTrack(SportSession session) {
+		return session.getElevationSession() != null ? session.getElevationSession().asTrack() : null;
+	}
+
+	/**
+	 * Merge GPS, heart rate and elevation data into trackpoints, by time (see {@link TrackpointMerger}).
+	 * The position comes from GPS data, the altitude from GPS data or else elevation data,
+	 * the distance from GPS, heart rate or elevation data (in this order).
+	 */
+	protected List<TrackpointT> mergeTrackpoints(GpsTrack gpsData, HeartRateTrack heartRateData, ElevationTrack elevationData) {
 		List<TrackpointT> merged = new ArrayList<>();
-		Collections.sort(trackpoints, (a, b) -> a.getTime().compare(b.getTime()));
-		TrackpointT previous = null;
-		for (TrackpointT current : trackpoints) {
-			if (previous != null && current.getTime().equals(previous.getTime())) {
-				if (previous.getDistanceMeters() == null) {
-					previous.setDistanceMeters(current.getDistanceMeters());
-				}
-				if (previous.getAltitudeMeters() == null) {
-					previous.setAltitudeMeters(current.getAltitudeMeters());
-				}
-				if (previous.getPosition() == null) {
-					previous.setPosition(current.getPosition());
-				}
-				if (previous.getHeartRateBpm() == null) {
-					previous.setHeartRateBpm(current.getHeartRateBpm());
-				}
-			} else {
-				merged.add(current);
+		TrackpointMerger merger = new TrackpointMerger(gpsData, heartRateData, elevationData);
+		while (merger.next()) {
+			TrackpointT trackpoint = factory.createTrackpointT();
+			trackpoint.setTime(mapDate(new Date(merger.getTimestamp())));
+			int gps = merger.getGpsIndex();
+			if (gps >= 0) {
+				PositionT pos = factory.createPositionT();
+				pos.setLatitudeDegrees(gpsData.getLatitude(gps));
+				pos.setLongitudeDegrees(gpsData.getLongitude(gps));
+				trackpoint.setPosition(pos);
+			}
+			if (!Double.isNaN(merger.getAltitude())) {
+				trackpoint.setAltitudeMeters(merger.getAltitude());
+			}
+			trackpoint.setDistanceMeters((double) merger.getDistance());
+			if (merger.getHeartRateIndex() >= 0) {
+				trackpoint.setHeartRateBpm(mapHeartRate(heartRateData.getHeartRate(merger.getHeartRateIndex())));
 			}
-			previous = current;
+			merged.add(trackpoint);
 		}
 		return merged;
 	}
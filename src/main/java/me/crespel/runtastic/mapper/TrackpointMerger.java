@@ -0,0 +1,204 @@
+package me.crespel.runtastic.mapper;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.IntToLongFunction;
+
+import me.crespel.runtastic.model.ElevationTrack;
+import me.crespel.runtastic.model.GpsTrack;
+import me.crespel.runtastic.model.HeartRateTrack;
+
+/**
+ * Trackpoint merger.
+ * This class merges GPS, heart rate and elevation tracks by time in a single pass (k-way merge on epoch millis),
+ * giving one trackpoint per distinct time, with the first data point of each track at that time (if any).
+ * Tracks are time-ordered in the export; otherwise they are iterated in (stable) time order.
+ */
+public class TrackpointMerger {
+
+	private final GpsTrack gps;
+	private final HeartRateTrack heartRate;
+	private final ElevationTrack elevation;
+	private final int[] gpsOrder;
+	private final int[] heartRateOrder;
+	private final int[] elevationOrder;
+	private final int gpsSize;
+	private final int heartRateSize;
+	private final int elevationSize;
+	private int gpsNext;
+	private int heartRateNext;
+	private int elevationNext;
+
+	private long timestamp;
+	private int gpsIndex;
+	private int heartRateIndex;
+	private int elevationIndex;
+
+	/**
+	 * @param gps GPS track, or null
+	 * @param heartRate heart rate track, or null
+	 * @param elevation elevation track, or null
+	 */
+	public TrackpointMerger(GpsTrack gps, HeartRateTrack heartRate, ElevationTrack elevation) {
+		this.gps = gps;
+		this.heartRate = heartRate;
+		this.elevation = elevation;
+		gpsSize = gps != null ? gps.size() : 0;
+		heartRateSize = heartRate != null ? heartRate.size() : 0;
+		elevationSize = elevation != null ? elevation.size() : 0;
+		gpsOrder = gps != null ? timeOrder(gps::getTimestamp, gpsSize) : null;
+		heartRateOrder = heartRate != null ? timeOrder(heartRate::getTimestamp, heartRateSize) : null;
+		elevationOrder = elevation != null ? timeOrder(elevation::getTimestamp, elevationSize) : null;
+	}
+
+	/**
+	 * Move to the next trackpoint.
+	 * @return true if there is one
+	 */
+	public boolean next() {
+		long gpsTime = gpsNext < gpsSize ? gps.getTimestamp(index(gpsOrder, gpsNext)) : Long.MAX_VALUE;
+		long heartRateTime = heartRateNext < heartRateSize ? heartRate.getTimestamp(index(heartRateOrder, heartRateNext)) : Long.MAX_VALUE;
+		long elevationTime = elevationNext < elevationSize ? elevation.getTimestamp(index(elevationOrder, elevationNext)) : Long.MAX_VALUE;
+		if (gpsNext >= gpsSize && heartRateNext >= heartRateSize && elevationNext >= elevationSize) {
+			return false;
+		}
+		timestamp = Math.min(gpsTime, Math.min(heartRateTime, elevationTime));
+
+		gpsIndex = -1;
+		while (gpsNext < gpsSize && gps.getTimestamp(index(gpsOrder, gpsNext)) == timestamp) {
+			int i = index(gpsOrder, gpsNext++);
+			if (gpsIndex < 0) {
+				gpsIndex = i;
+			}
+		}
+		heartRateIndex = -1;
+		while (heartRateNext < heartRateSize && heartRate.getTimestamp(index(heartRateOrder, heartRateNext)) == timestamp) {
+			int i = index(heartRateOrder, heartRateNext++);
+			if (heartRateIndex < 0) {
+				heartRateIndex = i;
+			}
+		}
+		elevationIndex = -1;
+		while (elevationNext < elevationSize && elevation.getTimestamp(index(elevationOrder, elevationNext)) == timestamp) {
+			int i = index(elevationOrder, elevationNext++);
+			if (elevationIndex < 0) {
+				elevationIndex = i;
+			}
+		}
+		return true;
+	}
+
+	public GpsTrack getGpsTrack() {
+		return gps;
+	}
+
+	public HeartRateTrack getHeartRateTrack() {
+		return heartRate;
+	}
+
+	public ElevationTrack getElevationTrack() {
+		return elevation;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @return index of the GPS data point at the current time, or -1
+	 */
+	public int getGpsIndex() {
+		return gpsIndex;
+	}
+
+	/**
+	 * @return index of the heart rate data point at the current time, or -1
+	 */
+	public int getHeartRateIndex() {
+		return heartRateIndex;
+	}
+
+	/**
+	 * @return index of the elevation data point at the current time, or -1
+	 */
+	public int getElevationIndex() {
+		return elevationIndex;
+	}
+
+	/**
+	 * @return GPS altitude, or elevation if the GPS altitude is unknown, or NaN
+	 */
+	public double getAltitude() {
+		double altitude = gpsIndex >= 0 ? gps.getAltitude(gpsIndex) : Double.NaN;
+		if (Double.isNaN(altitude) && elevationIndex >= 0) {
+			altitude = elevation.getElevation(elevationIndex);
+		}
+		return altitude;
+	}
+
+	/**
+	 * @return distance of the GPS, heart rate or elevation data point (in this order)
+	 */
+	public int getDistance() {
+		if (gpsIndex >= 0) {
+			return gps.getDistance(gpsIndex);
+		} else if (heartRateIndex >= 0) {
+			return heartRate.getDistance(heartRateIndex);
+		}
+		return elevation.getDistance(elevationIndex);
+	}
+
+	/**
+	 * Complete unknown GPS altitudes with elevation data at the same time.
+	 * @param gps GPS track
+	 * @param elevation elevation track, or null
+	 * @return GPS track with elevation (the same track if nothing was completed)
+	 */
+	public static GpsTrack withElevation(GpsTrack gps, ElevationTrack elevation) {
+		if (gps == null || elevation == null || elevation.size() == 0) {
+			return gps;
+		}
+		GpsTrack completed = null;
+		TrackpointMerger merger = new TrackpointMerger(gps, null, elevation);
+		while (merger.next()) {
+			int i = merger.getGpsIndex();
+			if (i >= 0 && merger.getElevationIndex() >= 0 && Double.isNaN(gps.getAltitude(i))) {
+				if (completed == null) {
+					completed = copy(gps);
+				}
+				completed.setAltitude(i, merger.getAltitude());
+			}
+		}
+		return completed != null ? completed : gps;
+	}
+
+	private static GpsTrack copy(GpsTrack gps) {
+		GpsTrack copy = new GpsTrack(gps.size());
+		for (int i = 0; i < gps.size(); i++) {
+			copy.add(gps.getTimestamp(i), gps.getLatitude(i), gps.getLongitude(i), gps.getAltitude(i), gps.getSpeed(i), gps.getDuration(i), gps.getDistance(i));
+		}
+		return copy;
+	}
+
+	/**
+	 * @return indexes of the data in (stable) time order, or null if already in time order
+	 */
+	private static int[] timeOrder(IntToLongFunction timestamp, int size) {
+		for (int i = 1; i < size; i++) {
+			if (timestamp.applyAsLong(i) < timestamp.applyAsLong(i - 1)) {
+				Integer[] order = new Integer[size];
+				for (int k = 0; k < size; k++) {
+					order[k] = k;
+				}
+				Arrays.sort(order, Comparator.comparingLong(timestamp::applyAsLong));
+				return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+			}
+		}
+		return null;
+	}
+
+	private static int index(int[] order, int i) {
+		return order != null ? order[i] : i;
+	}
+
+}
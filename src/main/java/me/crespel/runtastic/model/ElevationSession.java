@@ -6,11 +6,38 @@ import lombok.Data;
 import lombok.ToString;
 
 @Data
-@ToString(of = {"fileName", "elevationData"})
+@ToString(of = {"fileName", "elevationData", "track"})
 public class ElevationSession {
  
     private String fileName;
 
 	private List<ElevationData> elevationData;
 
+	private ElevationTrack track;
+
+	public List<ElevationData> getElevationData() {
+		if (elevationData == null && track != null) {
+			// streamed data, convert on demand
+			return track.toElevationData();
+		}
+		return elevationData;
+	}
+
+	/**
+	 * Get the data as primitive track (converted if it was bound to objects).
+	 */
+	public ElevationTrack asTrack() {
+		if (track == null && elevationData != null) {
+			return ElevationTrack.fromElevationData(elevationData);
+		}
+		return track;
+	}
+
+	public int size() {
+		if (track != null) {
+			return track.size();
+		}
+		return elevationData != null ? elevationData.size() : 0;
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,166 @@
+package me.crespel.runtastic.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Runtastic elevation data (\Sport-sessions\Elevation-data), stored as parallel primitive arrays.
+ * Missing values are stored as 0.
+ * Iterating over a track returns the same (reused) point for each index.
+ */
+public class ElevationTrack implements Iterable<ElevationTrack.Point> {
+
+	private int size;
+	private long[] timestamp;
+	private int[] elevation;
+	private int[] duration;
+	private int[] distance;
+
+	public ElevationTrack() {
+		this(256);
+	}
+
+	public ElevationTrack(int capacity) {
+		timestamp = new long[capacity];
+		elevation = new int[capacity];
+		duration = new int[capacity];
+		distance = new int[capacity];
+	}
+
+	public void add(long timestamp, int elevation, int duration, int distance) {
+		if (size == this.timestamp.length) {
+			grow(size + (size >> 1) + 1);
+		}
+		this.timestamp[size] = timestamp;
+		this.elevation[size] = elevation;
+		this.duration[size] = duration;
+		this.distance[size] = distance;
+		size++;
+	}
+
+	public void trimToSize() {
+		if (size < timestamp.length) {
+			grow(size);
+		}
+	}
+
+	private void grow(int capacity) {
+		timestamp = Arrays.copyOf(timestamp, capacity);
+		elevation = Arrays.copyOf(elevation, capacity);
+		duration = Arrays.copyOf(duration, capacity);
+		distance = Arrays.copyOf(distance, capacity);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long getTimestamp(int index) {
+		return timestamp[index];
+	}
+
+	public int getElevation(int index) {
+		return elevation[index];
+	}
+
+	public int getDuration(int index) {
+		return duration[index];
+	}
+
+	public int getDistance(int index) {
+		return distance[index];
+	}
+
+	@Override
+	public Iterator<Point> iterator() {
+		return new Iterator<Point>() {
+			private final Point point = new Point();
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public Point next() {
+				if (next >= size) {
+					throw new NoSuchElementException();
+				}
+				point.index = next++;
+				return point;
+			}
+		};
+	}
+
+	/**
+	 * Build a track from elevation data objects.
+	 * @param data list of elevation data
+	 * @return track
+	 */
+	public static ElevationTrack fromElevationData(List<ElevationData> data) {
+		ElevationTrack track = new ElevationTrack(data.size());
+		for (ElevationData item : data) {
+			track.add(item.getTimestamp() != null ? item.getTimestamp().getTime() : 0,
+					item.getElevation() != null ? item.getElevation() : 0,
+					item.getDuration() != null ? item.getDuration() : 0, item.getDistance() != null ? item.getDistance() : 0);
+		}
+		return track;
+	}
+
+	/**
+	 * Convert this track to elevation data objects (e.g. for code not yet using primitive tracks).
+	 * @return list of elevation data
+	 */
+	public List<ElevationData> toElevationData() {
+		List<ElevationData> list = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			ElevationData ele = new ElevationData();
+			ele.setTimestamp(new Date(timestamp[i]));
+			ele.setElevation(elevation[i]);
+			ele.setDuration(duration[i]);
+			ele.setDistance(distance[i]);
+			list.add(ele);
+		}
+		return list;
+	}
+
+	@Override
+	public String toString() {
+		return "ElevationTrack(size=" + size + ")";
+	}
+
+	/**
+	 * View of one point of the track.
+	 */
+	public class Point {
+
+		private int index;
+
+		public int getIndex() {
+			return index;
+		}
+
+		public long getTimestamp() {
+			return timestamp[index];
+		}
+
+		public int getElevation() {
+			return elevation[index];
+		}
+
+		public int getDuration() {
+			return duration[index];
+		}
+
+		public int getDistance() {
+			return distance[index];
+		}
+
+	}
+
+}
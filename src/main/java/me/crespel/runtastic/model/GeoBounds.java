@@ -0,0 +1,85 @@
+package me.crespel.runtastic.model;
+
+import java.math.BigDecimal;
+
+import com.topografix.gpx._1._1.BoundsType;
+
+import lombok.Value;
+
+/**
+ * Geographic bounds (latitude and longitude ranges), as primitive doubles.
+ * Bounds without any point are empty (all edges NaN). Instances are immutable, and converted to the GPX BoundsType only for output.
+ */
+@Value
+public class GeoBounds {
+
+	public static final GeoBounds EMPTY = new GeoBounds(Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+
+	double minLat;
+	double minLon;
+	double maxLat;
+	double maxLon;
+
+	/**
+	 * @return bounds of GPX bounds, or null if null or an edge is missing
+	 */
+	public static GeoBounds of(BoundsType bounds) {
+		if (bounds == null || bounds.getMinlat() == null || bounds.getMinlon() == null || bounds.getMaxlat() == null || bounds.getMaxlon() == null) {
+			return null;
+		}
+		return new GeoBounds(bounds.getMinlat().doubleValue(), bounds.getMinlon().doubleValue(), bounds.getMaxlat().doubleValue(), bounds.getMaxlon().doubleValue());
+	}
+
+	/**
+	 * @return bounds of a track (empty if it has no point)
+	 */
+	public static GeoBounds of(GpsTrack track) {
+		if (track == null || !track.hasBounds()) {
+			return EMPTY;
+		}
+		return new GeoBounds(track.getMinLatitude(), track.getMinLongitude(), track.getMaxLatitude(), track.getMaxLongitude());
+	}
+
+	public boolean isEmpty() {
+		return Double.isNaN(minLat);
+	}
+
+	/**
+	 * @return bounds including both bounds
+	 */
+	public GeoBounds union(GeoBounds other) {
+		if (other == null || other.isEmpty()) {
+			return this;
+		} else if (isEmpty()) {
+			return other;
+		}
+		return new GeoBounds(Math.min(minLat, other.minLat), Math.min(minLon, other.minLon), Math.max(maxLat, other.maxLat), Math.max(maxLon, other.maxLon));
+	}
+
+	/**
+	 * @return bounds included in both bounds (with inverted edges if they do not intersect)
+	 */
+	public GeoBounds intersection(GeoBounds other) {
+		if (other == null || other.isEmpty()) {
+			return this;
+		} else if (isEmpty()) {
+			return other;
+		}
+		return new GeoBounds(Math.max(minLat, other.minLat), Math.max(minLon, other.minLon), Math.min(maxLat, other.maxLat), Math.min(maxLon, other.maxLon));
+	}
+
+	/**
+	 * @return GPX bounds (with no edge if empty)
+	 */
+	public BoundsType toBoundsType() {
+		BoundsType bounds = new BoundsType();
+		if (!isEmpty()) {
+			bounds.setMinlat(BigDecimal.valueOf(minLat));
+			bounds.setMinlon(BigDecimal.valueOf(minLon));
+			bounds.setMaxlat(BigDecimal.valueOf(maxLat));
+			bounds.setMaxlon(BigDecimal.valueOf(maxLon));
+		}
+		return bounds;
+	}
+
+}
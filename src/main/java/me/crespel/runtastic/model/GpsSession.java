@@ -11,4 +11,31 @@ public class GpsSession {
 
     private List<GpsData> gpsData;
 
+    private GpsTrack track;
+
+    public List<GpsData> getGpsData() {
+        if (gpsData == null && track != null) {
+            // streamed data, convert on demand
+            return track.toGpsData();
+        }
+        return gpsData;
+    }
+
+    /**
+     * Get the data as primitive track (converted if it was bound to objects).
+     */
+    public GpsTrack asTrack() {
+        if (track == null && gpsData != null) {
+            return GpsTrack.fromGpsData(gpsData);
+        }
+        return track;
+    }
+
+    public int size() {
+        if (track != null) {
+            return track.size();
+        }
+        return gpsData != null ? gpsData.size() : 0;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,274 @@
+package me.crespel.runtastic.model;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Runtastic GPS data (\Sport-sessions\GPS-data), stored as parallel primitive arrays.
+ * Missing coordinates are stored as NaN, missing durations and distances as 0.
+ * Iterating over a track returns the same (reused) point for each index.
+ */
+public class GpsTrack implements Iterable<GpsTrack.Point> {
+
+	private int size;
+	private long[] timestamp;
+	private double[] latitude;
+	private double[] longitude;
+	private double[] altitude;
+	private double[] speed;
+	private int[] duration;
+	private int[] distance;
+
+	private double minLatitude = Double.NaN;
+	private double maxLatitude = Double.NaN;
+	private double minLongitude = Double.NaN;
+	private double maxLongitude = Double.NaN;
+	private long startTime;
+	private long endTime;
+
+	public GpsTrack() {
+		this(256);
+	}
+
+	public GpsTrack(int capacity) {
+		timestamp = new long[capacity];
+		latitude = new double[capacity];
+		longitude = new double[capacity];
+		altitude = new double[capacity];
+		speed = new double[capacity];
+		duration = new int[capacity];
+		distance = new int[capacity];
+	}
+
+	public void add(long timestamp, double latitude, double longitude, double altitude, double speed, int duration, int distance) {
+		if (size == this.timestamp.length) {
+			grow(size + (size >> 1) + 1);
+		}
+		this.timestamp[size] = timestamp;
+		this.latitude[size] = latitude;
+		this.longitude[size] = longitude;
+		this.altitude[size] = altitude;
+		this.speed[size] = speed;
+		this.duration[size] = duration;
+		this.distance[size] = distance;
+		size++;
+		if (timestamp != 0) {
+			startTime = startTime == 0 ? timestamp : Math.min(startTime, timestamp);
+			endTime = Math.max(endTime, timestamp);
+		}
+		if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+			// no position, bounds unchanged
+		} else if (!hasBounds()) {
+			minLatitude = maxLatitude = latitude;
+			minLongitude = maxLongitude = longitude;
+		} else {
+			minLatitude = Math.min(minLatitude, latitude);
+			maxLatitude = Math.max(maxLatitude, latitude);
+			minLongitude = Math.min(minLongitude, longitude);
+			maxLongitude = Math.max(maxLongitude, longitude);
+		}
+	}
+
+	public void trimToSize() {
+		if (size < timestamp.length) {
+			grow(size);
+		}
+	}
+
+	private void grow(int capacity) {
+		timestamp = Arrays.copyOf(timestamp, capacity);
+		latitude = Arrays.copyOf(latitude, capacity);
+		longitude = Arrays.copyOf(longitude, capacity);
+		altitude = Arrays.copyOf(altitude, capacity);
+		speed = Arrays.copyOf(speed, capacity);
+		duration = Arrays.copyOf(duration, capacity);
+		distance = Arrays.copyOf(distance, capacity);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long getTimestamp(int index) {
+		return timestamp[index];
+	}
+
+	public double getLatitude(int index) {
+		return latitude[index];
+	}
+
+	public double getLongitude(int index) {
+		return longitude[index];
+	}
+
+	public double getAltitude(int index) {
+		return altitude[index];
+	}
+
+	public void setAltitude(int index, double altitude) {
+		this.altitude[index] = altitude;
+	}
+
+	public double getSpeed(int index) {
+		return speed[index];
+	}
+
+	public int getDuration(int index) {
+		return duration[index];
+	}
+
+	public int getDistance(int index) {
+		return distance[index];
+	}
+
+	public boolean hasBounds() {
+		return !Double.isNaN(minLatitude);
+	}
+
+	public double getMinLatitude() {
+		return minLatitude;
+	}
+
+	public double getMaxLatitude() {
+		return maxLatitude;
+	}
+
+	public double getMinLongitude() {
+		return minLongitude;
+	}
+
+	public double getMaxLongitude() {
+		return maxLongitude;
+	}
+
+	/**
+	 * @return earliest timestamp of the track (epoch millis), or 0 if unknown
+	 */
+	public long getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * @return latest timestamp of the track (epoch millis), or 0 if unknown
+	 */
+	public long getEndTime() {
+		return endTime;
+	}
+
+	@Override
+	public Iterator<Point> iterator() {
+		return new Iterator<Point>() {
+			private final Point point = new Point();
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public Point next() {
+				if (next >= size) {
+					throw new NoSuchElementException();
+				}
+				point.index = next++;
+				return point;
+			}
+		};
+	}
+
+	/**
+	 * Build a track from GPS data objects.
+	 * @param gpsData list of GPS data
+	 * @return track
+	 */
+	public static GpsTrack fromGpsData(List<GpsData> gpsData) {
+		GpsTrack track = new GpsTrack(gpsData.size());
+		for (GpsData gps : gpsData) {
+			track.add(gps.getTimestamp() != null ? gps.getTimestamp().getTime() : 0,
+					toDouble(gps.getLatitude()), toDouble(gps.getLongitude()), toDouble(gps.getAltitude()), toDouble(gps.getSpeed()),
+					gps.getDuration() != null ? gps.getDuration() : 0, gps.getDistance() != null ? gps.getDistance() : 0);
+		}
+		return track;
+	}
+
+	/**
+	 * Convert this track to GPS data objects (e.g. for code not yet using primitive tracks).
+	 * @return list of GPS data
+	 */
+	public List<GpsData> toGpsData() {
+		List<GpsData> list = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			GpsData gps = new GpsData();
+			gps.setTimestamp(new Date(timestamp[i]));
+			gps.setLatitude(toBigDecimal(latitude[i]));
+			gps.setLongitude(toBigDecimal(longitude[i]));
+			gps.setAltitude(toBigDecimal(altitude[i]));
+			gps.setSpeed(toBigDecimal(speed[i]));
+			gps.setDuration(duration[i]);
+			gps.setDistance(distance[i]);
+			list.add(gps);
+		}
+		return list;
+	}
+
+	private static BigDecimal toBigDecimal(double value) {
+		return Double.isNaN(value) ? null : BigDecimal.valueOf(value);
+	}
+
+	private static double toDouble(BigDecimal value) {
+		return value != null ? value.doubleValue() : Double.NaN;
+	}
+
+	@Override
+	public String toString() {
+		return "GpsTrack(size=" + size + ")";
+	}
+
+	/**
+	 * View of one point of the track.
+	 */
+	public class Point {
+
+		private int index;
+
+		public int getIndex() {
+			return index;
+		}
+
+		public long getTimestamp() {
+			return timestamp[index];
+		}
+
+		public double getLatitude() {
+			return latitude[index];
+		}
+
+		public double getLongitude() {
+			return longitude[index];
+		}
+
+		public double getAltitude() {
+			return altitude[index];
+		}
+
+		public double getSpeed() {
+			return speed[index];
+		}
+
+		public int getDuration() {
+			return duration[index];
+		}
+
+		public int getDistance() {
+			return distance[index];
+		}
+
+	}
+
+}
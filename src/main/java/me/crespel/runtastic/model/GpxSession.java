@@ -1,16 +1,110 @@
 package me.crespel.runtastic.model;
 
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+
 import com.topografix.gpx._1._1.GpxType;
+import com.topografix.gpx._1._1.MetadataType;
+import com.topografix.gpx._1._1.TrkType;
+import com.topografix.gpx._1._1.TrksegType;
+import com.topografix.gpx._1._1.WptType;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
 @Data
-@ToString(of = {"fileName", "gpx"})
+@EqualsAndHashCode(doNotUseGetters = true)
+@ToString(of = {"fileName", "gpx", "track"}, doNotUseGetters = true)
 public class GpxSession {
-    
+
 	private String fileName;
 
     private GpxType gpx;
 
-}
\ No newline at end of file
+    // streamed track points (see StreamingGpxParser), and start index of each track segment
+    private GpsTrack track;
+    private int[] segments;
+    // bounds of the session the track was written with (see GpxSportSessionMapper), set as metadata on conversion
+    private GeoBounds bounds;
+
+    public GpxType getGpx() {
+        if (gpx == null && track != null) {
+            // streamed data, convert on demand
+            gpx = toGpx(track, segments);
+            if (bounds != null) {
+                MetadataType meta = new MetadataType();
+                meta.setBounds(bounds.toBoundsType());
+                gpx.setMetadata(meta);
+            }
+        }
+        return gpx;
+    }
+
+    /**
+     * @return bounds of the session (as set, or from the GPX metadata), or null if unknown
+     */
+    public GeoBounds getBounds() {
+        if (bounds == null && gpx != null && gpx.getMetadata() != null) {
+            return GeoBounds.of(gpx.getMetadata().getBounds());
+        }
+        return bounds;
+    }
+
+    /**
+     * Set the GPX data, replacing the streamed track (if any).
+     */
+    public void setGpx(GpxType gpx) {
+        this.gpx = gpx;
+        this.track = null;
+        this.segments = null;
+        this.bounds = null;
+    }
+
+    /**
+     * Convert streamed track points to a GPX document with one track (e.g. for code not yet using primitive tracks).
+     * @param track track points
+     * @param segments start index of each track segment
+     * @return GPX document
+     */
+    public static GpxType toGpx(GpsTrack track, int[] segments) {
+        DatatypeFactory dtf;
+        try {
+            dtf = DatatypeFactory.newInstance();
+        } catch (DatatypeConfigurationException e) {
+            throw new RuntimeException(e);
+        }
+        GpxType gpx = new GpxType();
+        gpx.setVersion("1.1");
+        TrkType trk = new TrkType();
+        for (int s = 0; s < segments.length; s++) {
+            int end = s + 1 < segments.length ? segments[s + 1] : track.size();
+            TrksegType trkseg = new TrksegType();
+            for (int i = segments[s]; i < end; i++) {
+                WptType wpt = new WptType();
+                wpt.setLat(toBigDecimal(track.getLatitude(i)));
+                wpt.setLon(toBigDecimal(track.getLongitude(i)));
+                wpt.setEle(toBigDecimal(track.getAltitude(i)));
+                if (track.getTimestamp(i) != 0) {
+                    GregorianCalendar cal = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+                    cal.setTime(new Date(track.getTimestamp(i)));
+                    wpt.setTime(dtf.newXMLGregorianCalendar(cal));
+                }
+                trkseg.getTrkpt().add(wpt);
+            }
+            trk.getTrkseg().add(trkseg);
+        }
+        gpx.getTrk().add(trk);
+        return gpx;
+    }
+
+    private static BigDecimal toBigDecimal(double value) {
+        return Double.isNaN(value) ? null : BigDecimal.valueOf(value);
+    }
+
+}
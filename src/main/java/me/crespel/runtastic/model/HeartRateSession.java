@@ -11,4 +11,31 @@ public class HeartRateSession {
 
     private List<HeartRateData> heartRateData;
 
+    private HeartRateTrack track;
+
+    public List<HeartRateData> getHeartRateData() {
+        if (heartRateData == null && track != null) {
+            // streamed data, convert on demand
+            return track.toHeartRateData();
+        }
+        return heartRateData;
+    }
+
+    /**
+     * Get the data as primitive track (converted if it was bound to objects).
+     */
+    public HeartRateTrack asTrack() {
+        if (track == null && heartRateData != null) {
+            return HeartRateTrack.fromHeartRateData(heartRateData);
+        }
+        return track;
+    }
+
+    public int size() {
+        if (track != null) {
+            return track.size();
+        }
+        return heartRateData != null ? heartRateData.size() : 0;
+    }
+
 }
\ No newline at end of file
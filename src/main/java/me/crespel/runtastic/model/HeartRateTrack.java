@@ -0,0 +1,166 @@
+package me.crespel.runtastic.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Runtastic heart rate data (\Sport-sessions\Heart-rate-data), stored as parallel primitive arrays.
+ * Missing values are stored as 0.
+ * Iterating over a track returns the same (reused) point for each index.
+ */
+public class HeartRateTrack implements Iterable<HeartRateTrack.Point> {
+
+	private int size;
+	private long[] timestamp;
+	private int[] heartRate;
+	private int[] duration;
+	private int[] distance;
+
+	public HeartRateTrack() {
+		this(256);
+	}
+
+	public HeartRateTrack(int capacity) {
+		timestamp = new long[capacity];
+		heartRate = new int[capacity];
+		duration = new int[capacity];
+		distance = new int[capacity];
+	}
+
+	public void add(long timestamp, int heartRate, int duration, int distance) {
+		if (size == this.timestamp.length) {
+			grow(size + (size >> 1) + 1);
+		}
+		this.timestamp[size] = timestamp;
+		this.heartRate[size] = heartRate;
+		this.duration[size] = duration;
+		this.distance[size] = distance;
+		size++;
+	}
+
+	public void trimToSize() {
+		if (size < timestamp.length) {
+			grow(size);
+		}
+	}
+
+	private void grow(int capacity) {
+		timestamp = Arrays.copyOf(timestamp, capacity);
+		heartRate = Arrays.copyOf(heartRate, capacity);
+		duration = Arrays.copyOf(duration, capacity);
+		distance = Arrays.copyOf(distance, capacity);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long getTimestamp(int index) {
+		return timestamp[index];
+	}
+
+	public int getHeartRate(int index) {
+		return heartRate[index];
+	}
+
+	public int getDuration(int index) {
+		return duration[index];
+	}
+
+	public int getDistance(int index) {
+		return distance[index];
+	}
+
+	@Override
+	public Iterator<Point> iterator() {
+		return new Iterator<Point>() {
+			private final Point point = new Point();
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public Point next() {
+				if (next >= size) {
+					throw new NoSuchElementException();
+				}
+				point.index = next++;
+				return point;
+			}
+		};
+	}
+
+	/**
+	 * Build a track from heart rate data objects.
+	 * @param data list of heart rate data
+	 * @return track
+	 */
+	public static HeartRateTrack fromHeartRateData(List<HeartRateData> data) {
+		HeartRateTrack track = new HeartRateTrack(data.size());
+		for (HeartRateData item : data) {
+			track.add(item.getTimestamp() != null ? item.getTimestamp().getTime() : 0,
+					item.getHeartRate() != null ? item.getHeartRate() : 0,
+					item.getDuration() != null ? item.getDuration() : 0, item.getDistance() != null ? item.getDistance() : 0);
+		}
+		return track;
+	}
+
+	/**
+	 * Convert this track to heart rate data objects (e.g. for code not yet using primitive tracks).
+	 * @return list of heart rate data
+	 */
+	public List<HeartRateData> toHeartRateData() {
+		List<HeartRateData> list = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			HeartRateData hr = new HeartRateData();
+			hr.setTimestamp(new Date(timestamp[i]));
+			hr.setHeartRate(heartRate[i]);
+			hr.setDuration(duration[i]);
+			hr.setDistance(distance[i]);
+			list.add(hr);
+		}
+		return list;
+	}
+
+	@Override
+	public String toString() {
+		return "HeartRateTrack(size=" + size + ")";
+	}
+
+	/**
+	 * View of one point of the track.
+	 */
+	public class Point {
+
+		private int index;
+
+		public int getIndex() {
+			return index;
+		}
+
+		public long getTimestamp() {
+			return timestamp[index];
+		}
+
+		public int getHeartRate() {
+			return heartRate[index];
+		}
+
+		public int getDuration() {
+			return duration[index];
+		}
+
+		public int getDistance() {
+			return distance[index];
+		}
+
+	}
+
+}
@@ -0,0 +1,100 @@
+package me.crespel.runtastic.model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Photo index.
+ * This class maps photo ids to the id of the sport session they belong to (\Photos\Images-meta-data\Sport-session-albums),
+ * and can be saved to (and loaded from) a properties file, with the state of the albums it was built from
+ * (export root, album count and last modification), to check that a saved index is up to date.
+ */
+public class PhotoIndex {
+
+	// keys of the album state in the properties file (photo ids are numeric)
+	private static final String EXPORT_ROOT_KEY = "_export.root";
+	private static final String ALBUM_COUNT_KEY = "_album.count";
+	private static final String ALBUMS_MODIFIED_KEY = "_album.modified";
+
+	private final Map<String, String> sessionIds = new ConcurrentHashMap<>();
+	private String exportRoot;
+	private int albumCount;
+	private long albumsModified;
+
+	public void put(String photoId, String sessionId) {
+		sessionIds.putIfAbsent(photoId, sessionId);
+	}
+
+	/**
+	 * @param photoId photo id (e.g. "5097940")
+	 * @return sport session id, or null if the photo doesn't belong to any sport session
+	 */
+	public String getSessionId(String photoId) {
+		return photoId != null ? sessionIds.get(photoId) : null;
+	}
+
+	public int size() {
+		return sessionIds.size();
+	}
+
+	/**
+	 * Set the state of the albums the index is built from.
+	 * @param exportRoot canonical path of the export root
+	 * @param albumCount number of album files
+	 * @param albumsModified last modification of the album files
+	 */
+	public void setSource(String exportRoot, int albumCount, long albumsModified) {
+		this.exportRoot = exportRoot;
+		this.albumCount = albumCount;
+		this.albumsModified = albumsModified;
+	}
+
+	/**
+	 * @return true if the index was built from albums in this state (see {@link #setSource(String, int, long)})
+	 */
+	public boolean isSource(String exportRoot, int albumCount, long albumsModified) {
+		return exportRoot.equals(this.exportRoot) && albumCount == this.albumCount && albumsModified == this.albumsModified;
+	}
+
+	public static PhotoIndex load(File file) throws IOException {
+		Properties props = new Properties();
+		try (InputStream in = new FileInputStream(file)) {
+			props.load(in);
+		}
+		PhotoIndex index = new PhotoIndex();
+		try {
+			index.setSource(props.getProperty(EXPORT_ROOT_KEY), Integer.parseInt(props.getProperty(ALBUM_COUNT_KEY, "-1")),
+					Long.parseLong(props.getProperty(ALBUMS_MODIFIED_KEY, "-1")));
+		} catch (NumberFormatException e) {
+			// not valid (e.g. written by another version): never up to date
+			index.setSource(null, -1, -1);
+		}
+		for (String photoId : props.stringPropertyNames()) {
+			if (!photoId.startsWith("_")) {
+				index.put(photoId, props.getProperty(photoId));
+			}
+		}
+		return index;
+	}
+
+	public void save(File file) throws IOException {
+		Properties props = new Properties();
+		props.putAll(sessionIds);
+		if (exportRoot != null) {
+			props.setProperty(EXPORT_ROOT_KEY, exportRoot);
+			props.setProperty(ALBUM_COUNT_KEY, Integer.toString(albumCount));
+			props.setProperty(ALBUMS_MODIFIED_KEY, Long.toString(albumsModified));
+		}
+		try (OutputStream out = new FileOutputStream(file)) {
+			props.store(out, "Runtastic photo id to sport session id");
+		}
+	}
+
+}
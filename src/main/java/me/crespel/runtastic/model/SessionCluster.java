@@ -0,0 +1,60 @@
+package me.crespel.runtastic.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cluster of overlapping (or compound) sport sessions, shared by all its sessions.
+ * Clusters are compared by identity: their sessions reference them.
+ */
+public class SessionCluster {
+
+	private final int id;
+	private final List<SportSession> sessions;
+
+	// inner and outer bounds of all sessions (overlap clusters only)
+	private GeoBounds innerBound;
+	private GeoBounds outerBound;
+
+	public SessionCluster(int id) {
+		this(id, new ArrayList<>());
+	}
+
+	public SessionCluster(int id, List<SportSession> sessions) {
+		this.id = id;
+		this.sessions = sessions;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * @return sessions of this cluster, in the order of the analyzed sessions
+	 */
+	public List<SportSession> getSessions() {
+		return sessions;
+	}
+
+	public GeoBounds getInnerBound() {
+		return innerBound;
+	}
+
+	public void setInnerBound(GeoBounds innerBound) {
+		this.innerBound = innerBound;
+	}
+
+	public GeoBounds getOuterBound() {
+		return outerBound;
+	}
+
+	public void setOuterBound(GeoBounds outerBound) {
+		this.outerBound = outerBound;
+	}
+
+	@Override
+	public String toString() {
+		return "SessionCluster(id=" + id + ", size=" + sessions.size() + ")";
+	}
+
+}
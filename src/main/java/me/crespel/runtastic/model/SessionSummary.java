@@ -0,0 +1,131 @@
+package me.crespel.runtastic.model;
+
+import java.math.BigDecimal;
+
+import com.topografix.gpx._1._1.TrkType;
+import com.topografix.gpx._1._1.TrksegType;
+import com.topografix.gpx._1._1.WptType;
+
+import lombok.Data;
+
+/**
+ * Sport session summary.
+ * This class holds what the analysis of sport sessions (overlap, compound, check) needs from their GPS and GPX tracks:
+ * bounds, point count, start and end coordinates and time range, so that the tracks themselves need not be kept or mapped.
+ */
+@Data
+public class SessionSummary {
+
+	// latest modification time of the track files the summary was computed from, to detect outdated summaries
+	private long sourceModified;
+
+	private GeoBounds bounds = GeoBounds.EMPTY;
+	private int pointCount;
+	private double startLatitude = Double.NaN;
+	private double startLongitude = Double.NaN;
+	private double endLatitude = Double.NaN;
+	private double endLongitude = Double.NaN;
+	// time range of the points (epoch millis), 0 if unknown
+	private long startTime;
+	private long endTime;
+
+	/**
+	 * Add the points of a track (following the points already added).
+	 */
+	public void add(GpsTrack track) {
+		if (track == null || track.size() == 0) {
+			return;
+		}
+		bounds = bounds.union(GeoBounds.of(track));
+		if (pointCount == 0) {
+			startLatitude = track.getLatitude(0);
+			startLongitude = track.getLongitude(0);
+		}
+		endLatitude = track.getLatitude(track.size() - 1);
+		endLongitude = track.getLongitude(track.size() - 1);
+		pointCount += track.size();
+		addTime(track.getStartTime());
+		addTime(track.getEndTime());
+	}
+
+	/**
+	 * Add the points of a GPX track (following the points already added).
+	 * The extremes are compared as JAXB decimals and converted once, as the time of the first and last timed points
+	 * (track points are in time order), so that nothing is allocated or converted per point.
+	 */
+	public void add(TrkType trk) {
+		if (trk == null) {
+			return;
+		}
+		BigDecimal minLat = null, minLon = null, maxLat = null, maxLon = null;
+		WptType first = null, last = null, firstTimed = null, lastTimed = null;
+		int count = 0;
+		for (TrksegType trkseg : trk.getTrkseg()) {
+			for (WptType wpt : trkseg.getTrkpt()) {
+				BigDecimal lat = wpt.getLat();
+				BigDecimal lon = wpt.getLon();
+				if (lat != null && lon != null) {
+					if (minLat == null) {
+						minLat = maxLat = lat;
+						minLon = maxLon = lon;
+					} else {
+						if (lat.compareTo(minLat) < 0) {
+							minLat = lat;
+						} else if (lat.compareTo(maxLat) > 0) {
+							maxLat = lat;
+						}
+						if (lon.compareTo(minLon) < 0) {
+							minLon = lon;
+						} else if (lon.compareTo(maxLon) > 0) {
+							maxLon = lon;
+						}
+					}
+				}
+				if (first == null) {
+					first = wpt;
+				}
+				last = wpt;
+				if (wpt.getTime() != null) {
+					if (firstTimed == null) {
+						firstTimed = wpt;
+					}
+					lastTimed = wpt;
+				}
+				count++;
+			}
+		}
+		if (count == 0) {
+			return;
+		}
+		if (minLat != null) {
+			bounds = bounds.union(new GeoBounds(minLat.doubleValue(), minLon.doubleValue(), maxLat.doubleValue(), maxLon.doubleValue()));
+		}
+		if (pointCount == 0) {
+			startLatitude = toDouble(first.getLat());
+			startLongitude = toDouble(first.getLon());
+		}
+		endLatitude = toDouble(last.getLat());
+		endLongitude = toDouble(last.getLon());
+		pointCount += count;
+		if (firstTimed != null) {
+			addTime(firstTimed.getTime().toGregorianCalendar().getTimeInMillis());
+			addTime(lastTimed.getTime().toGregorianCalendar().getTimeInMillis());
+		}
+	}
+
+	public boolean hasBounds() {
+		return bounds != null && !bounds.isEmpty();
+	}
+
+	private void addTime(long time) {
+		if (time != 0) {
+			startTime = startTime == 0 ? time : Math.min(startTime, time);
+			endTime = Math.max(endTime, time);
+		}
+	}
+
+	private static double toDouble(BigDecimal value) {
+		return value != null ? value.doubleValue() : Double.NaN;
+	}
+
+}
@@ -0,0 +1,117 @@
+package me.crespel.runtastic.model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sport session summary index.
+ * This class maps sport session ids to their summary (see {@link SessionSummary}),
+ * and can be saved to (and loaded from) a properties file, so that the tracks are read only for new or modified sessions.
+ */
+public class SessionSummaryIndex {
+
+	private final Map<String, SessionSummary> summaries = new ConcurrentHashMap<>();
+	private volatile boolean modified;
+
+	/**
+	 * @param sessionId sport session id
+	 * @return summary, or null if not indexed
+	 */
+	public SessionSummary get(String sessionId) {
+		return sessionId != null ? summaries.get(sessionId) : null;
+	}
+
+	public void put(String sessionId, SessionSummary summary) {
+		summaries.put(sessionId, summary);
+		modified = true;
+	}
+
+	public int size() {
+		return summaries.size();
+	}
+
+	/**
+	 * @return true if summaries were put since loaded or saved
+	 */
+	public boolean isModified() {
+		return modified;
+	}
+
+	public static SessionSummaryIndex load(File file) throws IOException {
+		Properties props = new Properties();
+		try (InputStream in = new FileInputStream(file)) {
+			props.load(in);
+		}
+		SessionSummaryIndex index = new SessionSummaryIndex();
+		for (String sessionId : props.stringPropertyNames()) {
+			SessionSummary summary = parse(props.getProperty(sessionId));
+			if (summary != null) {
+				index.summaries.put(sessionId, summary);
+			}
+		}
+		return index;
+	}
+
+	public void save(File file) throws IOException {
+		Properties props = new Properties();
+		for (Map.Entry<String, SessionSummary> entry : summaries.entrySet()) {
+			props.setProperty(entry.getKey(), format(entry.getValue()));
+		}
+		try (OutputStream out = new FileOutputStream(file)) {
+			props.store(out, "Runtastic sport session id to summary: source modified, point count, min lat, min lon, max lat, max lon, start lat, start lon, end lat, end lon, start time, end time");
+		}
+		modified = false;
+	}
+
+	protected static String format(SessionSummary summary) {
+		GeoBounds bounds = summary.getBounds() != null ? summary.getBounds() : GeoBounds.EMPTY;
+		return new StringBuilder()
+			.append(summary.getSourceModified()).append(',')
+			.append(summary.getPointCount()).append(',')
+			.append(bounds.getMinLat()).append(',')
+			.append(bounds.getMinLon()).append(',')
+			.append(bounds.getMaxLat()).append(',')
+			.append(bounds.getMaxLon()).append(',')
+			.append(summary.getStartLatitude()).append(',')
+			.append(summary.getStartLongitude()).append(',')
+			.append(summary.getEndLatitude()).append(',')
+			.append(summary.getEndLongitude()).append(',')
+			.append(summary.getStartTime()).append(',')
+			.append(summary.getEndTime())
+			.toString();
+	}
+
+	/**
+	 * @return summary, or null if the value is not valid (e.g. written by another version, computed again)
+	 */
+	protected static SessionSummary parse(String value) {
+		String[] fields = value.split(",");
+		if (fields.length != 12) {
+			return null;
+		}
+		try {
+			SessionSummary summary = new SessionSummary();
+			summary.setSourceModified(Long.parseLong(fields[0]));
+			summary.setPointCount(Integer.parseInt(fields[1]));
+			GeoBounds bounds = new GeoBounds(Double.parseDouble(fields[2]), Double.parseDouble(fields[3]), Double.parseDouble(fields[4]), Double.parseDouble(fields[5]));
+			summary.setBounds(bounds.isEmpty() ? GeoBounds.EMPTY : bounds);
+			summary.setStartLatitude(Double.parseDouble(fields[6]));
+			summary.setStartLongitude(Double.parseDouble(fields[7]));
+			summary.setEndLatitude(Double.parseDouble(fields[8]));
+			summary.setEndLongitude(Double.parseDouble(fields[9]));
+			summary.setStartTime(Long.parseLong(fields[10]));
+			summary.setEndTime(Long.parseLong(fields[11]));
+			return summary;
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+}
@@ -8,17 +8,27 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
 import com.fasterxml.jackson.databind.annotation.JsonNaming;
-import com.topografix.gpx._1._1.BoundsType;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.ToString;
 
 @Data
+@EqualsAndHashCode(doNotUseGetters = true)
 @ToString(of = {"id", "sportTypeId", "startTime", "duration", "distance", "userEquipmentIds"})
 @JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class SportSession implements Comparable<SportSession> {
 
+	private static final int ELEVATION = 1;
+	private static final int GPS = 2;
+	private static final int GPX = 4;
+	private static final int HEART_RATE = 8;
+	private static final int IMAGES = 16;
+
 	@JsonIgnore
 	private String fileName;
 
@@ -76,16 +86,18 @@ public class SportSession implements Comparable<SportSession> {
 	@JsonIgnore
 	private List<ImagesMetaData> images;
 
+	// bounds, point count, start and end of the GPS and GPX tracks (see SportSessionParser.getSessionSummary)
 	@JsonIgnore
-	private List<SportSession> overlapSessions;
+	private SessionSummary summary;
 
+	// clusters of overlapping and compound sessions this session belongs to (see ExportConverter)
 	@JsonIgnore
-	private List<SportSession> compoundSessions;
+	@EqualsAndHashCode.Exclude
+	private SessionCluster overlapCluster;
 
 	@JsonIgnore
-	private BoundsType innerBound;
-	@JsonIgnore
-	private BoundsType outerBound;
+	@EqualsAndHashCode.Exclude
+	private SessionCluster compoundCluster;
 
 	@JsonIgnore
 	private User user;
@@ -95,12 +107,176 @@ public class SportSession implements Comparable<SportSession> {
 	@JsonIgnore
 	private Integer sortTag;
 
+	// loader of elevation, GPS, GPX, heart rate and images data, when parsed in lazy mode
+	@JsonIgnore
+	@EqualsAndHashCode.Exclude
+	private SportSessionLoader loader;
+	@JsonIgnore
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	@EqualsAndHashCode.Exclude
+	private int loaded;
+
+	public ElevationSession getElevationSession() {
+		if (needsLoad(ELEVATION)) {
+			elevationSession = loader.loadElevationSession(this);
+			loaded |= ELEVATION;
+		}
+		return elevationSession;
+	}
+
+	public void setElevationSession(ElevationSession elevationSession) {
+		this.elevationSession = elevationSession;
+		loaded |= ELEVATION;
+	}
+
+	public GpsSession getGpsSession() {
+		if (needsLoad(GPS)) {
+			gpsSession = loader.loadGpsSession(this);
+			loaded |= GPS;
+		}
+		return gpsSession;
+	}
+
+	public void setGpsSession(GpsSession gpsSession) {
+		this.gpsSession = gpsSession;
+		loaded |= GPS;
+	}
+
+	public GpxSession getGpxSession() {
+		if (needsLoad(GPX)) {
+			gpxSession = loader.loadGpxSession(this);
+			loaded |= GPX;
+		}
+		return gpxSession;
+	}
+
+	public void setGpxSession(GpxSession gpxSession) {
+		this.gpxSession = gpxSession;
+		loaded |= GPX;
+	}
+
+	public HeartRateSession getHeartRateSession() {
+		if (needsLoad(HEART_RATE)) {
+			heartRateSession = loader.loadHeartRateSession(this);
+			loaded |= HEART_RATE;
+		}
+		return heartRateSession;
+	}
+
+	public void setHeartRateSession(HeartRateSession heartRateSession) {
+		this.heartRateSession = heartRateSession;
+		loaded |= HEART_RATE;
+	}
+
+	public List<ImagesMetaData> getImages() {
+		if (needsLoad(IMAGES)) {
+			images = loader.loadImages(this);
+			loaded |= IMAGES;
+		}
+		return images;
+	}
+
+	public void setImages(List<ImagesMetaData> images) {
+		this.images = images;
+		loaded |= IMAGES;
+	}
+
+	/**
+	 * Load the elevation, GPS, GPX, heart rate and images data of a session parsed in lazy mode now
+	 * (e.g. in a stage doing I/O, before handing the session to a stage that only maps it).
+	 */
+	public void load() {
+		getElevationSession();
+		getGpsSession();
+		getGpxSession();
+		getHeartRateSession();
+		getImages();
+	}
+
+	/**
+	 * Drop the elevation, GPS, GPX, heart rate and images data of a session parsed in lazy mode, to release memory once processed.
+	 * This data is loaded again on next access; sessions parsed without loader keep it.
+	 */
+	public void unload() {
+		if (loader != null) {
+			elevationSession = null;
+			gpsSession = null;
+			gpxSession = null;
+			heartRateSession = null;
+			images = null;
+			loaded = 0;
+		}
+	}
+
+	/**
+	 * @return true if the data must be loaded; it is marked as loaded only once the loader returned (read again after a failure)
+	 */
+	private boolean needsLoad(int data) {
+		return loader != null && (loaded & data) == 0;
+	}
+
+	/**
+	 * @return sessions of the overlap cluster (including this session), or null if none
+	 */
+	@JsonIgnore
+	public List<SportSession> getOverlapSessions() {
+		return overlapCluster != null ? overlapCluster.getSessions() : null;
+	}
+
+	/**
+	 * Set the overlapping sessions, as a new cluster of this session only.
+	 */
+	@JsonIgnore
+	public void setOverlapSessions(List<SportSession> overlapSessions) {
+		this.overlapCluster = overlapSessions != null ? new SessionCluster(0, overlapSessions) : null;
+	}
+
+	/**
+	 * @return sessions of the compound cluster (including this session), or null if none
+	 */
+	@JsonIgnore
+	public List<SportSession> getCompoundSessions() {
+		return compoundCluster != null ? compoundCluster.getSessions() : null;
+	}
+
+	/**
+	 * Set the compound sessions, as a new cluster of this session only.
+	 */
+	@JsonIgnore
+	public void setCompoundSessions(List<SportSession> compoundSessions) {
+		this.compoundCluster = compoundSessions != null ? new SessionCluster(0, compoundSessions) : null;
+	}
+
+	/**
+	 * @return inner bound of the overlap cluster, or null if none
+	 */
+	@JsonIgnore
+	public GeoBounds getInnerBound() {
+		return overlapCluster != null ? overlapCluster.getInnerBound() : null;
+	}
+
+	/**
+	 * @return outer bound of the overlap cluster, or null if none
+	 */
+	@JsonIgnore
+	public GeoBounds getOuterBound() {
+		return overlapCluster != null ? overlapCluster.getOuterBound() : null;
+	}
+
 	public Boolean contains( String filter ) {
+		return contains(filter, null);
+	}
+
+	public Boolean contains( String filter, PhotoIndex photoIndex ) {
 		Boolean ret = false;
 		if( filter != null) {
 			if (getId().equals(filter)) {
 				// id is equal to filter (keyword)
 				ret = true;
+			} else if ((photoIndex != null) && getId().equals(photoIndex.getSessionId(filter))) {
+				// filter (keyword) is the id of a photo of this session
+				ret = true;
 			} else if ((getNotes() != null) && getNotes().contains(filter)) {
 				// notes are available and contains the filter (keyword)
 				ret = true;
@@ -0,0 +1,37 @@
+package me.crespel.runtastic.model;
+
+import java.util.List;
+
+/**
+ * Sport session loader.
+ * This interface reads the data of a sport session stored in separate files (elevation, GPS, GPX, heart rate, images),
+ * so that a sport session parsed in lazy mode reads it only on first access.
+ */
+public interface SportSessionLoader {
+
+	/**
+	 * @return elevation session, or null if not available
+	 */
+	ElevationSession loadElevationSession(SportSession session);
+
+	/**
+	 * @return GPS session, or null if not available
+	 */
+	GpsSession loadGpsSession(SportSession session);
+
+	/**
+	 * @return GPX session, or null if not available
+	 */
+	GpxSession loadGpxSession(SportSession session);
+
+	/**
+	 * @return heart rate session, or null if not available
+	 */
+	HeartRateSession loadHeartRateSession(SportSession session);
+
+	/**
+	 * @return images meta data, or null if the sport session has no album
+	 */
+	List<ImagesMetaData> loadImages(SportSession session);
+
+}
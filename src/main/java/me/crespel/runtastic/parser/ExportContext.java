@@ -0,0 +1,109 @@
+package me.crespel.runtastic.parser;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import me.crespel.runtastic.model.PhotoIndex;
+import me.crespel.runtastic.model.SessionSummaryIndex;
+import me.crespel.runtastic.model.SportSessionAlbums;
+import me.crespel.runtastic.model.User;
+
+/**
+ * Export context.
+ * This class holds the data shared by all sport sessions of one export (directory index, user, albums, photo index, summary index),
+ * so that it is resolved and parsed only once per run.
+ */
+public class ExportContext {
+
+	private final File root;
+	private final ExportIndex index;
+	private volatile User user;
+	private final ConcurrentMap<String, SportSessionAlbums> albums = new ConcurrentHashMap<>();
+	private volatile PhotoIndex photoIndex;
+	private volatile boolean albumsLoaded;
+	private File photoIndexFile;
+	private volatile SessionSummaryIndex summaryIndex;
+	private File summaryIndexFile;
+
+	public ExportContext(File root, ExportIndex index) {
+		this.root = root;
+		this.index = index;
+	}
+
+	/**
+	 * @return export root directory (containing "Sport-sessions", "Photos", "User", ...)
+	 */
+	public File getRoot() {
+		return root;
+	}
+
+	public ExportIndex getIndex() {
+		return index;
+	}
+
+	public User getUser() {
+		return user;
+	}
+
+	public void setUser(User user) {
+		this.user = user;
+	}
+
+	/**
+	 * @return sport session albums already parsed, by sport session id
+	 */
+	public ConcurrentMap<String, SportSessionAlbums> getAlbums() {
+		return albums;
+	}
+
+	/**
+	 * @return true if all albums are parsed (photo index built from them, not loaded from its file)
+	 */
+	public boolean isAlbumsLoaded() {
+		return albumsLoaded;
+	}
+
+	public void setAlbumsLoaded(boolean albumsLoaded) {
+		this.albumsLoaded = albumsLoaded;
+	}
+
+	public PhotoIndex getPhotoIndex() {
+		return photoIndex;
+	}
+
+	public void setPhotoIndex(PhotoIndex photoIndex) {
+		this.photoIndex = photoIndex;
+	}
+
+	/**
+	 * @return file to load the photo index from (and save it to), or null to build it in memory only
+	 */
+	public File getPhotoIndexFile() {
+		return photoIndexFile;
+	}
+
+	public void setPhotoIndexFile(File photoIndexFile) {
+		this.photoIndexFile = photoIndexFile;
+	}
+
+	public SessionSummaryIndex getSummaryIndex() {
+		return summaryIndex;
+	}
+
+	public void setSummaryIndex(SessionSummaryIndex summaryIndex) {
+		this.summaryIndex = summaryIndex;
+	}
+
+	/**
+	 * @return file to load the summary index from (and save it to), or null to build it in memory only
+	 */
+	public File getSummaryIndexFile() {
+		return summaryIndexFile;
+	}
+
+	public void setSummaryIndexFile(File summaryIndexFile) {
+		this.summaryIndexFile = summaryIndexFile;
+	}
+
+}
@@ -0,0 +1,97 @@
+package me.crespel.runtastic.parser;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Export directory index.
+ * This class lists each directory of an export only once, and resolves file names against this listing.
+ * From 2021 the file names in the export changed from e.g. "2337382.json" to "2012-05-25_14-56-24-UTC_2337382.json",
+ * both names are resolved in constant time (session id, photo id or "user").
+ */
+public class ExportIndex {
+
+	private static final Pattern DATE_PREFIX = Pattern.compile("^\\d{4}-\\d{2}-\\d{2}_\\d{2}-\\d{2}-\\d{2}-UTC_");
+
+	private final ConcurrentMap<File, Map<String, File>> directories = new ConcurrentHashMap<>();
+
+	/**
+	 * Resolve a file, either by its exact name or by its name without the 2021 date prefix.
+	 * @param file file to resolve
+	 * @return resolved file, or the given file if not found in the index (even if it doesn't exists)
+	 */
+	public File getFile(File file) {
+		File dir = file.getParentFile();
+		if (dir == null) {
+			return file;
+		}
+		File resolved = getEntries(dir).get(file.getName());
+		return resolved != null ? resolved : file;
+	}
+
+	/**
+	 * Check whether a file exists in the listing of its directory (by its exact name or by its name without the 2021 date prefix).
+	 */
+	public boolean contains(File file) {
+		File dir = file.getParentFile();
+		if (dir == null) {
+			return file.exists();
+		}
+		return getEntries(dir).containsKey(file.getName());
+	}
+
+	/**
+	 * List all files of a directory with the given extension.
+	 * @param dir directory to list
+	 * @param extension file name extension (e.g. ".json")
+	 * @return files found, sorted by name
+	 */
+	public File[] listFiles(File dir, String extension) {
+		List<File> files = new ArrayList<>();
+		for (File file : new LinkedHashSet<>(getEntries(dir).values())) {
+			if (file.getName().endsWith(extension)) {
+				files.add(file);
+			}
+		}
+		Collections.sort(files);
+		return files.toArray(new File[files.size()]);
+	}
+
+	/**
+	 * Forget all directory listings (e.g. after the export content changed).
+	 */
+	public void clear() {
+		directories.clear();
+	}
+
+	protected Map<String, File> getEntries(File dir) {
+		return directories.computeIfAbsent(dir.getAbsoluteFile().toPath().normalize().toFile(), this::scanDirectory);
+	}
+
+	protected Map<String, File> scanDirectory(File dir) {
+		Map<String, File> entries = new HashMap<>();
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				String name = file.getName();
+				// exact file name always wins over a name without date prefix
+				entries.put(name, file);
+				Matcher matcher = DATE_PREFIX.matcher(name);
+				if (matcher.lookingAt()) {
+					entries.putIfAbsent(name.substring(matcher.end()), file);
+				}
+			}
+		}
+		return entries;
+	}
+
+}
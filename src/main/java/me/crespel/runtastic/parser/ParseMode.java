@@ -0,0 +1,14 @@
+package me.crespel.runtastic.parser;
+
+/**
+ * Sport session parse mode.
+ */
+public enum ParseMode {
+
+	/** Bind GPS, heart rate and elevation data to one object per data point, and unmarshal GPX data with JAXB. */
+	DATABIND,
+
+	/** Stream GPS, heart rate, elevation and GPX data into primitive tracks (GPX files with unsupported content are unmarshalled with JAXB). */
+	STREAMING
+
+}
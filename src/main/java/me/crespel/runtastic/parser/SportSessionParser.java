@@ -3,22 +3,35 @@ package me.crespel.runtastic.parser;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
 
 import org.apache.commons.io.FilenameUtils;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
 
 import com.topografix.gpx._1._1.GpxType;
+import com.topografix.gpx._1._1.TrkType;
+import com.topografix.gpx._1._1.TrksegType;
 
+import me.crespel.runtastic.jfr.Events;
+import me.crespel.runtastic.jfr.FileReadEvent;
+import me.crespel.runtastic.jfr.SessionParseEvent;
 import me.crespel.runtastic.model.ElevationData;
 import me.crespel.runtastic.model.ElevationSession;
 import me.crespel.runtastic.model.GpsData;
@@ -27,10 +40,16 @@ import me.crespel.runtastic.model.GpxSession;
 import me.crespel.runtastic.model.HeartRateData;
 import me.crespel.runtastic.model.HeartRateSession;
 import me.crespel.runtastic.model.ImagesMetaData;
+import me.crespel.runtastic.model.PhotoIndex;
+import me.crespel.runtastic.model.SessionSummary;
+import me.crespel.runtastic.model.SessionSummaryIndex;
 import me.crespel.runtastic.model.Shoe;
 import me.crespel.runtastic.model.SportSession;
 import me.crespel.runtastic.model.SportSessionAlbums;
+import me.crespel.runtastic.model.SportSessionLoader;
 import me.crespel.runtastic.model.User;
+import me.crespel.runtastic.util.JaxbContextPool;
+import me.crespel.runtastic.util.Metrics;
 
 /**
  * Sport session parser.
@@ -46,70 +65,103 @@ public class SportSessionParser {
 	public static final String PHOTOS_META_DATA_DIR = "Photos" + File.separator + "Images-meta-data";
 	public static final String PHOTOS_SPORT_SESSION_ALBUMS_DIR = "Photos" + File.separator + "Images-meta-data" + File.separator + "Sport-session-albums";
 	public static final String USER_DIR = "User";
+	// album files are small: reads are bound by I/O latency, more threads than processors
+	public static final int PHOTO_INDEX_THREADS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
 
-	protected final ObjectMapper mapper = new ObjectMapper();
+	protected final ObjectMapper mapper = new ObjectMapper()
+			.registerModule(new SimpleModule().addDeserializer(Date.class, new TimestampDeserializer()));
+	protected final ExportIndex index = new ExportIndex();
+	protected final StreamingTrackParser trackParser = new StreamingTrackParser(mapper.getFactory());
+	protected final StreamingGpxParser gpxParser = new StreamingGpxParser();
+	protected ParseMode parseMode = ParseMode.DATABIND;
+	protected boolean lazy = false;
+	protected Metrics metrics = Metrics.NONE;
+
+	public ParseMode getParseMode() {
+		return parseMode;
+	}
+
+	public void setParseMode(ParseMode parseMode) {
+		this.parseMode = parseMode;
+	}
+
+	public boolean isLazy() {
+		return lazy;
+	}
+
+	/**
+	 * In lazy mode, the elevation, GPS, GPX, heart rate and images data of a sport session are not read while parsing it,
+	 * but on first access (e.g. once the session matched a filter), and can be dropped again with {@link SportSession#unload()}.
+	 */
+	public void setLazy(boolean lazy) {
+		this.lazy = lazy;
+	}
+
+	public Metrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Set the metrics recording the reads of sport sessions and their sub-files (time per file type, bytes and points read).
+	 */
+	public void setMetrics(Metrics metrics) {
+		this.metrics = metrics;
+	}
 
 	public SportSession parseSportSession(File file) throws FileNotFoundException, IOException {
 		return parseSportSession(file, false);
 	}
 
 	public SportSession parseSportSession(File file, boolean full) throws FileNotFoundException, IOException {
-		SportSession sportSession = mapper.readValue(getFile(file), SportSession.class);
-		sportSession.setFileName(file.getCanonicalPath());
+		return parseSportSession(file, full, createContext(file.getAbsoluteFile().getParentFile().getParentFile()));
+	}
 
-		if (full) {
-			File elevationDataFile = getFile(new File(new File(file.getParentFile(), ELEVATION_DATA_DIR), file.getName()));
-			if (elevationDataFile.exists()) {
-				sportSession.setElevationSession(parseElevationSession(elevationDataFile));
-			}
-			// read GPS data from JSON file
-			File gpsDataFileJSON = getFile(new File(new File(file.getParentFile(), GPS_DATA_DIR), file.getName()));
-			if (gpsDataFileJSON.exists()) {
-				sportSession.setGpsSession(parseGpsSession(gpsDataFileJSON));
-			}
-			// read GPS data from GPX file (the runtastic export contains GPS data as GPX files, starting from April-2020)
-			File gpsDataFileGPX = getFile(new File(new File(file.getParentFile(), GPS_DATA_DIR), FilenameUtils.getBaseName(file.getName()) + ".gpx"));
-			if (gpsDataFileGPX.exists()) {
-				if( sportSession.getGpxSession() == null ) {
-					sportSession.setGpxSession(new GpxSession());
-				}
-				// Load GPX file
-				try {
-					JAXBContext ctx = JAXBContext.newInstance(GpxType.class);
-					Unmarshaller um = ctx.createUnmarshaller();
-					JAXBElement<GpxType> root = (JAXBElement<GpxType>)um.unmarshal(gpsDataFileGPX);
-					GpxType gpx = root.getValue();
-					sportSession.getGpxSession().setGpx(gpx);
-				} catch (JAXBException e) {
-					throw new RuntimeException(e);
-				}
-				sportSession.getGpxSession().setFileName(gpsDataFileGPX.getCanonicalPath());
-			}
-			File heartRateDataFile = getFile(new File(new File(file.getParentFile(), HEARTRATE_DATA_DIR), file.getName()));
-			if (heartRateDataFile.exists()) {
-				sportSession.setHeartRateSession(parseHeartRateSession(heartRateDataFile));
-			}
+	/**
+	 * Create a context for an export, to share its user, albums and directory listings between sport sessions.
+	 * @param root export root directory
+	 * @return export context
+	 */
+	public ExportContext createContext(File root) {
+		return new ExportContext(root, index);
+	}
+
+	public SportSession parseSportSession(File file, boolean full, ExportContext context) throws FileNotFoundException, IOException {
+		file = getFile(file);
+		SessionParseEvent event = new SessionParseEvent();
+		event.begin();
+		long start = metrics.start();
+		SportSession sportSession = mapper.readValue(file, SportSession.class);
+		sportSession.setFileName(file.getCanonicalPath());
+		if (metrics.isEnabled()) {
+			metrics.record("parse.session", start);
+			metrics.add(Metrics.BYTES_READ, file.length());
+		}
+		if (event.shouldCommit()) {
+			event.sessionId = sportSession.getId();
+			event.file = file.getPath();
+			event.bytes = file.length();
+			event.commit();
 		}
 
 		// read photo session data (\Photos\Images-meta-data\Sport-session-albums)
 		// From 2021 in general the file name changed from "ed613898-dd1f-4ea5-a1c8-f89bcf882dd8.json" to "2011-05-08_07-40-05-UTC_ed613898-dd1f-4ea5-a1c8-f89bcf882dd8.json"
 		// But the "Sport-session-albums" are still w/o date and time.
-		File photoSessionDataFile = getFile(new File(new File(file.getParentFile().getParentFile(), PHOTOS_SPORT_SESSION_ALBUMS_DIR), sportSession.getId()+".json"));
-		if (photoSessionDataFile.exists()) {
-			sportSession.setSessionAlbum(parseSportSessionAlbumsData(photoSessionDataFile));
-			// read photo meta data (images mate data; \Photos\Images-meta-data)
-			List<ImagesMetaData> images = new ArrayList<>();
-			for (String photo : sportSession.getSessionAlbum().getPhotosIds()) {
-				File photoMetaDataFile = getFile(new File(new File(file.getParentFile().getParentFile(), PHOTOS_META_DATA_DIR), photo + ".json"));
-				if (photoMetaDataFile.exists()) {
-					images.add(parseImagesMetaData(photoMetaDataFile));
-				}
+		sportSession.setSessionAlbum(getSportSessionAlbum(context, sportSession.getId()));
+
+		if (lazy) {
+			// elevation, GPS, GPX, heart rate and images data are read on first access
+			sportSession.setLoader(new LazyLoader(file, full, context));
+		} else {
+			if (full) {
+				sportSession.setElevationSession(loadElevationSession(file));
+				sportSession.setGpsSession(loadGpsSession(file));
+				sportSession.setGpxSession(loadGpxSession(file));
+				sportSession.setHeartRateSession(loadHeartRateSession(file));
 			}
-			Collections.sort(images);
-			sportSession.setImages(images);
+			sportSession.setImages(loadImages(context, sportSession.getSessionAlbum()));
 		}
-		// read and add user
-		sportSession.setUser(parseUser(getFile(new File(new File(file.getParentFile().getParentFile(), USER_DIR), "user.json"))));
+		// read and add user (shared by all sessions of the export)
+		sportSession.setUser(getUser(context));
 
 		if( (sportSession.getNotes() != null) && !sportSession.getNotes().equals("")) {
 			List<String> tags = new ArrayList<>();
@@ -141,37 +193,365 @@ public class SportSessionParser {
 	}
 
 
+	public ElevationSession loadElevationSession(File sportSessionFile) throws FileNotFoundException, IOException {
+		File elevationDataFile = getFile(new File(new File(sportSessionFile.getParentFile(), ELEVATION_DATA_DIR), sportSessionFile.getName()));
+		return elevationDataFile.exists() ? parseElevationSession(elevationDataFile) : null;
+	}
+
+	public GpsSession loadGpsSession(File sportSessionFile) throws FileNotFoundException, IOException {
+		// read GPS data from JSON file
+		File gpsDataFileJSON = getGpsDataFile(sportSessionFile);
+		return gpsDataFileJSON.exists() ? parseGpsSession(gpsDataFileJSON) : null;
+	}
+
+	public GpxSession loadGpxSession(File sportSessionFile) throws FileNotFoundException, IOException {
+		// read GPS data from GPX file (the runtastic export contains GPS data as GPX files, starting from April-2020)
+		File gpsDataFileGPX = getGpxDataFile(sportSessionFile);
+		if (!gpsDataFileGPX.exists()) {
+			return null;
+		}
+		return parseGpxSession(gpsDataFileGPX);
+	}
+
+	public GpxSession parseGpxSession(File file) throws FileNotFoundException, IOException {
+		FileReadEvent event = new FileReadEvent();
+		event.begin();
+		long start = metrics.start();
+		GpxSession gpxSession = null;
+		if (parseMode == ParseMode.STREAMING) {
+			// stream track points, unless the file has content the streaming parser doesn't keep
+			gpxSession = gpxParser.parseGpxSession(getFile(file));
+		}
+		if (gpxSession == null) {
+			gpxSession = new GpxSession();
+			// Load GPX file
+			try {
+				JAXBElement<GpxType> root = (JAXBElement<GpxType>)JaxbContextPool.GPX.getUnmarshaller().unmarshal(getFile(file));
+				GpxType gpx = root.getValue();
+				gpxSession.setGpx(gpx);
+			} catch (JAXBException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		gpxSession.setFileName(file.getCanonicalPath());
+		recordRead("gpx", start, event, file, metrics.isEnabled() || event.isEnabled() ? countPoints(gpxSession) : 0);
+		return gpxSession;
+	}
+
+	protected File getGpsDataFile(File sportSessionFile) {
+		return getFile(new File(new File(sportSessionFile.getParentFile(), GPS_DATA_DIR), sportSessionFile.getName()));
+	}
+
+	protected File getGpxDataFile(File sportSessionFile) {
+		return getFile(new File(new File(sportSessionFile.getParentFile(), GPS_DATA_DIR), FilenameUtils.getBaseName(sportSessionFile.getName()) + ".gpx"));
+	}
+
+	/**
+	 * Get the summary of a sport session (bounds, point count, start and end coordinates, time range of its GPS and GPX tracks),
+	 * from the summary index of the context when up to date, otherwise computed from its tracks and added to the index.
+	 * @param full true if the session was parsed in full (its tracks are then taken from it, instead of read from their files)
+	 */
+	public SessionSummary getSessionSummary(ExportContext context, SportSession session, boolean full) throws FileNotFoundException, IOException {
+		File file = new File(session.getFileName());
+		File gpsDataFile = getGpsDataFile(file);
+		File gpxDataFile = getGpxDataFile(file);
+		// 0 for missing files: a track file added later is detected too
+		long modified = Math.max(gpsDataFile.lastModified(), gpxDataFile.lastModified());
+		SessionSummaryIndex summaryIndex = getSessionSummaryIndex(context);
+		SessionSummary summary = summaryIndex.get(session.getId());
+		if (summary == null || summary.getSourceModified() != modified) {
+			summary = new SessionSummary();
+			summary.setSourceModified(modified);
+			GpsSession gpsSession = full ? session.getGpsSession() : loadGpsSession(file);
+			if (gpsSession != null) {
+				summary.add(gpsSession.asTrack());
+			}
+			GpxSession gpxSession = full ? session.getGpxSession() : loadGpxSession(file);
+			if (gpxSession != null) {
+				if (gpxSession.getTrack() != null) {
+					summary.add(gpxSession.getTrack());
+				} else if (gpxSession.getGpx() != null && !gpxSession.getGpx().getTrk().isEmpty()) {
+					// the mappers only use the first track
+					summary.add(gpxSession.getGpx().getTrk().get(0));
+				}
+			}
+			summaryIndex.put(session.getId(), summary);
+		}
+		return summary;
+	}
+
+	/**
+	 * Get the summary index of an export, loaded only once per context from its summary index file (if any).
+	 */
+	public SessionSummaryIndex getSessionSummaryIndex(ExportContext context) throws FileNotFoundException, IOException {
+		SessionSummaryIndex summaryIndex = context.getSummaryIndex();
+		if (summaryIndex == null) {
+			synchronized (context) {
+				summaryIndex = context.getSummaryIndex();
+				if (summaryIndex == null) {
+					File indexFile = context.getSummaryIndexFile();
+					summaryIndex = indexFile != null && indexFile.isFile() ? SessionSummaryIndex.load(indexFile) : new SessionSummaryIndex();
+					context.setSummaryIndex(summaryIndex);
+				}
+			}
+		}
+		return summaryIndex;
+	}
+
+	/**
+	 * Save the summary index of an export to its summary index file, if any and modified.
+	 */
+	public void saveSessionSummaryIndex(ExportContext context) throws IOException {
+		SessionSummaryIndex summaryIndex = context.getSummaryIndex();
+		if (summaryIndex != null && summaryIndex.isModified() && context.getSummaryIndexFile() != null) {
+			summaryIndex.save(context.getSummaryIndexFile());
+		}
+	}
+
+	public HeartRateSession loadHeartRateSession(File sportSessionFile) throws FileNotFoundException, IOException {
+		File heartRateDataFile = getHeartRateDataFile(sportSessionFile);
+		return heartRateDataFile.exists() ? parseHeartRateSession(heartRateDataFile) : null;
+	}
+
+	/**
+	 * @return true if the sport session has heart rate data (without reading it)
+	 */
+	public boolean hasHeartRateData(SportSession session) {
+		return getHeartRateDataFile(new File(session.getFileName())).exists();
+	}
+
+	protected File getHeartRateDataFile(File sportSessionFile) {
+		return getFile(new File(new File(sportSessionFile.getParentFile(), HEARTRATE_DATA_DIR), sportSessionFile.getName()));
+	}
+
+	/**
+	 * Read the photo meta data (images meta data; \Photos\Images-meta-data) of a sport session album.
+	 * @return images sorted by creation date, or null if there is no album
+	 */
+	public List<ImagesMetaData> loadImages(ExportContext context, SportSessionAlbums album) throws FileNotFoundException, IOException {
+		if (album == null) {
+			return null;
+		}
+		List<ImagesMetaData> images = new ArrayList<>();
+		for (String photo : album.getPhotosIds()) {
+			File photoMetaDataFile = getFile(new File(new File(context.getRoot(), PHOTOS_META_DATA_DIR), photo + ".json"));
+			if (photoMetaDataFile.exists()) {
+				images.add(parseImagesMetaData(photoMetaDataFile));
+			}
+		}
+		Collections.sort(images);
+		return images;
+	}
+
+	/**
+	 * Count the photos of a sport session album with meta data, as loadImages reads them, without reading them
+	 * (resolved in the directory index of the export).
+	 * @return number of images, or 0 if there is no album
+	 */
+	public int countImages(ExportContext context, SportSessionAlbums album) {
+		if (album == null || album.getPhotosIds() == null) {
+			return 0;
+		}
+		File photosMetaDataDir = new File(context.getRoot(), PHOTOS_META_DATA_DIR);
+		int count = 0;
+		for (String photo : album.getPhotosIds()) {
+			if (index.contains(new File(photosMetaDataDir, photo + ".json"))) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Get the user of an export, parsed only once per context.
+	 */
+	public User getUser(ExportContext context) throws FileNotFoundException, IOException {
+		User user = context.getUser();
+		if (user == null) {
+			synchronized (context) {
+				user = context.getUser();
+				if (user == null) {
+					user = parseUser(getFile(new File(new File(context.getRoot(), USER_DIR), "user.json")));
+					context.setUser(user);
+				}
+			}
+		}
+		return user;
+	}
+
+	/**
+	 * Get the album of a sport session, parsed only once per context.
+	 * @return album, or null if the sport session has no album
+	 */
+	public SportSessionAlbums getSportSessionAlbum(ExportContext context, String sessionId) throws FileNotFoundException, IOException {
+		SportSessionAlbums album = context.getAlbums().get(sessionId);
+		if (album == null && !context.isAlbumsLoaded()) {
+			// once the photo index is built, all albums are known (not if loaded from its file)
+			File photoSessionDataFile = getFile(new File(new File(context.getRoot(), PHOTOS_SPORT_SESSION_ALBUMS_DIR), sessionId + ".json"));
+			if (photoSessionDataFile.exists()) {
+				album = parseSportSessionAlbumsData(photoSessionDataFile);
+				context.getAlbums().put(sessionId, album);
+			}
+		}
+		return album;
+	}
+
+	/**
+	 * Get the photo index of an export, built only once per context by reading the sport session albums in parallel.
+	 * If the context has a photo index file, the index is loaded from it when built from the same albums (export root,
+	 * album count and last modification), otherwise saved to it. Albums that can't be read are reported and skipped,
+	 * the index is then not saved.
+	 */
+	public PhotoIndex getPhotoIndex(ExportContext context) throws FileNotFoundException, IOException {
+		PhotoIndex photoIndex = context.getPhotoIndex();
+		if (photoIndex == null) {
+			synchronized (context) {
+				photoIndex = context.getPhotoIndex();
+				if (photoIndex == null) {
+					File[] files = context.getIndex().listFiles(new File(context.getRoot(), PHOTOS_SPORT_SESSION_ALBUMS_DIR), ".json");
+					String exportRoot = context.getRoot().getCanonicalPath();
+					long albumsModified = 0;
+					for (File file : files) {
+						albumsModified = Math.max(albumsModified, file.lastModified());
+					}
+					File indexFile = context.getPhotoIndexFile();
+					if (indexFile != null && indexFile.isFile()) {
+						photoIndex = PhotoIndex.load(indexFile);
+						if (!photoIndex.isSource(exportRoot, files.length, albumsModified)) {
+							photoIndex = null;
+						}
+					}
+					if (photoIndex == null) {
+						Map<File, Exception> errors = new ConcurrentHashMap<>();
+						photoIndex = buildPhotoIndex(context, files, errors);
+						context.setAlbumsLoaded(errors.isEmpty());
+						photoIndex.setSource(exportRoot, files.length, albumsModified);
+						for (Map.Entry<File, Exception> error : errors.entrySet()) {
+							System.err.println("Failed to read sport session album '" + error.getKey() + "': " + error.getValue());
+						}
+						if (indexFile != null && errors.isEmpty()) {
+							photoIndex.save(indexFile);
+						}
+					}
+					context.setPhotoIndex(photoIndex);
+				}
+			}
+		}
+		return photoIndex;
+	}
+
+	/**
+	 * Build the photo index of album files, read by a dedicated pool of threads (file reads block).
+	 * @param errors exception of each album that could not be read, by file
+	 */
+	protected PhotoIndex buildPhotoIndex(ExportContext context, File[] files, Map<File, Exception> errors) throws InterruptedIOException {
+		PhotoIndex photoIndex = new PhotoIndex();
+		if (files.length == 0) {
+			return photoIndex;
+		}
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(PHOTO_INDEX_THREADS, files.length), r -> {
+			Thread thread = new Thread(r, "photo-index-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			List<Future<?>> futures = new ArrayList<>(files.length);
+			for (File file : files) {
+				futures.add(executor.submit(() -> {
+					try {
+						SportSessionAlbums album = parseSportSessionAlbumsData(file);
+						if (album.getId() != null) {
+							context.getAlbums().putIfAbsent(album.getId(), album);
+							if (album.getPhotosIds() != null) {
+								for (String photoId : album.getPhotosIds()) {
+									photoIndex.put(photoId, album.getId());
+								}
+							}
+						}
+					} catch (IOException | RuntimeException e) {
+						errors.put(file, e);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while building the photo index");
+		} catch (ExecutionException e) {
+			// not an exception of an album (these are collected), e.g. an Error
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		return photoIndex;
+	}
+
 	public ElevationSession parseElevationSession(File file) throws FileNotFoundException, IOException {
+		FileReadEvent event = new FileReadEvent();
+		event.begin();
+		long start = metrics.start();
 		ElevationSession elevationsession = new ElevationSession();
 		elevationsession.setFileName(file.getCanonicalPath());
-		elevationsession.setElevationData(mapper.readValue(getFile(file), new TypeReference<List<ElevationData>>() {}));
+		if (parseMode == ParseMode.STREAMING) {
+			elevationsession.setTrack(trackParser.parseElevationTrack(getFile(file)));
+		} else {
+			elevationsession.setElevationData(mapper.readValue(getFile(file), new TypeReference<List<ElevationData>>() {}));
+		}
+		recordRead("elevation", start, event, file, elevationsession.size());
 		return elevationsession;
 	}
 
 	public GpsSession parseGpsSession(File file) throws FileNotFoundException, IOException {
+		FileReadEvent event = new FileReadEvent();
+		event.begin();
+		long start = metrics.start();
 		GpsSession gpssession = new GpsSession();
 		gpssession.setFileName(file.getCanonicalPath());
-		gpssession.setGpsData(mapper.readValue(getFile(file), new TypeReference<List<GpsData>>() {}));
+		if (parseMode == ParseMode.STREAMING) {
+			gpssession.setTrack(trackParser.parseGpsTrack(getFile(file)));
+		} else {
+			gpssession.setGpsData(mapper.readValue(getFile(file), new TypeReference<List<GpsData>>() {}));
+		}
+		recordRead("gps", start, event, file, gpssession.size());
 		return gpssession;
 	}
 
 	public HeartRateSession parseHeartRateSession(File file) throws FileNotFoundException, IOException {
+		FileReadEvent event = new FileReadEvent();
+		event.begin();
+		long start = metrics.start();
 		HeartRateSession heartratesession = new HeartRateSession();
 		heartratesession.setFileName(file.getCanonicalPath());
-		heartratesession.setHeartRateData(mapper.readValue(getFile(file), new TypeReference<List<HeartRateData>>() {}));
+		if (parseMode == ParseMode.STREAMING) {
+			heartratesession.setTrack(trackParser.parseHeartRateTrack(getFile(file)));
+		} else {
+			heartratesession.setHeartRateData(mapper.readValue(getFile(file), new TypeReference<List<HeartRateData>>() {}));
+		}
+		recordRead("heartRate", start, event, file, heartratesession.size());
 		return heartratesession;
 	}
 
 	public SportSessionAlbums parseSportSessionAlbumsData(File file) throws FileNotFoundException, IOException {
+		FileReadEvent event = new FileReadEvent();
+		event.begin();
+		long start = metrics.start();
 		SportSessionAlbums album = mapper.readValue(getFile(file), new TypeReference<SportSessionAlbums>() {});
 		album.setFileName(file.getCanonicalPath());
+		recordRead("album", start, event, file, 0);
 		return album;
 	}
 
 
 	public ImagesMetaData parseImagesMetaData(File file) throws FileNotFoundException, IOException {
+		FileReadEvent event = new FileReadEvent();
+		event.begin();
+		long start = metrics.start();
 		ImagesMetaData image = mapper.readValue(getFile(file), new TypeReference<ImagesMetaData>() {});
 		image.setFileName(file.getCanonicalPath());
+		recordRead("image", start, event, file, 0);
 		return image;
 	}
 
@@ -182,30 +562,125 @@ public class SportSessionParser {
 	}
 
 	public User parseUser(File file) throws FileNotFoundException, IOException {
+		FileReadEvent event = new FileReadEvent();
+		event.begin();
+		long start = metrics.start();
 		User user = mapper.readValue(getFile(file), new TypeReference<User>() {});
 		user.setFileName(file.getCanonicalPath());
+		recordRead("user", start, event, file, 0);
 		return user;
 	}
 
 	
+	/**
+	 * Record the read of a sub-file: time per file type, bytes and track points read, and its flight recorder event.
+	 * @param fileType gps, gpx, elevation, heartRate, album, image or user
+	 */
+	protected void recordRead(String fileType, long start, FileReadEvent event, File file, int points) {
+		boolean commit = event.shouldCommit();
+		if (!metrics.isEnabled() && !commit) {
+			return;
+		}
+		long bytes = getFile(file).length();
+		if (metrics.isEnabled()) {
+			metrics.record("parse." + fileType, start);
+			metrics.add(Metrics.BYTES_READ, bytes);
+			metrics.add(Metrics.POINTS_READ, points);
+		}
+		if (commit) {
+			event.sessionId = Events.sessionId(file.getName());
+			event.fileType = fileType;
+			event.file = file.getPath();
+			event.points = points;
+			event.bytes = bytes;
+			event.commit();
+		}
+	}
+
+	private static int countPoints(GpxSession gpxSession) {
+		if (gpxSession.getTrack() != null) {
+			return gpxSession.getTrack().size();
+		}
+		int points = 0;
+		for (TrkType trk : gpxSession.getGpx().getTrk()) {
+			for (TrksegType trkseg : trk.getTrkseg()) {
+				points += trkseg.getTrkpt().size();
+			}
+		}
+		return points;
+	}
+
+	public ExportIndex getIndex() {
+		return index;
+	}
+
 	private File getFile(File file)
 	{
-		if (file.exists()) {
-			return file;
-		} else {
-			// From 2021 the filename in the export changed to e.g. 2012-05-25_14-56-24-UTC_2337382.json
-			File[] files = new File(file.getParent()).listFiles(newfile -> newfile.getName().endsWith(file.getName()));
-			if( files != null )
-			{
-				if (files.length > 0 )
-				{
-					if( files[0] != null )
-					{
-						return files[0];
-					}
-				}
+		// From 2021 the filename in the export changed to e.g. 2012-05-25_14-56-24-UTC_2337382.json
+		// The index lists each directory only once, instead of once per lookup.
+		return index.getFile(file);	// return file, even if it doesn't exists
+	}
+
+	/**
+	 * Loader of the data of a sport session parsed in lazy mode.
+	 * Elevation, GPS, GPX and heart rate data are only available if the session was parsed in full.
+	 */
+	protected class LazyLoader implements SportSessionLoader {
+
+		private final File file;
+		private final boolean full;
+		private final ExportContext context;
+
+		public LazyLoader(File file, boolean full, ExportContext context) {
+			this.file = file;
+			this.full = full;
+			this.context = context;
+		}
+
+		@Override
+		public ElevationSession loadElevationSession(SportSession session) {
+			try {
+				return full ? SportSessionParser.this.loadElevationSession(file) : null;
+			} catch (IOException e) {
+				throw new RuntimeException(e);
 			}
 		}
-		return file;	// return file, even if it doesn't exists
+
+		@Override
+		public GpsSession loadGpsSession(SportSession session) {
+			try {
+				return full ? SportSessionParser.this.loadGpsSession(file) : null;
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		@Override
+		public GpxSession loadGpxSession(SportSession session) {
+			try {
+				return full ? SportSessionParser.this.loadGpxSession(file) : null;
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		@Override
+		public HeartRateSession loadHeartRateSession(SportSession session) {
+			try {
+				return full ? SportSessionParser.this.loadHeartRateSession(file) : null;
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		@Override
+		public List<ImagesMetaData> loadImages(SportSession session) {
+			try {
+				return SportSessionParser.this.loadImages(context, session.getSessionAlbum());
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
 	}
-}
+}
\ No newline at end of file
@@ -0,0 +1,181 @@
+package me.crespel.runtastic.parser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import javax.xml.bind.DatatypeConverter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import me.crespel.runtastic.model.GpsTrack;
+import me.crespel.runtastic.model.GpxSession;
+import me.crespel.runtastic.util.TimestampCodec;
+
+/**
+ * Streaming GPX parser.
+ * This class reads the track points of a GPX file (\Sport-sessions\GPS-data\*.gpx) with StAX,
+ * directly into a primitive track (no object per track point), along with its bounds, point count and time range.
+ * Only the content of the first track that the mappers use is kept (track segments and points with elevation and time);
+ * files with other content (waypoints, routes, several tracks, extensions, ...) are not supported and must be unmarshalled with JAXB.
+ * Times are copied from the reader text buffer and parsed with a {@link TimestampCodec}.
+ */
+public class StreamingGpxParser {
+
+	public static final String GPX_NAMESPACE = "http://www.topografix.com/GPX/1/1";
+
+	protected final XMLInputFactory factory;
+
+	public StreamingGpxParser() {
+		factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+	}
+
+	/**
+	 * Parse a GPX file.
+	 * @param file GPX file
+	 * @return GPX session with track points, or null if the file has content not supported by this parser
+	 */
+	public GpxSession parseGpxSession(File file) throws IOException {
+		try (InputStream in = new FileInputStream(file)) {
+			XMLStreamReader r = factory.createXMLStreamReader(in);
+			try {
+				return parseGpxSession(r);
+			} finally {
+				r.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Invalid GPX file '" + file + "'", e);
+		}
+	}
+
+	protected GpxSession parseGpxSession(XMLStreamReader r) throws XMLStreamException {
+		r.nextTag();
+		if (!"gpx".equals(r.getLocalName()) || !GPX_NAMESPACE.equals(r.getNamespaceURI())) {
+			return null;
+		}
+		GpsTrack track = new GpsTrack();
+		TimestampCodec codec = new TimestampCodec();
+		int[] segments = new int[0];
+		boolean trk = false;
+		while (r.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			switch (r.getLocalName()) {
+			case "metadata":
+				skipElement(r);
+				break;
+			case "trk":
+				if (trk) {
+					return null;
+				}
+				trk = true;
+				while (r.nextTag() == XMLStreamConstants.START_ELEMENT) {
+					switch (r.getLocalName()) {
+					case "trkseg":
+						segments = Arrays.copyOf(segments, segments.length + 1);
+						segments[segments.length - 1] = track.size();
+						if (!parseTrackSegment(r, track, codec)) {
+							return null;
+						}
+						break;
+					case "name":
+					case "cmt":
+					case "desc":
+					case "src":
+					case "link":
+					case "number":
+					case "type":
+						skipElement(r);
+						break;
+					default:
+						return null;
+					}
+				}
+				break;
+			default:
+				return null;
+			}
+		}
+		track.trimToSize();
+		GpxSession gpxSession = new GpxSession();
+		gpxSession.setTrack(track);
+		gpxSession.setSegments(segments);
+		return gpxSession;
+	}
+
+	private boolean parseTrackSegment(XMLStreamReader r, GpsTrack track, TimestampCodec codec) throws XMLStreamException {
+		while (r.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			if (!"trkpt".equals(r.getLocalName())) {
+				return false;
+			}
+			double latitude = readDouble(r.getAttributeValue(null, "lat"));
+			double longitude = readDouble(r.getAttributeValue(null, "lon"));
+			double elevation = Double.NaN;
+			long time = 0;
+			while (r.nextTag() == XMLStreamConstants.START_ELEMENT) {
+				switch (r.getLocalName()) {
+				case "ele":
+					elevation = readDouble(r.getElementText());
+					break;
+				case "time":
+					time = readTime(r, codec);
+					break;
+				default:
+					return false;
+				}
+			}
+			track.add(time, latitude, longitude, elevation, Double.NaN, 0, 0);
+		}
+		return true;
+	}
+
+	private long readTime(XMLStreamReader r, TimestampCodec codec) throws XMLStreamException {
+		codec.reset();
+		StringBuilder text = null;
+		int event;
+		while ((event = r.next()) != XMLStreamConstants.END_ELEMENT) {
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				throw new XMLStreamException("Unexpected element in time", r.getLocation());
+			} else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE) {
+				if (text != null) {
+					text.append(r.getTextCharacters(), r.getTextStart(), r.getTextLength());
+				} else if (!codec.append(r.getTextCharacters(), r.getTextStart(), r.getTextLength())) {
+					// too long for a timestamp of the export, left to the fallback below
+					text = new StringBuilder(codec.bufferToString()).append(r.getTextCharacters(), r.getTextStart(), r.getTextLength());
+				}
+			}
+		}
+		if (text == null) {
+			try {
+				long time = codec.parse();
+				if (time >= TimestampCodec.GREGORIAN_CUTOVER) {
+					return time;
+				}
+			} catch (IllegalArgumentException e) {
+				// other xsd:dateTime forms (e.g. years with more than 4 digits), left to the fallback below
+			}
+		}
+		return DatatypeConverter.parseDateTime((text != null ? text.toString() : codec.bufferToString()).trim()).getTimeInMillis();
+	}
+
+	private void skipElement(XMLStreamReader r) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			int event = r.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	private double readDouble(String value) {
+		return value != null ? Double.parseDouble(value.trim()) : Double.NaN;
+	}
+
+}
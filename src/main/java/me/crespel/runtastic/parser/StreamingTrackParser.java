@@ -0,0 +1,179 @@
+package me.crespel.runtastic.parser;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import me.crespel.runtastic.model.ElevationTrack;
+import me.crespel.runtastic.model.GpsTrack;
+import me.crespel.runtastic.model.HeartRateTrack;
+import me.crespel.runtastic.util.TimestampCodec;
+
+/**
+ * Streaming track parser.
+ * This class reads GPS, heart rate and elevation data arrays token by token,
+ * directly into primitive tracks (no object per data point).
+ * Timestamps are parsed from the parser text buffer with a {@link TimestampCodec}.
+ */
+public class StreamingTrackParser {
+
+	protected final JsonFactory factory;
+
+	public StreamingTrackParser() {
+		this(new JsonFactory());
+	}
+
+	public StreamingTrackParser(JsonFactory factory) {
+		this.factory = factory;
+	}
+
+	public GpsTrack parseGpsTrack(File file) throws IOException {
+		GpsTrack track = new GpsTrack();
+		TimestampCodec codec = new TimestampCodec();
+		try (JsonParser p = factory.createParser(file)) {
+			startArray(p);
+			while (p.nextToken() == JsonToken.START_OBJECT) {
+				long timestamp = 0;
+				double latitude = Double.NaN, longitude = Double.NaN, altitude = Double.NaN, speed = Double.NaN;
+				int duration = 0, distance = 0;
+				while (p.nextToken() == JsonToken.FIELD_NAME) {
+					String name = p.getCurrentName();
+					p.nextToken();
+					switch (name) {
+					case "timestamp":
+						timestamp = readTimestamp(p, codec);
+						break;
+					case "latitude":
+						latitude = readDouble(p);
+						break;
+					case "longitude":
+						longitude = readDouble(p);
+						break;
+					case "altitude":
+						altitude = readDouble(p);
+						break;
+					case "speed":
+						speed = readDouble(p);
+						break;
+					case "duration":
+						duration = readInt(p);
+						break;
+					case "distance":
+						distance = readInt(p);
+						break;
+					default:
+						p.skipChildren();
+						break;
+					}
+				}
+				track.add(timestamp, latitude, longitude, altitude, speed, duration, distance);
+			}
+		}
+		track.trimToSize();
+		return track;
+	}
+
+	public HeartRateTrack parseHeartRateTrack(File file) throws IOException {
+		HeartRateTrack track = new HeartRateTrack();
+		TimestampCodec codec = new TimestampCodec();
+		try (JsonParser p = factory.createParser(file)) {
+			startArray(p);
+			while (p.nextToken() == JsonToken.START_OBJECT) {
+				long timestamp = 0;
+				int heartRate = 0, duration = 0, distance = 0;
+				while (p.nextToken() == JsonToken.FIELD_NAME) {
+					String name = p.getCurrentName();
+					p.nextToken();
+					switch (name) {
+					case "timestamp":
+						timestamp = readTimestamp(p, codec);
+						break;
+					case "heart_rate":
+						heartRate = readInt(p);
+						break;
+					case "duration":
+						duration = readInt(p);
+						break;
+					case "distance":
+						distance = readInt(p);
+						break;
+					default:
+						p.skipChildren();
+						break;
+					}
+				}
+				track.add(timestamp, heartRate, duration, distance);
+			}
+		}
+		track.trimToSize();
+		return track;
+	}
+
+	public ElevationTrack parseElevationTrack(File file) throws IOException {
+		ElevationTrack track = new ElevationTrack();
+		TimestampCodec codec = new TimestampCodec();
+		try (JsonParser p = factory.createParser(file)) {
+			startArray(p);
+			while (p.nextToken() == JsonToken.START_OBJECT) {
+				long timestamp = 0;
+				int elevation = 0, duration = 0, distance = 0;
+				while (p.nextToken() == JsonToken.FIELD_NAME) {
+					String name = p.getCurrentName();
+					p.nextToken();
+					switch (name) {
+					case "timestamp":
+						timestamp = readTimestamp(p, codec);
+						break;
+					case "elevation":
+						elevation = readInt(p);
+						break;
+					case "duration":
+						duration = readInt(p);
+						break;
+					case "distance":
+						distance = readInt(p);
+						break;
+					default:
+						p.skipChildren();
+						break;
+					}
+				}
+				track.add(timestamp, elevation, duration, distance);
+			}
+		}
+		track.trimToSize();
+		return track;
+	}
+
+	private void startArray(JsonParser p) throws IOException {
+		if (p.nextToken() != JsonToken.START_ARRAY) {
+			throw new JsonParseException(p, "Expected an array of data points");
+		}
+	}
+
+	private double readDouble(JsonParser p) throws IOException {
+		return p.currentToken().isNumeric() ? p.getDoubleValue() : Double.NaN;
+	}
+
+	private int readInt(JsonParser p) throws IOException {
+		return p.currentToken().isNumeric() ? p.getValueAsInt() : 0;
+	}
+
+	private long readTimestamp(JsonParser p, TimestampCodec codec) throws IOException {
+		if (p.currentToken().isNumeric()) {
+			return p.getLongValue();
+		} else if (p.currentToken() == JsonToken.VALUE_STRING) {
+			try {
+				return codec.parse(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+			} catch (IllegalArgumentException e) {
+				throw new JsonParseException(p, "Invalid timestamp '" + p.getText() + "'", e);
+			}
+		}
+		return 0;
+	}
+
+}
@@ -0,0 +1,73 @@
+package me.crespel.runtastic.parser;
+
+import java.io.IOException;
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.deser.std.DateDeserializers.DateDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+
+import me.crespel.runtastic.util.TimestampCodec;
+
+/**
+ * Date deserializer for the timestamps of the export.
+ * Dates formatted with the export pattern ("yyyy-MM-dd HH:mm:ss Z") are parsed from the parser text buffer with a {@link TimestampCodec}
+ * instead of a SimpleDateFormat; other dates (other patterns, numbers) are left to the default Jackson deserializer.
+ */
+public class TimestampDeserializer extends StdScalarDeserializer<Date> implements ContextualDeserializer {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final String PATTERN = "yyyy-MM-dd HH:mm:ss Z";
+
+	// codecs per thread, as deserializers are shared
+	private static final ThreadLocal<TimestampCodec> CODECS = ThreadLocal.withInitial(TimestampCodec::new);
+
+	public TimestampDeserializer() {
+		super(Date.class);
+	}
+
+	@Override
+	public JsonDeserializer<?> createContextual(DeserializationContext ctxt, BeanProperty property) throws JsonMappingException {
+		JsonFormat.Value format = findFormatOverrides(ctxt, property, Date.class);
+		if (format != null && PATTERN.equals(format.getPattern()) && !format.hasLocale() && !format.hasTimeZone()) {
+			return this;
+		}
+		return DateDeserializer.instance.createContextual(ctxt, property);
+	}
+
+	@Override
+	public Date deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+		if (p.hasToken(JsonToken.VALUE_STRING)) {
+			char[] text = p.getTextCharacters();
+			int start = p.getTextOffset();
+			int length = p.getTextLength();
+			if (isBlank(text, start, length)) {
+				return null;
+			}
+			try {
+				return new Date(CODECS.get().parse(text, start, length));
+			} catch (IllegalArgumentException e) {
+				return (Date) ctxt.handleWeirdStringValue(Date.class, p.getText(), "expected format \"%s\"", PATTERN);
+			}
+		}
+		return DateDeserializer.instance.deserialize(p, ctxt);
+	}
+
+	private static boolean isBlank(char[] text, int start, int length) {
+		for (int i = start; i < start + length; i++) {
+			if (text[i] > ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
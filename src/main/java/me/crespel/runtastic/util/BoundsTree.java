@@ -0,0 +1,167 @@
+package me.crespel.runtastic.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.IntConsumer;
+
+/**
+ * Bounds tree.
+ * This class is a static R-tree over bounding boxes (latitude/longitude ranges, as primitive doubles),
+ * packed with the Sort-Tile-Recursive (STR) algorithm: entries are sorted into tiles by center longitude then latitude,
+ * and each level of nodes is packed the same way, so that a query visits O(log n) nodes plus the matching entries.
+ * The tree cannot be modified once built.
+ */
+public class BoundsTree {
+
+	public static final int DEFAULT_NODE_CAPACITY = 16;
+
+	private final int nodeCapacity;
+	private final int size;
+	// boxes of each level: level 0 holds the entries, the last level the root nodes
+	private final double[][] minLat;
+	private final double[][] minLon;
+	private final double[][] maxLat;
+	private final double[][] maxLon;
+	// children of each node, as a range of the level below (unused for level 0)
+	private final int[][] childStart;
+	private final int[][] childEnd;
+	// entry ids of level 0
+	private final int[] ids;
+
+	/**
+	 * Build a tree; the id of each entry is its index in the arrays.
+	 */
+	public BoundsTree(double[] minLat, double[] minLon, double[] maxLat, double[] maxLon) {
+		this(minLat, minLon, maxLat, maxLon, DEFAULT_NODE_CAPACITY);
+	}
+
+	public BoundsTree(double[] minLat, double[] minLon, double[] maxLat, double[] maxLon, int nodeCapacity) {
+		if (nodeCapacity < 2) {
+			throw new IllegalArgumentException("Invalid node capacity: " + nodeCapacity);
+		}
+		int n = minLat.length;
+		if (minLon.length != n || maxLat.length != n || maxLon.length != n) {
+			throw new IllegalArgumentException("Bounds arrays must have the same length");
+		}
+		this.nodeCapacity = nodeCapacity;
+		this.size = n;
+
+		int levels = 1;
+		for (int count = n; count > nodeCapacity; count = (count + nodeCapacity - 1) / nodeCapacity) {
+			levels++;
+		}
+		this.minLat = new double[levels][];
+		this.minLon = new double[levels][];
+		this.maxLat = new double[levels][];
+		this.maxLon = new double[levels][];
+		this.childStart = new int[levels][];
+		this.childEnd = new int[levels][];
+
+		// level 0: entries, in STR order
+		Integer[] order = strOrder(minLat, minLon, maxLat, maxLon, n);
+		this.ids = new int[n];
+		this.minLat[0] = new double[n];
+		this.minLon[0] = new double[n];
+		this.maxLat[0] = new double[n];
+		this.maxLon[0] = new double[n];
+		for (int i = 0; i < n; i++) {
+			int id = order[i];
+			ids[i] = id;
+			this.minLat[0][i] = minLat[id];
+			this.minLon[0][i] = minLon[id];
+			this.maxLat[0][i] = maxLat[id];
+			this.maxLon[0][i] = maxLon[id];
+		}
+
+		// upper levels: one node per run of nodeCapacity boxes of the level below, then sorted in STR order
+		for (int level = 1; level < levels; level++) {
+			int childCount = this.minLat[level - 1].length;
+			int count = (childCount + nodeCapacity - 1) / nodeCapacity;
+			double[] nodeMinLat = new double[count];
+			double[] nodeMinLon = new double[count];
+			double[] nodeMaxLat = new double[count];
+			double[] nodeMaxLon = new double[count];
+			int[] start = new int[count];
+			int[] end = new int[count];
+			for (int i = 0; i < count; i++) {
+				start[i] = i * nodeCapacity;
+				end[i] = Math.min(start[i] + nodeCapacity, childCount);
+				nodeMinLat[i] = Double.POSITIVE_INFINITY;
+				nodeMinLon[i] = Double.POSITIVE_INFINITY;
+				nodeMaxLat[i] = Double.NEGATIVE_INFINITY;
+				nodeMaxLon[i] = Double.NEGATIVE_INFINITY;
+				for (int c = start[i]; c < end[i]; c++) {
+					nodeMinLat[i] = Math.min(nodeMinLat[i], this.minLat[level - 1][c]);
+					nodeMinLon[i] = Math.min(nodeMinLon[i], this.minLon[level - 1][c]);
+					nodeMaxLat[i] = Math.max(nodeMaxLat[i], this.maxLat[level - 1][c]);
+					nodeMaxLon[i] = Math.max(nodeMaxLon[i], this.maxLon[level - 1][c]);
+				}
+			}
+			order = strOrder(nodeMinLat, nodeMinLon, nodeMaxLat, nodeMaxLon, count);
+			this.minLat[level] = new double[count];
+			this.minLon[level] = new double[count];
+			this.maxLat[level] = new double[count];
+			this.maxLon[level] = new double[count];
+			this.childStart[level] = new int[count];
+			this.childEnd[level] = new int[count];
+			for (int i = 0; i < count; i++) {
+				int j = order[i];
+				this.minLat[level][i] = nodeMinLat[j];
+				this.minLon[level][i] = nodeMinLon[j];
+				this.maxLat[level][i] = nodeMaxLat[j];
+				this.maxLon[level][i] = nodeMaxLon[j];
+				this.childStart[level][i] = start[j];
+				this.childEnd[level][i] = end[j];
+			}
+		}
+	}
+
+	/**
+	 * @return number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Find the entries whose bounds are within a window (edges included).
+	 * @param consumer called with the id of each matching entry, in no particular order
+	 */
+	public void searchWithin(double minLat, double minLon, double maxLat, double maxLon, IntConsumer consumer) {
+		int root = this.minLat.length - 1;
+		for (int i = 0; i < this.minLat[root].length; i++) {
+			searchWithin(root, i, minLat, minLon, maxLat, maxLon, consumer);
+		}
+	}
+
+	private void searchWithin(int level, int i, double minLat, double minLon, double maxLat, double maxLon, IntConsumer consumer) {
+		if (level == 0) {
+			if (this.minLat[0][i] >= minLat && this.minLon[0][i] >= minLon && this.maxLat[0][i] <= maxLat && this.maxLon[0][i] <= maxLon) {
+				consumer.accept(ids[i]);
+			}
+		} else if (this.minLat[level][i] <= maxLat && this.maxLat[level][i] >= minLat && this.minLon[level][i] <= maxLon && this.maxLon[level][i] >= minLon) {
+			// entries within the window are in nodes intersecting it
+			for (int c = childStart[level][i]; c < childEnd[level][i]; c++) {
+				searchWithin(level - 1, c, minLat, minLon, maxLat, maxLon, consumer);
+			}
+		}
+	}
+
+	/**
+	 * @return indexes of the boxes, sorted into vertical slices by center longitude, and by center latitude in each slice
+	 */
+	private Integer[] strOrder(double[] minLat, double[] minLon, double[] maxLat, double[] maxLon, int count) {
+		Integer[] order = new Integer[count];
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.comparingDouble(i -> minLon[i] + maxLon[i]));
+		int pages = (count + nodeCapacity - 1) / nodeCapacity;
+		int sliceSize = (int) Math.ceil(Math.sqrt(pages)) * nodeCapacity;
+		for (int start = 0; start < count; start += sliceSize) {
+			Arrays.sort(order, start, Math.min(start + sliceSize, count), Comparator.comparingDouble(i -> minLat[i] + maxLat[i]));
+		}
+		return order;
+	}
+
+}
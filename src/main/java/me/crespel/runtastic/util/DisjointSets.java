@@ -0,0 +1,60 @@
+package me.crespel.runtastic.util;
+
+/**
+ * Disjoint sets (union-find) of the integers 0 to n-1.
+ * Sets are merged by size and paths are halved on lookup, so that each operation runs in near constant time,
+ * without recursion.
+ */
+public class DisjointSets {
+
+	private final int[] parent;
+	private final int[] size;
+
+	public DisjointSets(int n) {
+		parent = new int[n];
+		size = new int[n];
+		for (int i = 0; i < n; i++) {
+			parent[i] = i;
+			size[i] = 1;
+		}
+	}
+
+	/**
+	 * @return representative of the set of i
+	 */
+	public int find(int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	/**
+	 * Merge the sets of i and j.
+	 * @return true if they were different sets
+	 */
+	public boolean union(int i, int j) {
+		int a = find(i);
+		int b = find(j);
+		if (a == b) {
+			return false;
+		}
+		if (size[a] < size[b]) {
+			int t = a;
+			a = b;
+			b = t;
+		}
+		parent[b] = a;
+		size[a] += size[b];
+		return true;
+	}
+
+	/**
+	 * @return size of the set of i
+	 */
+	public int size(int i) {
+		return size[find(i)];
+	}
+
+}
@@ -0,0 +1,142 @@
+package me.crespel.runtastic.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import me.crespel.runtastic.jfr.CopyEvent;
+import me.crespel.runtastic.jfr.Events;
+
+/**
+ * File copier.
+ * This class copies files with FileChannel.transferTo (copied by the kernel where supported, without going through a Java buffer),
+ * or creates hard links instead of copies when source and target are on the same file system.
+ * Existing targets are replaced.
+ */
+public class FileCopier {
+
+	private final boolean link;
+	private Metrics metrics = Metrics.NONE;
+
+	/**
+	 * Create a copier copying files.
+	 */
+	public FileCopier() {
+		this(false);
+	}
+
+	/**
+	 * @param link true to create hard links instead of copies where possible (source and target then share their content:
+	 *             modifying one modifies the other), falling back to copies (e.g. on another file system)
+	 */
+	public FileCopier(boolean link) {
+		this.link = link;
+	}
+
+	public boolean isLink() {
+		return link;
+	}
+
+	/**
+	 * Set the metrics recording copies (time and bytes copied) and links.
+	 */
+	public void setMetrics(Metrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Copy (or link) a file.
+	 * @param source source file
+	 * @param target target file, replaced if existing
+	 */
+	public void copy(Path source, Path target) throws IOException {
+		if (Files.exists(target) && Files.isSameFile(source, target)) {
+			return;
+		}
+		CopyEvent event = new CopyEvent();
+		event.begin();
+		if (link) {
+			Files.deleteIfExists(target);
+			try {
+				Files.createLink(target, source);
+				metrics.increment("files.linked");
+				commit(event, source, target, true, 0);
+				return;
+			} catch (FileSystemException | UnsupportedOperationException e) {
+				// different file systems, or links not supported: copy
+			}
+		}
+		long start = metrics.start();
+		long size = transfer(source, target);
+		metrics.record("copy", start);
+		metrics.add(Metrics.BYTES_COPIED, size);
+		commit(event, source, target, false, size);
+	}
+
+	private void commit(CopyEvent event, Path source, Path target, boolean linked, long bytes) {
+		if (event.shouldCommit()) {
+			// files are copied to the export folder of their session, named after the session file
+			Path folder = target.getParent() != null ? target.getParent().getFileName() : null;
+			event.sessionId = folder != null ? Events.sessionId(folder.toString()) : null;
+			event.source = source.toString();
+			event.target = target.toString();
+			event.link = linked;
+			event.bytes = bytes;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Copy the content of a file, up to its size when opened (or its end, if truncated meanwhile).
+	 * @return bytes copied
+	 */
+	protected long transfer(Path source, Path target) throws IOException {
+		try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			long size = in.size();
+			long position = 0;
+			while (position < size) {
+				long count = transferTo(in, position, size - position, out);
+				if (count == 0) {
+					// nothing transferred: the source may have been truncated (or rewritten) since opened,
+					// copy what is left with reads up to its end, which always terminate
+					return position + copyRest(in, out, position, Math.min(size, in.size()));
+				}
+				position += count;
+			}
+			return position;
+		}
+	}
+
+	/**
+	 * Transfer bytes of a channel with FileChannel.transferTo.
+	 * @return bytes transferred, 0 at the end of the source
+	 */
+	protected long transferTo(FileChannel in, long position, long count, FileChannel out) throws IOException {
+		return in.transferTo(position, count, out);
+	}
+
+	private long copyRest(FileChannel in, FileChannel out, long position, long size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+		long copied = 0;
+		int read;
+		while (position + copied < size) {
+			buffer.limit((int) Math.min(buffer.capacity(), size - position - copied));
+			if ((read = in.read(buffer, position + copied)) <= 0) {
+				break;
+			}
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				out.write(buffer);
+			}
+			buffer.clear();
+			copied += read;
+		}
+		return copied;
+	}
+
+}
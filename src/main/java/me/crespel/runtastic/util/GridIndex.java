@@ -0,0 +1,103 @@
+package me.crespel.runtastic.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Grid index.
+ * This class is a one-dimensional grid hash of values (e.g. the latitude of an edge of bounds): each value is quantized to a cell
+ * of a fixed size, and a hash table maps each cell to the entries in it, so that the entries closer to a value than the cell size
+ * are found by looking up the cell of this value and its two neighbours.
+ * The index cannot be modified once built.
+ */
+public class GridIndex {
+
+	private final double cellSize;
+	// entry ids, sorted by cell
+	private final int[] ids;
+	// open addressing hash table of cells, with the range of their entries in ids
+	private final long[] keys;
+	private final int[] starts;
+	private final int[] ends;
+	private final int mask;
+
+	/**
+	 * Build an index; the id of each entry is its index in the array.
+	 * @param values value of each entry
+	 * @param cellSize size of a cell, larger than the distance of the values to find
+	 */
+	public GridIndex(double[] values, double cellSize) {
+		if (!(cellSize > 0)) {
+			throw new IllegalArgumentException("Invalid cell size: " + cellSize);
+		}
+		this.cellSize = cellSize;
+
+		// sort entries by cell (cell in the high bits, id in the low bits)
+		int n = values.length;
+		long[] sorted = new long[n];
+		for (int i = 0; i < n; i++) {
+			long cell = cell(values[i]);
+			if (cell < Integer.MIN_VALUE || cell > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Value out of the range of the grid: " + values[i]);
+			}
+			sorted[i] = (cell << 32) | i;
+		}
+		Arrays.sort(sorted);
+		this.ids = new int[n];
+		int cells = 0;
+		for (int i = 0; i < n; i++) {
+			ids[i] = (int) sorted[i];
+			if (i == 0 || (sorted[i] >> 32) != (sorted[i - 1] >> 32)) {
+				cells++;
+			}
+		}
+
+		int capacity = Integer.highestOneBit(Math.max(cells, 1) * 2 - 1) << 1;
+		this.keys = new long[capacity];
+		this.starts = new int[capacity];
+		this.ends = new int[capacity];
+		this.mask = capacity - 1;
+		Arrays.fill(starts, -1);
+		for (int start = 0, end; start < n; start = end) {
+			long cell = sorted[start] >> 32;
+			for (end = start + 1; end < n && (sorted[end] >> 32) == cell; end++) {
+				// same cell
+			}
+			int slot = slot(cell);
+			while (starts[slot] >= 0) {
+				slot = (slot + 1) & mask;
+			}
+			keys[slot] = cell;
+			starts[slot] = start;
+			ends[slot] = end;
+		}
+	}
+
+	/**
+	 * Find the entries in the cell of a value and its two neighbouring cells, i.e. at least all entries closer than the cell size.
+	 * @param consumer called with the id of each entry found
+	 */
+	public void searchNear(double value, IntConsumer consumer) {
+		long cell = cell(value);
+		for (long c = cell - 1; c <= cell + 1; c++) {
+			for (int slot = slot(c); starts[slot] >= 0; slot = (slot + 1) & mask) {
+				if (keys[slot] == c) {
+					for (int i = starts[slot]; i < ends[slot]; i++) {
+						consumer.accept(ids[i]);
+					}
+					break;
+				}
+			}
+		}
+	}
+
+	private long cell(double value) {
+		return (long) Math.floor(value / cellSize);
+	}
+
+	private int slot(long cell) {
+		long h = cell * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+}
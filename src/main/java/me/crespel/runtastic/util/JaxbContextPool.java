@@ -0,0 +1,83 @@
+package me.crespel.runtastic.util;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+import com.garmin.xmlschemas.trainingcenterdatabase.v2.TrainingCenterDatabaseT;
+import com.topografix.gpx._1._1.GpxType;
+
+/**
+ * Shared JAXB context, with per-thread marshallers and unmarshallers.
+ * Creating a JAXBContext is expensive, so only one context per schema is created for the whole process.
+ * Marshallers and unmarshallers are not thread-safe, so each thread gets (and reuses) its own instances.
+ */
+public class JaxbContextPool {
+
+	public static final JaxbContextPool GPX = new JaxbContextPool(GpxType.class);
+	public static final JaxbContextPool TCX = new JaxbContextPool(TrainingCenterDatabaseT.class);
+
+	private final Class<?> type;
+	private volatile JAXBContext context;
+
+	private final ThreadLocal<Marshaller> marshallers = ThreadLocal.withInitial(this::createMarshaller);
+	private final ThreadLocal<Unmarshaller> unmarshallers = ThreadLocal.withInitial(this::createUnmarshaller);
+
+	public JaxbContextPool(Class<?> type) {
+		this.type = type;
+	}
+
+	public JAXBContext getContext() {
+		JAXBContext ctx = context;
+		if (ctx == null) {
+			synchronized (this) {
+				ctx = context;
+				if (ctx == null) {
+					try {
+						ctx = JAXBContext.newInstance(type);
+					} catch (JAXBException e) {
+						throw new RuntimeException(e);
+					}
+					context = ctx;
+				}
+			}
+		}
+		return ctx;
+	}
+
+	/**
+	 * Get the marshaller of the current thread (formatted output).
+	 * @return marshaller, to be used by the current thread only
+	 */
+	public Marshaller getMarshaller() {
+		return marshallers.get();
+	}
+
+	/**
+	 * Get the unmarshaller of the current thread.
+	 * @return unmarshaller, to be used by the current thread only
+	 */
+	public Unmarshaller getUnmarshaller() {
+		return unmarshallers.get();
+	}
+
+	protected Marshaller createMarshaller() {
+		try {
+			Marshaller m = getContext().createMarshaller();
+			m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+			return m;
+		} catch (JAXBException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	protected Unmarshaller createUnmarshaller() {
+		try {
+			return getContext().createUnmarshaller();
+		} catch (JAXBException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+}
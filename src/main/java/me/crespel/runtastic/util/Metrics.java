@@ -0,0 +1,259 @@
+package me.crespel.runtastic.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Run metrics.
+ * This class keeps counters and timers by name, updated concurrently by the workers of a run (with LongAdders).
+ * A timer counts the operations and their total time, and keeps their latencies in a histogram (see {@link Timer}).
+ * The metrics are reported as JSON at the end of the run (see {@link #writeReport(File, String)}).
+ */
+public class Metrics {
+
+	/**
+	 * Metrics not recording anything, for components used without a run (e.g. in tests).
+	 */
+	public static final Metrics NONE = new Metrics(false);
+
+	// counters and timers reported as run totals and rates
+	public static final String SESSIONS = "session";
+	public static final String POINTS_READ = "points.read";
+	public static final String BYTES_READ = "bytes.read";
+	public static final String BYTES_WRITTEN = "bytes.written";
+	public static final String BYTES_COPIED = "bytes.copied";
+
+	private final boolean enabled;
+	private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+	private final long startTime = System.currentTimeMillis();
+	private final long startNanos = System.nanoTime();
+
+	public Metrics() {
+		this(true);
+	}
+
+	private Metrics(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Add to a counter.
+	 */
+	public void add(String name, long value) {
+		if (enabled) {
+			counters.computeIfAbsent(name, n -> new LongAdder()).add(value);
+		}
+	}
+
+	public void increment(String name) {
+		add(name, 1);
+	}
+
+	/**
+	 * @return value of a counter (0 if unknown)
+	 */
+	public long getCount(String name) {
+		LongAdder counter = counters.get(name);
+		return counter != null ? counter.sum() : 0;
+	}
+
+	/**
+	 * @return start time of an operation, to be recorded with {@link #record(String, long)}
+	 */
+	public long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Record an operation of a timer.
+	 * @param start start time of the operation (see {@link #start()})
+	 * @return duration of the operation (nanoseconds)
+	 */
+	public long record(String name, long start) {
+		if (!enabled) {
+			return 0;
+		}
+		long nanos = System.nanoTime() - start;
+		recordNanos(name, nanos);
+		return nanos;
+	}
+
+	/**
+	 * Record an operation of a timer, with its duration.
+	 */
+	public void recordNanos(String name, long nanos) {
+		if (enabled) {
+			timers.computeIfAbsent(name, n -> new Timer()).record(nanos);
+		}
+	}
+
+	/**
+	 * @return timer, or null if nothing recorded
+	 */
+	public Timer getTimer(String name) {
+		return timers.get(name);
+	}
+
+	/**
+	 * @return report of the run: totals, rates and per-session latency, then all timers and counters
+	 */
+	public Map<String, Object> report(String action) {
+		long wallNanos = System.nanoTime() - startNanos;
+		double seconds = wallNanos / 1e9;
+		Timer sessions = timers.get(SESSIONS);
+		long sessionCount = sessions != null ? sessions.getCount() : 0;
+
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("action", action);
+		report.put("startTime", startTime);
+		report.put("wallTimeMs", millis(wallNanos));
+		report.put("sessions", sessionCount);
+		report.put("sessionsPerSecond", seconds > 0 ? sessionCount / seconds : 0);
+		report.put("points", getCount(POINTS_READ));
+		report.put("pointsPerSecond", seconds > 0 ? getCount(POINTS_READ) / seconds : 0);
+		report.put("bytesRead", getCount(BYTES_READ));
+		report.put("bytesWritten", getCount(BYTES_WRITTEN) + getCount(BYTES_COPIED));
+		report.put("sessionLatency", sessions != null ? sessions.report() : null);
+		Map<String, Object> timerReports = new TreeMap<>();
+		for (Map.Entry<String, Timer> timer : timers.entrySet()) {
+			timerReports.put(timer.getKey(), timer.getValue().report());
+		}
+		report.put("timers", timerReports);
+		Map<String, Object> counterValues = new TreeMap<>();
+		for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+			counterValues.put(counter.getKey(), counter.getValue().sum());
+		}
+		report.put("counters", counterValues);
+		return report;
+	}
+
+	/**
+	 * Write the report of the run as JSON.
+	 */
+	public void writeReport(File file, String action) throws IOException {
+		new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, report(action));
+	}
+
+	private static double millis(long nanos) {
+		return Math.round(nanos / 1e3) / 1e3;
+	}
+
+	/**
+	 * Timer.
+	 * Latencies are counted in a log-linear histogram: 8 buckets per power of 2, i.e. percentiles within 12.5%.
+	 */
+	public static class Timer {
+
+		private static final int SUB_BUCKET_BITS = 3;
+		private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+		private final LongAdder count = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+		private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+		private final LongAdder[] buckets = new LongAdder[bucket(Long.MAX_VALUE) + 1];
+
+		public Timer() {
+			for (int i = 0; i < buckets.length; i++) {
+				buckets[i] = new LongAdder();
+			}
+		}
+
+		public void record(long nanos) {
+			nanos = Math.max(0, nanos);
+			count.increment();
+			totalNanos.add(nanos);
+			maxNanos.accumulate(nanos);
+			buckets[bucket(nanos)].increment();
+		}
+
+		public long getCount() {
+			return count.sum();
+		}
+
+		public long getTotalNanos() {
+			return totalNanos.sum();
+		}
+
+		public long getMaxNanos() {
+			return maxNanos.get();
+		}
+
+		/**
+		 * @param quantile quantile (0 to 1)
+		 * @return upper bound of the bucket of the quantile (nanoseconds), at most the maximum
+		 */
+		public long getPercentileNanos(double quantile) {
+			long total = 0;
+			long[] counts = new long[buckets.length];
+			for (int i = 0; i < buckets.length; i++) {
+				counts[i] = buckets[i].sum();
+				total += counts[i];
+			}
+			if (total == 0) {
+				return 0;
+			}
+			long rank = Math.max(1, (long) Math.ceil(quantile * total));
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= rank) {
+					return Math.min(upperBound(i), getMaxNanos());
+				}
+			}
+			return getMaxNanos();
+		}
+
+		public Map<String, Object> report() {
+			long n = getCount();
+			Map<String, Object> report = new LinkedHashMap<>();
+			report.put("count", n);
+			report.put("totalMs", millis(getTotalNanos()));
+			report.put("meanMs", n > 0 ? millis(getTotalNanos() / n) : 0);
+			report.put("p50Ms", millis(getPercentileNanos(0.5)));
+			report.put("p99Ms", millis(getPercentileNanos(0.99)));
+			report.put("maxMs", millis(getMaxNanos()));
+			return report;
+		}
+
+		/**
+		 * @return histogram bucket of a latency
+		 */
+		public static int bucket(long nanos) {
+			if (nanos < SUB_BUCKETS) {
+				return (int) nanos;
+			}
+			int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+			int sub = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+			return SUB_BUCKETS * (exponent - SUB_BUCKET_BITS + 1) + sub;
+		}
+
+		/**
+		 * @return largest latency of a histogram bucket
+		 */
+		public static long upperBound(int bucket) {
+			if (bucket < SUB_BUCKETS) {
+				return bucket;
+			}
+			int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+			int sub = bucket % SUB_BUCKETS;
+			return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+		}
+
+	}
+
+}
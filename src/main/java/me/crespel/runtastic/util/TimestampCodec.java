@@ -0,0 +1,306 @@
+package me.crespel.runtastic.util;
+
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+
+/**
+ * Timestamp codec.
+ * This class parses the timestamps of the export ("yyyy-MM-dd HH:mm:ss Z") and xsd:dateTime values to epoch millis,
+ * and formats epoch millis as xsd:dateTime (as XMLGregorianCalendar.toXMLFormat() does for a GregorianCalendar in the given time zone),
+ * working on a reusable character buffer (no object per timestamp).
+ * Instances are not thread-safe, one codec should be used per document.
+ */
+public class TimestampCodec {
+
+	/** 1582-10-15T00:00:00Z, the Gregorian cutover of GregorianCalendar (which uses the Julian calendar before) */
+	public static final long GREGORIAN_CUTOVER = -12219292800000L;
+	private static final long MAX_FORMATTED = 253402300799999L; // 9999-12-31T23:59:59.999Z
+
+	private final TimeZone zone;
+	private final char[] buffer = new char[64];
+	private int length;
+	private int offset;
+	private boolean hasOffset;
+
+	/**
+	 * Create a codec using the default time zone (for timestamps without offset, and as offset of formatted timestamps).
+	 */
+	public TimestampCodec() {
+		this(TimeZone.getDefault());
+	}
+
+	public TimestampCodec(TimeZone zone) {
+		this.zone = zone;
+	}
+
+	/**
+	 * @return buffer holding the last formatted (or copied) timestamp
+	 */
+	public char[] getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * @return offset of the last parsed timestamp, in minutes (the time zone offset if it had none)
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return true if the last parsed timestamp had an offset
+	 */
+	public boolean hasOffset() {
+		return hasOffset;
+	}
+
+	/**
+	 * Clear the buffer, before appending the characters of a timestamp.
+	 */
+	public TimestampCodec reset() {
+		length = 0;
+		return this;
+	}
+
+	/**
+	 * Append characters to the buffer (e.g. for text received in several parts).
+	 * @return false if the buffer is full (the text cannot be a timestamp)
+	 */
+	public boolean append(char[] chars, int start, int len) {
+		if (length + len > buffer.length) {
+			return false;
+		}
+		System.arraycopy(chars, start, buffer, length, len);
+		length += len;
+		return true;
+	}
+
+	/**
+	 * @return the buffer content as string
+	 */
+	public String bufferToString() {
+		return new String(buffer, 0, length);
+	}
+
+	/**
+	 * Parse the timestamp in the buffer.
+	 * @see #parse(char[], int, int)
+	 */
+	public long parse() {
+		return parse(buffer, 0, length);
+	}
+
+	/**
+	 * Parse a timestamp ("yyyy-MM-dd HH:mm:ss Z" or xsd:dateTime).
+	 * The date and time may be separated by a space or 'T', the seconds may have a fraction (truncated to millis),
+	 * and the offset may be 'Z', "+hh:mm", "+hhmm" or "+hh" (or missing, for the time zone of this codec).
+	 * Leading and trailing whitespace is ignored.
+	 * @return epoch millis
+	 * @throws IllegalArgumentException if the text is not a supported timestamp
+	 */
+	public long parse(char[] chars, int start, int len) {
+		int end = start + len;
+		while (start < end && chars[start] <= ' ') {
+			start++;
+		}
+		while (end > start && chars[end - 1] <= ' ') {
+			end--;
+		}
+		int i = start;
+		if (end - i < 19 || chars[i + 4] != '-' || chars[i + 7] != '-' || (chars[i + 10] != ' ' && chars[i + 10] != 'T')
+				|| chars[i + 13] != ':' || chars[i + 16] != ':') {
+			throw invalid(chars, start, end);
+		}
+		int year = digits(chars, i, 4);
+		int month = digits(chars, i + 5, 2);
+		int day = digits(chars, i + 8, 2);
+		int hour = digits(chars, i + 11, 2);
+		int minute = digits(chars, i + 14, 2);
+		int second = digits(chars, i + 17, 2);
+		if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 24 || minute < 0 || minute > 59 || second < 0 || second > 60) {
+			throw invalid(chars, start, end);
+		}
+		i += 19;
+		int millis = 0;
+		if (i < end && chars[i] == '.') {
+			i++;
+			int scale = 100;
+			int fractionStart = i;
+			while (i < end && chars[i] >= '0' && chars[i] <= '9') {
+				millis += (chars[i] - '0') * scale;
+				scale /= 10;
+				i++;
+			}
+			if (i == fractionStart) {
+				throw invalid(chars, start, end);
+			}
+		}
+		while (i < end && chars[i] == ' ') {
+			i++;
+		}
+		long local = ((((daysFromCivil(year, month, day) * 24 + hour) * 60 + minute) * 60 + second) * 1000) + millis;
+		if (i == end) {
+			hasOffset = false;
+			int zoneOffset = zone.getOffset(local - zone.getOffset(local));
+			offset = zoneOffset / 60000;
+			return local - zoneOffset;
+		}
+		hasOffset = true;
+		if (chars[i] == 'Z' && i + 1 == end) {
+			offset = 0;
+			return local;
+		}
+		int sign = chars[i] == '+' ? 1 : chars[i] == '-' ? -1 : 0;
+		int remaining = end - i - 1;
+		int offsetHours, offsetMinutes;
+		if (sign != 0 && remaining == 2) {
+			offsetHours = digits(chars, i + 1, 2);
+			offsetMinutes = 0;
+		} else if (sign != 0 && remaining == 4) {
+			offsetHours = digits(chars, i + 1, 2);
+			offsetMinutes = digits(chars, i + 3, 2);
+		} else if (sign != 0 && remaining == 5 && chars[i + 3] == ':') {
+			offsetHours = digits(chars, i + 1, 2);
+			offsetMinutes = digits(chars, i + 4, 2);
+		} else {
+			throw invalid(chars, start, end);
+		}
+		if (offsetHours < 0 || offsetMinutes < 0 || offsetMinutes > 59) {
+			throw invalid(chars, start, end);
+		}
+		offset = sign * (offsetHours * 60 + offsetMinutes);
+		return local - offset * 60000L;
+	}
+
+	/**
+	 * Parse a timestamp.
+	 * @see #parse(char[], int, int)
+	 */
+	public long parse(CharSequence text) {
+		reset();
+		int len = text.length();
+		if (len > buffer.length) {
+			throw new IllegalArgumentException("Invalid timestamp '" + text + "'");
+		}
+		for (int i = 0; i < len; i++) {
+			buffer[i] = text.charAt(i);
+		}
+		length = len;
+		return parse();
+	}
+
+	/**
+	 * Format epoch millis as xsd:dateTime with millis, in the time zone of this codec ("Z" for UTC),
+	 * e.g. "2018-09-01T09:43:13.000Z".
+	 * @return length of the formatted timestamp, in the buffer
+	 */
+	public int format(long epochMillis) {
+		int zoneOffset = zone.getOffset(epochMillis);
+		int offsetMinutes = zoneOffset / 60000;
+		long local = epochMillis + zoneOffset;
+		if (epochMillis < GREGORIAN_CUTOVER || local < GREGORIAN_CUTOVER || local > MAX_FORMATTED) {
+			return formatCalendar(epochMillis);
+		}
+		long days = Math.floorDiv(local, 86400000L);
+		int millisOfDay = (int) Math.floorMod(local, 86400000L);
+		// civil from days (proleptic Gregorian calendar)
+		long z = days + 719468;
+		long era = Math.floorDiv(z, 146097);
+		long doe = z - era * 146097;
+		long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+		long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+		long mp = (5 * doy + 2) / 153;
+		int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+		int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+		int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+
+		char[] b = buffer;
+		put(b, 0, year, 4);
+		b[4] = '-';
+		put(b, 5, month, 2);
+		b[7] = '-';
+		put(b, 8, day, 2);
+		b[10] = 'T';
+		put(b, 11, millisOfDay / 3600000, 2);
+		b[13] = ':';
+		put(b, 14, millisOfDay / 60000 % 60, 2);
+		b[16] = ':';
+		put(b, 17, millisOfDay / 1000 % 60, 2);
+		b[19] = '.';
+		put(b, 20, millisOfDay % 1000, 3);
+		int len = 23;
+		if (offsetMinutes == 0) {
+			b[len++] = 'Z';
+		} else {
+			int abs = Math.abs(offsetMinutes);
+			b[len++] = offsetMinutes < 0 ? '-' : '+';
+			put(b, len, abs / 60, 2);
+			b[len + 2] = ':';
+			put(b, len + 3, abs % 60, 2);
+			len += 5;
+		}
+		length = len;
+		return len;
+	}
+
+	/**
+	 * Format epoch millis as xsd:dateTime.
+	 * @see #format(long)
+	 */
+	public String formatToString(long epochMillis) {
+		return new String(buffer, 0, format(epochMillis));
+	}
+
+	private int formatCalendar(long epochMillis) {
+		GregorianCalendar cal = new GregorianCalendar(zone);
+		cal.setTimeInMillis(epochMillis);
+		String text;
+		try {
+			text = DatatypeFactory.newInstance().newXMLGregorianCalendar(cal).toXMLFormat();
+		} catch (DatatypeConfigurationException e) {
+			throw new RuntimeException(e);
+		}
+		text.getChars(0, text.length(), buffer, 0);
+		length = text.length();
+		return length;
+	}
+
+	private static long daysFromCivil(int year, int month, int day) {
+		long y = month <= 2 ? year - 1 : year;
+		long era = Math.floorDiv(y, 400);
+		long yoe = y - era * 400;
+		long doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+		return era * 146097 + doe - 719468;
+	}
+
+	/**
+	 * @return value of the digits, or -1 if a character is not a digit
+	 */
+	private static int digits(char[] chars, int start, int count) {
+		int value = 0;
+		for (int i = start; i < start + count; i++) {
+			char c = chars[i];
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	private static void put(char[] b, int start, int value, int count) {
+		for (int i = start + count - 1; i >= start; i--) {
+			b[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+	}
+
+	private static IllegalArgumentException invalid(char[] chars, int start, int end) {
+		return new IllegalArgumentException("Invalid timestamp '" + new String(chars, start, end - start) + "'");
+	}
+
+}
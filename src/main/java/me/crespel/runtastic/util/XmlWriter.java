@@ -0,0 +1,171 @@
+package me.crespel.runtastic.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Streaming XML writer.
+ * This class writes elements straight to an XMLStreamWriter, formatted the same way as a JAXB marshaller
+ * (standalone declaration, and with JAXB_FORMATTED_OUTPUT 4 spaces indentation), or compact (no whitespace at all).
+ * Null values are not written, as JAXB does.
+ */
+public class XmlWriter implements AutoCloseable {
+
+	private static final XMLOutputFactory FACTORY = XMLOutputFactory.newInstance();
+	private static final char[] INDENT = "                                                                ".toCharArray();
+
+	private final OutputStream out;
+	private final XMLStreamWriter writer;
+	private final boolean formatted;
+	private int depth;
+	private boolean[] children = new boolean[16];
+
+	public XmlWriter(OutputStream out, boolean formatted) {
+		this.out = out;
+		this.formatted = formatted;
+		try {
+			out.write(("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" + (formatted ? "\n" : "")).getBytes(StandardCharsets.UTF_8));
+			writer = FACTORY.createXMLStreamWriter(out, "UTF-8");
+		} catch (IOException | XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Start the root element, in the given default namespace.
+	 */
+	public XmlWriter startDocument(String name, String namespace) throws XMLStreamException {
+		startElement(name);
+		writer.writeDefaultNamespace(namespace);
+		return this;
+	}
+
+	public XmlWriter startElement(String name) throws XMLStreamException {
+		indent();
+		writer.writeStartElement(name);
+		push();
+		return this;
+	}
+
+	/**
+	 * Start an element without content, only attributes can follow (there is no matching end).
+	 */
+	public XmlWriter emptyElement(String name) throws XMLStreamException {
+		indent();
+		writer.writeEmptyElement(name);
+		return this;
+	}
+
+	public XmlWriter attribute(String name, Object value) throws XMLStreamException {
+		if (value != null) {
+			writer.writeAttribute(name, value.toString());
+		}
+		return this;
+	}
+
+	/**
+	 * Write an element with text content, if not null.
+	 */
+	public XmlWriter element(String name, Object value) throws XMLStreamException {
+		if (value != null) {
+			indent();
+			writer.writeStartElement(name);
+			writer.writeCharacters(value.toString());
+			writer.writeEndElement();
+		}
+		return this;
+	}
+
+	/**
+	 * Write an element with text content from a buffer (e.g. a formatted timestamp, see {@link TimestampCodec}).
+	 */
+	public XmlWriter element(String name, char[] text, int start, int length) throws XMLStreamException {
+		indent();
+		writer.writeStartElement(name);
+		writer.writeCharacters(text, start, length);
+		writer.writeEndElement();
+		return this;
+	}
+
+	/**
+	 * Write an element with a JAXB marshaller (e.g. for content not handled by the caller), not indented.
+	 */
+	public XmlWriter fragment(Marshaller marshaller, Object element) throws XMLStreamException {
+		indent();
+		try {
+			marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+			try {
+				marshaller.marshal(element, writer);
+			} finally {
+				marshaller.setProperty(Marshaller.JAXB_FRAGMENT, false);
+			}
+		} catch (JAXBException e) {
+			throw new XMLStreamException(e);
+		}
+		return this;
+	}
+
+	public XmlWriter endElement() throws XMLStreamException {
+		boolean hadChildren = children[depth];
+		depth--;
+		if (formatted && hadChildren) {
+			newLine(depth);
+		}
+		writer.writeEndElement();
+		return this;
+	}
+
+	@Override
+	public void close() throws XMLStreamException {
+		while (depth > 0) {
+			endElement();
+		}
+		writer.writeEndDocument();
+		if (formatted) {
+			writer.writeCharacters("\n");
+		}
+		writer.flush();
+		writer.close();
+		try {
+			out.flush();
+		} catch (IOException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+	private void indent() throws XMLStreamException {
+		if (depth > 0) {
+			children[depth] = true;
+			if (formatted) {
+				newLine(depth);
+			}
+		}
+	}
+
+	private void push() {
+		depth++;
+		if (depth == children.length) {
+			children = Arrays.copyOf(children, depth * 2);
+		}
+		children[depth] = false;
+	}
+
+	private void newLine(int level) throws XMLStreamException {
+		writer.writeCharacters("\n");
+		int spaces = level * 4;
+		while (spaces > 0) {
+			int n = Math.min(spaces, INDENT.length);
+			writer.writeCharacters(INDENT, 0, n);
+			spaces -= n;
+		}
+	}
+
+}
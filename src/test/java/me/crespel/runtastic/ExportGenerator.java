@@ -0,0 +1,322 @@
+package me.crespel.runtastic;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.UUID;
+
+import me.crespel.runtastic.parser.SportSessionParser;
+
+/**
+ * Synthetic Runtastic export generator, for scale tests (see {@link TestScale}).
+ * This class writes an export tree as Runtastic does (2021 style file names): sport sessions with their GPS data (JSON,
+ * or GPX for part of them), heart rate and elevation data, photos with their metadata and sport session albums, and the user.
+ * Sessions follow routes: a share of them (the overlap density) repeat an existing route, so that their bounds overlap,
+ * and some routes are next to each other, so that their sessions are compound.
+ */
+public class ExportGenerator {
+
+	private static final long START_TIME = 1325404800000L; // 2012-01-01
+	private static final long SESSION_INTERVAL = 4 * 3600 * 1000L;
+	private static final int POINT_INTERVAL = 3000;
+
+	private int sessions = 1000;
+	private int pointsPerSession = 100;
+	private double overlapDensity = 0.3;
+	private double gpxRatio = 0.3;
+	private double heartRateRatio = 0.5;
+	private double elevationRatio = 0.5;
+	private double photoRatio = 0.1;
+	private long seed = 42;
+
+	private final SimpleDateFormat timestampFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss Z");
+	private final SimpleDateFormat fileNameFormat = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss");
+	private final SimpleDateFormat xmlDateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+
+	public ExportGenerator() {
+		for (SimpleDateFormat format : new SimpleDateFormat[] { timestampFormat, fileNameFormat, xmlDateFormat }) {
+			format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		}
+	}
+
+	public void setSessions(int sessions) {
+		this.sessions = sessions;
+	}
+
+	public void setPointsPerSession(int pointsPerSession) {
+		this.pointsPerSession = pointsPerSession;
+	}
+
+	/**
+	 * @param overlapDensity share of sessions repeating an existing route (0 to 1)
+	 */
+	public void setOverlapDensity(double overlapDensity) {
+		this.overlapDensity = overlapDensity;
+	}
+
+	/**
+	 * @param gpxRatio share of sessions with GPS data as GPX (exports since April 2020) instead of JSON (0 to 1)
+	 */
+	public void setGpxRatio(double gpxRatio) {
+		this.gpxRatio = gpxRatio;
+	}
+
+	public void setHeartRateRatio(double heartRateRatio) {
+		this.heartRateRatio = heartRateRatio;
+	}
+
+	public void setElevationRatio(double elevationRatio) {
+		this.elevationRatio = elevationRatio;
+	}
+
+	public void setPhotoRatio(double photoRatio) {
+		this.photoRatio = photoRatio;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Generate an export.
+	 * @param root export root directory (created if needed)
+	 */
+	public void generate(File root) throws IOException {
+		Random random = new Random(seed);
+		File sessionsDir = new File(root, "Sport-sessions");
+		File gpsDir = new File(sessionsDir, SportSessionParser.GPS_DATA_DIR);
+		File heartRateDir = new File(sessionsDir, SportSessionParser.HEARTRATE_DATA_DIR);
+		File elevationDir = new File(sessionsDir, SportSessionParser.ELEVATION_DATA_DIR);
+		File photosDir = new File(root, "Photos");
+		File photosMetaDataDir = new File(root, SportSessionParser.PHOTOS_META_DATA_DIR);
+		File albumsDir = new File(root, SportSessionParser.PHOTOS_SPORT_SESSION_ALBUMS_DIR);
+		File userDir = new File(root, SportSessionParser.USER_DIR);
+		for (File dir : new File[] { gpsDir, heartRateDir, elevationDir, photosMetaDataDir, albumsDir, userDir }) {
+			if (!dir.isDirectory() && !dir.mkdirs()) {
+				throw new IOException("Cannot create directory '" + dir + "'");
+			}
+		}
+		writeUser(new File(userDir, "user.json"));
+
+		List<double[]> routes = new ArrayList<>();
+		long photoId = 1000000;
+		for (int i = 0; i < sessions; i++) {
+			// route: bounds of a new route (random, or north of an existing route), or an existing route
+			double[] route;
+			if (!routes.isEmpty() && random.nextDouble() < overlapDensity) {
+				route = routes.get(random.nextInt(routes.size()));
+			} else {
+				double height = 0.01 + random.nextDouble() * 0.03;
+				double width = 0.01 + random.nextDouble() * 0.03;
+				if (!routes.isEmpty() && random.nextInt(5) == 0) {
+					double[] south = routes.get(random.nextInt(routes.size()));
+					route = new double[] { south[2], south[1], south[2] + height, south[3] };
+				} else {
+					double lat = 46 + random.nextDouble() * 2;
+					double lon = 6 + random.nextDouble() * 4;
+					route = new double[] { lat, lon, lat + height, lon + width };
+				}
+				routes.add(route);
+			}
+			double[][] points = createPoints(random, route);
+
+			String id = new UUID(random.nextLong(), random.nextLong()).toString();
+			long startTime = START_TIME + i * SESSION_INTERVAL;
+			String fileName = fileNameFormat.format(new Date(startTime)) + "-UTC_" + id + ".json";
+			boolean heartRate = random.nextDouble() < heartRateRatio;
+			writeSportSession(new File(sessionsDir, fileName), id, i, startTime, points, heartRate);
+			if (random.nextDouble() < gpxRatio) {
+				writeGpxData(new File(gpsDir, fileName.replace(".json", ".gpx")), startTime, points);
+			} else {
+				writeGpsData(new File(gpsDir, fileName), startTime, points);
+			}
+			if (heartRate) {
+				writeHeartRateData(new File(heartRateDir, fileName), random, startTime, points);
+			}
+			if (random.nextDouble() < elevationRatio) {
+				writeElevationData(new File(elevationDir, fileName), startTime, points);
+			}
+			if (random.nextDouble() < photoRatio) {
+				List<String> photoIds = new ArrayList<>();
+				for (int p = 1 + random.nextInt(3); p > 0; p--) {
+					String photo = String.valueOf(photoId++);
+					double[] point = points[random.nextInt(points.length)];
+					writeImagesMetaData(new File(photosMetaDataDir, photo + ".json"), photo, startTime, point);
+					writePhoto(new File(photosDir, photo + ".jpg"));
+					photoIds.add(photo);
+				}
+				writeSportSessionAlbum(new File(albumsDir, id + ".json"), id, photoIds);
+			}
+		}
+	}
+
+	/**
+	 * @return points (latitude, longitude, altitude, distance) of a random walk filling the bounds of the route
+	 */
+	private double[][] createPoints(Random random, double[] route) {
+		int count = Math.max(2, pointsPerSession);
+		double[][] points = new double[count][4];
+		double lat = 0, lon = 0, minLat = 0, minLon = 0, maxLat = 0, maxLon = 0;
+		for (int p = 0; p < count; p++) {
+			lat += random.nextDouble() - 0.45;
+			lon += random.nextDouble() - 0.45;
+			points[p][0] = lat;
+			points[p][1] = lon;
+			minLat = Math.min(minLat, lat);
+			minLon = Math.min(minLon, lon);
+			maxLat = Math.max(maxLat, lat);
+			maxLon = Math.max(maxLon, lon);
+		}
+		double distance = 0;
+		for (int p = 0; p < count; p++) {
+			// scaled to the bounds of the route, the extremes being on its edges
+			points[p][0] = route[0] + (points[p][0] - minLat) / Math.max(maxLat - minLat, 1e-9) * (route[2] - route[0]);
+			points[p][1] = route[1] + (points[p][1] - minLon) / Math.max(maxLon - minLon, 1e-9) * (route[3] - route[1]);
+			points[p][2] = 400 + 50 * Math.sin(p / 20.0);
+			if (p > 0) {
+				distance += Math.hypot(points[p][0] - points[p - 1][0], points[p][1] - points[p - 1][1]) * 111000;
+			}
+			points[p][3] = distance;
+		}
+		return points;
+	}
+
+	private void writeUser(File file) throws IOException {
+		try (Writer w = createWriter(file)) {
+			w.write("{\"first_name\":\"John\",\"last_name\":\"Example\",\"created_at\":1312603864000,\"birthday\":\"1970-02-11\",\"city_name\":\"Zürich, Switzerland\","
+					+ "\"confirmed_at\":1312603867000,\"email\":\"mymail@gmail.com\",\"gender\":\"M\",\"height\":1.81,\"language\":\"de\",\"last_sign_in_at\":1588422621000,"
+					+ "\"locale\":\"de\",\"login\":\"John-Example\",\"time_zone\":\"UTC\",\"updated_at\":1588422621000,\"weight\":75.0}");
+		}
+	}
+
+	private void writeSportSession(File file, String id, int index, long startTime, double[][] points, boolean heartRate) throws IOException {
+		long duration = (long) (points.length - 1) * POINT_INTERVAL;
+		int distance = (int) points[points.length - 1][3];
+		try (Writer w = createWriter(file)) {
+			w.write("{\"start_time\":" + startTime + ",\"end_time\":" + (startTime + duration) + ",\"created_at\":" + (startTime + duration + 60000)
+					+ ",\"updated_at\":" + (startTime + duration + 120000) + ",\"start_time_timezone_offset\":0,\"end_time_timezone_offset\":0"
+					+ ",\"distance\":" + distance + ",\"duration\":" + duration + ",\"elevation_gain\":50,\"elevation_loss\":50"
+					+ ",\"average_speed\":" + (duration > 0 ? distance * 3600.0 / duration : 0.0) + ",\"calories\":" + (distance / 15)
+					+ ",\"notes\":\"Generated session " + index + (index % 10 == 0 ? " #training" : "") + "\""
+					+ (heartRate ? ",\"pulse_avg\":150,\"pulse_max\":180" : "")
+					+ ",\"manual\":false,\"edited\":false,\"completed\":true,\"indoor\":false,\"id\":\"" + id + "\",\"sport_type_id\":\"" + (1 + index % 3) + "\"}");
+		}
+	}
+
+	private void writeGpsData(File file, long startTime, double[][] points) throws IOException {
+		try (Writer w = createWriter(file)) {
+			w.write('[');
+			for (int p = 0; p < points.length; p++) {
+				if (p > 0) {
+					w.write(",\n");
+				}
+				w.write("{\"version\":1,\"timestamp\":\"" + timestampFormat.format(new Date(startTime + (long) p * POINT_INTERVAL)) + "\",\"longitude\":" + points[p][1]
+						+ ",\"latitude\":" + points[p][0] + ",\"altitude\":" + points[p][2] + ",\"accuracy_v\":0,\"accuracy_h\":0,\"speed\":10.0,\"duration\":" + p * POINT_INTERVAL
+						+ ",\"distance\":" + (int) points[p][3] + ",\"elevation_gain\":0,\"elevation_loss\":0}");
+			}
+			w.write(']');
+		}
+	}
+
+	private void writeGpxData(File file, long startTime, double[][] points) throws IOException {
+		try (Writer w = createWriter(file)) {
+			w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+			w.write("<gpx version=\"1.1\" creator=\"Runtastic: Life is short - live long, http://www.runtastic.com\" xmlns=\"http://www.topografix.com/GPX/1/1\">\n");
+			w.write("  <metadata>\n    <time>" + xmlDateFormat.format(new Date(startTime)) + "</time>\n  </metadata>\n");
+			w.write("  <trk>\n    <trkseg>\n");
+			for (int p = 0; p < points.length; p++) {
+				w.write("      <trkpt lon=\"" + points[p][1] + "\" lat=\"" + points[p][0] + "\">\n");
+				w.write("        <ele>" + points[p][2] + "</ele>\n");
+				w.write("        <time>" + xmlDateFormat.format(new Date(startTime + (long) p * POINT_INTERVAL)) + "</time>\n");
+				w.write("      </trkpt>\n");
+			}
+			w.write("    </trkseg>\n  </trk>\n</gpx>\n");
+		}
+	}
+
+	private void writeHeartRateData(File file, Random random, long startTime, double[][] points) throws IOException {
+		try (Writer w = createWriter(file)) {
+			w.write('[');
+			for (int p = 0; p < points.length; p++) {
+				if (p > 0) {
+					w.write(",\n");
+				}
+				w.write("{\"version\":1,\"timestamp\":\"" + timestampFormat.format(new Date(startTime + (long) p * POINT_INTERVAL)) + "\",\"heart_rate\":" + (130 + random.nextInt(40))
+						+ ",\"signal_strength\":0,\"duration\":" + p * POINT_INTERVAL + ",\"distance\":" + (int) points[p][3] + "}");
+			}
+			w.write(']');
+		}
+	}
+
+	private void writeElevationData(File file, long startTime, double[][] points) throws IOException {
+		try (Writer w = createWriter(file)) {
+			w.write('[');
+			for (int p = 0; p < points.length; p++) {
+				if (p > 0) {
+					w.write(",\n");
+				}
+				w.write("{\"version\":1,\"timestamp\":\"" + timestampFormat.format(new Date(startTime + (long) p * POINT_INTERVAL)) + "\",\"elevation\":" + (int) points[p][2]
+						+ ",\"source_type\":1,\"duration\":" + p * POINT_INTERVAL + ",\"distance\":" + (int) points[p][3] + ",\"elevation_gain\":0,\"elevation_loss\":0}");
+			}
+			w.write(']');
+		}
+	}
+
+	private void writeImagesMetaData(File file, String photoId, long startTime, double[] point) throws IOException {
+		try (Writer w = createWriter(file)) {
+			w.write("{\"created_at\":" + startTime + ",\"latitude\":" + point[0] + ",\"longitude\":" + point[1] + ",\"description\":\"Photo " + photoId + "\",\"id\":\"" + photoId + "\"}");
+		}
+	}
+
+	private void writePhoto(File file) throws IOException {
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(new byte[1024]);
+		}
+	}
+
+	private void writeSportSessionAlbum(File file, String sessionId, List<String> photoIds) throws IOException {
+		try (Writer w = createWriter(file)) {
+			w.write("{\"id\":\"" + sessionId + "\",\"sample_id\":\"" + sessionId + "\",\"photos_ids\":[");
+			for (int p = 0; p < photoIds.size(); p++) {
+				w.write((p > 0 ? ",\"" : "\"") + photoIds.get(p) + "\"");
+			}
+			w.write("]}");
+		}
+	}
+
+	private Writer createWriter(File file) throws IOException {
+		return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Generate an export: {@code ExportGenerator <export path> [sessions] [points per session] [overlap density]}
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Expected arguments: <export path> [sessions] [points per session] [overlap density]");
+			return;
+		}
+		ExportGenerator generator = new ExportGenerator();
+		if (args.length > 1) {
+			generator.setSessions(Integer.parseInt(args[1]));
+		}
+		if (args.length > 2) {
+			generator.setPointsPerSession(Integer.parseInt(args[2]));
+		}
+		if (args.length > 3) {
+			generator.setOverlapDensity(Double.parseDouble(args[3]));
+		}
+		generator.generate(new File(args[0]));
+	}
+
+}
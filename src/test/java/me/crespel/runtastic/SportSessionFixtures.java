@@ -0,0 +1,75 @@
+package me.crespel.runtastic;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+
+import org.junit.rules.TemporaryFolder;
+
+import com.topografix.gpx._1._1.BoundsType;
+import com.topografix.gpx._1._1.GpxType;
+import com.topografix.gpx._1._1.MetadataType;
+
+import me.crespel.runtastic.model.GpxSession;
+import me.crespel.runtastic.model.SportSession;
+import me.crespel.runtastic.parser.SportSessionParser;
+
+/**
+ * Sport session fixtures shared by the tests: an export with one sport session and its GPS data,
+ * and sport sessions with given GPX bounds.
+ */
+public class SportSessionFixtures {
+
+	public static final String SESSION_ID = "fdd2f131-ef65-4e6c-b27e-50b8ecf465d4";
+
+	private SportSessionFixtures() {
+	}
+
+	/**
+	 * Create an export ("export" in the folder) with the user and one sport session with its GPS data.
+	 * @return sport session file
+	 */
+	public static File createExport(TemporaryFolder folder) throws Exception {
+		File sessions = folder.newFolder("export", "Sport-sessions");
+		File gpsData = new File(sessions, SportSessionParser.GPS_DATA_DIR);
+		gpsData.mkdirs();
+		folder.newFolder("export", "User");
+		Files.copy(getResource("user.json").toPath(), new File(folder.getRoot(), "export/User/user.json").toPath());
+		File file = new File(sessions, SESSION_ID + ".json");
+		Files.copy(getResource("SportSession.json").toPath(), file.toPath());
+		Files.copy(getResource("GpsData.json").toPath(), new File(gpsData, file.getName()).toPath());
+		return file;
+	}
+
+	/**
+	 * @return test resource file (of this package)
+	 */
+	public static File getResource(String name) throws Exception {
+		return new File(SportSessionFixtures.class.getResource(name).toURI());
+	}
+
+	/**
+	 * Create a sport session with a GPX session holding bounds only (none if minLat is null).
+	 */
+	public static SportSession createSession(String id, Integer distance, BigDecimal minLat, BigDecimal minLon, BigDecimal maxLat, BigDecimal maxLon) {
+		SportSession session = new SportSession();
+		session.setId(id);
+		session.setDistance(distance);
+		GpxType gpx = new GpxType();
+		if (minLat != null) {
+			BoundsType bounds = new BoundsType();
+			bounds.setMinlat(minLat);
+			bounds.setMinlon(minLon);
+			bounds.setMaxlat(maxLat);
+			bounds.setMaxlon(maxLon);
+			MetadataType meta = new MetadataType();
+			meta.setBounds(bounds);
+			gpx.setMetadata(meta);
+		}
+		GpxSession gpxSession = new GpxSession();
+		gpxSession.setGpx(gpx);
+		session.setGpxSession(gpxSession);
+		return session;
+	}
+
+}
@@ -0,0 +1,102 @@
+package me.crespel.runtastic;
+
+import static me.crespel.runtastic.SportSessionFixtures.createSession;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import me.crespel.runtastic.converter.ExportConverter;
+import me.crespel.runtastic.model.GeoBounds;
+import me.crespel.runtastic.model.SportSession;
+import me.crespel.runtastic.util.BoundsTree;
+
+/**
+ * BoundsTree tests, compared to a linear scan.
+ */
+public class TestBoundsTree {
+
+	@Test
+	public void testSearchWithin() {
+		Random random = new Random(42);
+		for (int n : new int[] {0, 1, 15, 16, 17, 300, 5000}) {
+			for (int capacity : new int[] {2, 4, BoundsTree.DEFAULT_NODE_CAPACITY}) {
+				double[] minLat = new double[n], minLon = new double[n], maxLat = new double[n], maxLon = new double[n];
+				for (int i = 0; i < n; i++) {
+					minLat[i] = 46 + random.nextDouble();
+					minLon[i] = 8 + random.nextDouble();
+					maxLat[i] = minLat[i] + random.nextDouble() * 0.1;
+					maxLon[i] = minLon[i] + random.nextDouble() * 0.1;
+				}
+				BoundsTree tree = new BoundsTree(minLat, minLon, maxLat, maxLon, capacity);
+				assertEquals(n, tree.size());
+				for (int q = 0; q < 50; q++) {
+					double qMinLat = 46 + random.nextDouble(), qMinLon = 8 + random.nextDouble();
+					double qMaxLat = qMinLat + random.nextDouble() * 0.3, qMaxLon = qMinLon + random.nextDouble() * 0.3;
+					List<Integer> expected = new ArrayList<>();
+					for (int i = 0; i < n; i++) {
+						if (minLat[i] >= qMinLat && minLon[i] >= qMinLon && maxLat[i] <= qMaxLat && maxLon[i] <= qMaxLon) {
+							expected.add(i);
+						}
+					}
+					List<Integer> actual = new ArrayList<>();
+					tree.searchWithin(qMinLat, qMinLon, qMaxLat, qMaxLon, actual::add);
+					Collections.sort(actual);
+					assertEquals(expected, actual);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testOverlapMatchesPairwiseCheck() {
+		Random random = new Random(7);
+		ExportConverter converter = new ExportConverter();
+		double[] offsets = {0, 0.0001, -0.0004999, 0.0004999, 0.0005, -0.0005, 0.0006};
+		List<SportSession> sessions = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			// pairs of sessions far from each other, with edges differing by about diff
+			BigDecimal lat = BigDecimal.valueOf(47 + i * 0.01);
+			BigDecimal lon = BigDecimal.valueOf(8 + random.nextInt(100) * 0.01);
+			sessions.add(createSession(i + "a", null, lat, lon, lat.add(BigDecimal.valueOf(0.005)), lon.add(BigDecimal.valueOf(0.005))));
+			BigDecimal[] edges = new BigDecimal[4];
+			for (int e = 0; e < 4; e++) {
+				edges[e] = BigDecimal.valueOf(offsets[random.nextInt(random.nextBoolean() ? 4 : offsets.length)]);
+			}
+			sessions.add(createSession(i + "b", null, lat.add(edges[0]), lon.add(edges[1]), lat.add(BigDecimal.valueOf(0.005)).add(edges[2]), lon.add(BigDecimal.valueOf(0.005)).add(edges[3])));
+		}
+		sessions.add(createSession("no-bounds", null, null, null, null, null));
+
+		converter.doOverlap(sessions);
+		int overlapping = 0;
+		for (SportSession session : sessions) {
+			Set<SportSession> expected = Collections.newSetFromMap(new IdentityHashMap<>());
+			if (!"no-bounds".equals(session.getId())) {
+				GeoBounds bounds = session.getGpxSession().getBounds();
+				for (SportSession session2 : sessions) {
+					if (session2 != session && !"no-bounds".equals(session2.getId()) && converter.isOverlap(bounds, session2.getGpxSession().getBounds())) {
+						expected.add(session2);
+					}
+				}
+			}
+			Set<SportSession> actual = Collections.newSetFromMap(new IdentityHashMap<>());
+			if (session.getOverlapSessions() != null) {
+				actual.addAll(session.getOverlapSessions());
+				// normalized overlap sessions include the session itself
+				actual.remove(session);
+				overlapping++;
+			}
+			assertEquals(session.getId(), expected, actual);
+		}
+		assertTrue(overlapping > 100 && overlapping < 1000);
+	}
+
+}
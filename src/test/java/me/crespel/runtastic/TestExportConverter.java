@@ -80,15 +80,15 @@ public class TestExportConverter {
         List<SportSession> sessions = new ArrayList<>();
         sessions.add(session);
 
-        assertEquals("Outer bound 'Maxlat' is wrong", new BigDecimal(52.0), session.getOuterBound().getMaxlat());
-        assertEquals("Outer bound 'Minlat' is wrong", new BigDecimal(18.0), session.getOuterBound().getMinlat());
-        assertEquals("Outer bound 'Maxlon' is wrong", new BigDecimal(42.0), session.getOuterBound().getMaxlon());
-        assertEquals("Outer bound 'Minlon' is wrong", new BigDecimal(28.0), session.getOuterBound().getMinlon());
-
-        assertEquals("Inner bound 'Maxlat' is wrong", new BigDecimal(48.0), session.getInnerBound().getMaxlat());
-        assertEquals("Inner bound 'Minlat' is wrong", new BigDecimal(22.0), session.getInnerBound().getMinlat());
-        assertEquals("Inner bound 'Maxlon' is wrong", new BigDecimal(38.0), session.getInnerBound().getMaxlon());
-        assertEquals("Inner bound 'Minlon' is wrong", new BigDecimal(32.0), session.getInnerBound().getMinlon());
+        assertEquals("Outer bound 'Maxlat' is wrong", 52.0, session.getOuterBound().getMaxLat(), 0.0);
+        assertEquals("Outer bound 'Minlat' is wrong", 18.0, session.getOuterBound().getMinLat(), 0.0);
+        assertEquals("Outer bound 'Maxlon' is wrong", 42.0, session.getOuterBound().getMaxLon(), 0.0);
+        assertEquals("Outer bound 'Minlon' is wrong", 28.0, session.getOuterBound().getMinLon(), 0.0);
+
+        assertEquals("Inner bound 'Maxlat' is wrong", 48.0, session.getInnerBound().getMaxLat(), 0.0);
+        assertEquals("Inner bound 'Minlat' is wrong", 22.0, session.getInnerBound().getMinLat(), 0.0);
+        assertEquals("Inner bound 'Maxlon' is wrong", 38.0, session.getInnerBound().getMaxLon(), 0.0);
+        assertEquals("Inner bound 'Minlon' is wrong", 32.0, session.getInnerBound().getMinLon(), 0.0);
     }
 
 
@@ -0,0 +1,78 @@
+package me.crespel.runtastic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import me.crespel.runtastic.parser.ExportIndex;
+
+/**
+ * ExportIndex tests.
+ */
+public class TestExportIndex {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final ExportIndex index = new ExportIndex();
+
+	@Test
+	public void testGetFileWithDatePrefix() throws IOException {
+		File dir = folder.newFolder("GPS-data");
+		File file = new File(dir, "2012-05-25_14-56-24-UTC_2337382.json");
+		file.createNewFile();
+
+		assertEquals(file, index.getFile(new File(dir, "2337382.json")));
+		assertEquals(file, index.getFile(file));
+	}
+
+	@Test
+	public void testGetFileExactNameWins() throws IOException {
+		File dir = folder.newFolder("User");
+		File prefixed = new File(dir, "2011-08-06_04-11-04-UTC_user.json");
+		prefixed.createNewFile();
+		File exact = new File(dir, "user.json");
+		exact.createNewFile();
+
+		assertEquals(exact, index.getFile(new File(dir, "user.json")));
+	}
+
+	@Test
+	public void testGetFileNotFound() throws IOException {
+		File dir = folder.newFolder("Heart-rate-data");
+		File missing = new File(dir, "2337382.json");
+
+		assertEquals(missing, index.getFile(missing));
+		assertFalse(index.getFile(missing).exists());
+		File missingDir = new File(new File(dir, "missing"), "2337382.json");
+		assertEquals(missingDir, index.getFile(missingDir));
+	}
+
+	@Test
+	public void testContains() throws IOException {
+		File dir = folder.newFolder("Images-meta-data");
+		new File(dir, "2012-05-25_14-56-24-UTC_101.json").createNewFile();
+
+		assertTrue(index.contains(new File(dir, "101.json")));
+		assertFalse(index.contains(new File(dir, "102.json")));
+		assertFalse(index.contains(new File(new File(dir, "missing"), "101.json")));
+	}
+
+	@Test
+	public void testListFiles() throws IOException {
+		File dir = folder.newFolder("Sport-session-albums");
+		new File(dir, "a.json").createNewFile();
+		new File(dir, "2011-05-08_07-40-05-UTC_b.json").createNewFile();
+		new File(dir, "c.txt").createNewFile();
+
+		assertEquals(2, index.listFiles(dir, ".json").length);
+	}
+
+}
@@ -0,0 +1,89 @@
+package me.crespel.runtastic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import me.crespel.runtastic.util.FileCopier;
+
+/**
+ * FileCopier tests.
+ */
+public class TestFileCopier {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testCopy() throws Exception {
+		byte[] content = new byte[3 * 1024 * 1024 + 17];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+		Path source = Files.write(folder.getRoot().toPath().resolve("source.jpg"), content);
+		Path target = Files.write(folder.getRoot().toPath().resolve("target.jpg"), new byte[content.length * 2]);
+
+		new FileCopier().copy(source, target);
+		assertArrayEquals(content, Files.readAllBytes(target));
+		assertFalse(Files.isSameFile(source, target));
+	}
+
+	@Test(timeout = 10000)
+	public void testCopyTruncatedSource() throws Exception {
+		byte[] content = new byte[3 * 1024 * 1024];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+		Path source = Files.write(folder.getRoot().toPath().resolve("source.jpg"), content);
+		Path target = folder.getRoot().toPath().resolve("target.jpg");
+		int truncated = content.length / 2;
+
+		// source truncated after its size was read, while being copied
+		new FileCopier() {
+			@Override
+			protected long transferTo(FileChannel in, long position, long count, FileChannel out) throws IOException {
+				if (position == 0) {
+					try (FileChannel channel = FileChannel.open(source, StandardOpenOption.WRITE)) {
+						channel.truncate(truncated);
+					}
+					return super.transferTo(in, position, Math.min(count, 1024 * 1024), out);
+				}
+				return super.transferTo(in, position, count, out);
+			}
+		}.copy(source, target);
+		assertArrayEquals(Arrays.copyOf(content, truncated), Files.readAllBytes(target));
+	}
+
+	@Test
+	public void testLink() throws Exception {
+		Path source = Files.write(folder.getRoot().toPath().resolve("source.json"), "{}".getBytes(StandardCharsets.UTF_8));
+		Path target = Files.write(folder.getRoot().toPath().resolve("target.json"), "old".getBytes(StandardCharsets.UTF_8));
+
+		new FileCopier(true).copy(source, target);
+		assertTrue(Files.isSameFile(source, target));
+		assertEquals("{}", new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testCopySameFile() throws Exception {
+		Path source = Files.write(folder.getRoot().toPath().resolve("source.json"), "{}".getBytes(StandardCharsets.UTF_8));
+
+		new FileCopier().copy(source, source);
+		new FileCopier(true).copy(source, source);
+		assertEquals("{}", new String(Files.readAllBytes(source), StandardCharsets.UTF_8));
+	}
+
+}
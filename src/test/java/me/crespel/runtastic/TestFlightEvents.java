@@ -0,0 +1,89 @@
+package me.crespel.runtastic;
+
+import static me.crespel.runtastic.SportSessionFixtures.SESSION_ID;
+import static me.crespel.runtastic.SportSessionFixtures.createExport;
+import static me.crespel.runtastic.SportSessionFixtures.getResource;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import me.crespel.runtastic.jfr.Events;
+import me.crespel.runtastic.mapper.GpxSportSessionMapper;
+import me.crespel.runtastic.model.SportSession;
+import me.crespel.runtastic.parser.SportSessionParser;
+
+/**
+ * JDK Flight Recorder event tests.
+ */
+public class TestFlightEvents {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testSessionId() {
+		assertEquals(SESSION_ID, Events.sessionId(SESSION_ID + ".json"));
+		assertEquals(SESSION_ID, Events.sessionId("2018-09-01_09-28-34-UTC_" + SESSION_ID + ".gpx"));
+		assertEquals(SESSION_ID, Events.sessionId("2018-09-01_09-28-34-UTC_" + SESSION_ID));
+	}
+
+	@Test
+	public void testParseAndMapEvents() throws Exception {
+		File file = createExport(folder);
+		File heartRateData = new File(file.getParentFile(), SportSessionParser.HEARTRATE_DATA_DIR);
+		heartRateData.mkdirs();
+		Files.copy(getResource("HeartRateData.json").toPath(), new File(heartRateData, file.getName()).toPath());
+		List<RecordedEvent> events;
+		try (Recording recording = new Recording()) {
+			recording.enable("runtastic.SessionParse");
+			recording.enable("runtastic.FileRead");
+			recording.enable("runtastic.Marshal");
+			recording.start();
+			SportSession session = new SportSessionParser().parseSportSession(file, true);
+			new GpxSportSessionMapper().mapSportSession(session, "gpx", NullOutputStream.NULL_OUTPUT_STREAM);
+			recording.stop();
+			Path dump = folder.newFile("run.jfr").toPath();
+			recording.dump(dump);
+			events = RecordingFile.readAllEvents(dump);
+		}
+
+		List<String> types = new ArrayList<>();
+		List<String> fileTypes = new ArrayList<>();
+		for (RecordedEvent event : events) {
+			String type = event.getEventType().getName();
+			types.add(type);
+			if ("runtastic.SessionParse".equals(type)) {
+				assertEquals(SESSION_ID, event.getString("sessionId"));
+				assertEquals(file.length(), event.getLong("bytes"));
+			} else if ("runtastic.FileRead".equals(type) && ("gps".equals(event.getString("fileType")) || "heartRate".equals(event.getString("fileType")))) {
+				assertEquals(SESSION_ID, event.getString("sessionId"));
+				assertTrue(event.getInt("points") > 0);
+				assertTrue(event.getLong("bytes") > 0);
+				fileTypes.add(event.getString("fileType"));
+			} else if ("runtastic.Marshal".equals(type)) {
+				assertEquals("gpx", event.getString("format"));
+				assertTrue(event.getBoolean("streaming"));
+				assertTrue(event.getLong("bytes") > 0);
+			}
+		}
+		assertTrue(types.toString(), types.contains("runtastic.SessionParse"));
+		assertTrue(types.toString(), types.contains("runtastic.FileRead"));
+		assertTrue(types.toString(), types.contains("runtastic.Marshal"));
+		assertTrue(fileTypes.toString(), fileTypes.contains("heartRate"));
+	}
+
+}
@@ -0,0 +1,45 @@
+package me.crespel.runtastic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+
+import com.topografix.gpx._1._1.BoundsType;
+
+import org.junit.Test;
+
+import me.crespel.runtastic.model.GeoBounds;
+
+/**
+ * GeoBounds tests.
+ */
+public class TestGeoBounds {
+
+	@Test
+	public void testUnionAndIntersection() {
+		GeoBounds a = new GeoBounds(47.0, 8.0, 47.2, 8.2);
+		GeoBounds b = new GeoBounds(47.1, 7.9, 47.3, 8.1);
+
+		assertEquals(new GeoBounds(47.0, 7.9, 47.3, 8.2), a.union(b));
+		assertEquals(new GeoBounds(47.1, 8.0, 47.2, 8.1), a.intersection(b));
+		assertSame(a, a.union(GeoBounds.EMPTY));
+		assertSame(a, GeoBounds.EMPTY.union(a));
+		assertSame(a, a.intersection(null));
+		assertTrue(GeoBounds.EMPTY.union(GeoBounds.EMPTY).isEmpty());
+	}
+
+	@Test
+	public void testBoundsType() {
+		BoundsType bounds = new GeoBounds(47.0, 8.0, 47.25, 8.5).toBoundsType();
+		assertEquals(0, new BigDecimal("47.25").compareTo(bounds.getMaxlat()));
+		assertEquals(new GeoBounds(47.0, 8.0, 47.25, 8.5), GeoBounds.of(bounds));
+
+		assertNull(GeoBounds.EMPTY.toBoundsType().getMinlat());
+		assertNull(GeoBounds.of(GeoBounds.EMPTY.toBoundsType()));
+		assertNull(GeoBounds.of((BoundsType) null));
+	}
+
+}
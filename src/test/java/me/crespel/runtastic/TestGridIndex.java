@@ -0,0 +1,96 @@
+package me.crespel.runtastic;
+
+import static me.crespel.runtastic.SportSessionFixtures.createSession;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import me.crespel.runtastic.converter.ExportConverter;
+import me.crespel.runtastic.model.SportSession;
+import me.crespel.runtastic.util.DisjointSets;
+import me.crespel.runtastic.util.GridIndex;
+
+/**
+ * GridIndex tests, compared to a linear scan.
+ */
+public class TestGridIndex {
+
+	@Test
+	public void testSearchNear() {
+		Random random = new Random(42);
+		double cellSize = 0.0005;
+		for (int n : new int[] {0, 1, 10, 2000}) {
+			double[] values = new double[n];
+			for (int i = 0; i < n; i++) {
+				values[i] = -0.1 + random.nextDouble() * 0.2;
+			}
+			GridIndex index = new GridIndex(values, cellSize);
+			for (int q = 0; q < 200; q++) {
+				double value = -0.1 + random.nextDouble() * 0.2;
+				List<Integer> found = new ArrayList<>();
+				index.searchNear(value, found::add);
+				Collections.sort(found);
+				for (int i = 0; i < n; i++) {
+					if (Math.abs(values[i] - value) < cellSize) {
+						assertTrue(Collections.binarySearch(found, i) >= 0);
+					}
+				}
+				for (int i : found) {
+					assertTrue(Math.abs(values[i] - value) < 2 * cellSize);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testCompoundMatchesPairwiseCheck() {
+		Random random = new Random(7);
+		ExportConverter converter = new ExportConverter();
+		double[] offsets = {0, 0.0001, -0.0004999, 0.0004999, 0.0005, -0.0005, 0.002, -0.003};
+		List<SportSession> sessions = new ArrayList<>();
+		for (int i = 0; i < 250; i++) {
+			// tiles of 0.01 degree with edges moved by about diff, some tiles twice (overlapping)
+			int row = random.nextInt(20);
+			int column = random.nextInt(20);
+			BigDecimal minLat = BigDecimal.valueOf(47 + row * 0.01 + offsets[random.nextInt(offsets.length)]);
+			BigDecimal minLon = BigDecimal.valueOf(8 + column * 0.01 + offsets[random.nextInt(offsets.length)]);
+			BigDecimal maxLat = BigDecimal.valueOf(47 + (row + 1) * 0.01 + offsets[random.nextInt(offsets.length)]);
+			BigDecimal maxLon = BigDecimal.valueOf(8 + (column + 1) * 0.01 + offsets[random.nextInt(offsets.length)]);
+			sessions.add(createSession(String.valueOf(i), random.nextInt(10) == 0 ? 0 : 1000, minLat, minLon, maxLat, maxLon));
+		}
+
+		converter.doCompound(sessions);
+		DisjointSets sets = new DisjointSets(sessions.size());
+		for (int i = 0; i < sessions.size(); i++) {
+			for (int j = i + 1; j < sessions.size(); j++) {
+				SportSession session = sessions.get(i);
+				SportSession session2 = sessions.get(j);
+				if (session.getDistance() > 0 && session2.getDistance() > 0
+						&& (session.getOverlapCluster() == null || session.getOverlapCluster() != session2.getOverlapCluster())
+						&& converter.isCompound(session, session2)) {
+					sets.union(i, j);
+				}
+			}
+		}
+		int compound = 0;
+		for (int i = 0; i < sessions.size(); i++) {
+			for (int j = 0; j < sessions.size(); j++) {
+				boolean expected = i != j && sets.find(i) == sets.find(j);
+				boolean actual = i != j && sessions.get(i).getCompoundCluster() != null && sessions.get(i).getCompoundCluster() == sessions.get(j).getCompoundCluster();
+				assertEquals(i + "/" + j, expected, actual);
+			}
+			if (sessions.get(i).getCompoundCluster() != null) {
+				compound++;
+			}
+		}
+		assertTrue(compound > 0);
+	}
+
+}
@@ -0,0 +1,128 @@
+package me.crespel.runtastic;
+
+import static me.crespel.runtastic.SportSessionFixtures.createExport;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import me.crespel.runtastic.model.ElevationSession;
+import me.crespel.runtastic.model.GpsSession;
+import me.crespel.runtastic.model.GpxSession;
+import me.crespel.runtastic.model.HeartRateSession;
+import me.crespel.runtastic.model.ImagesMetaData;
+import me.crespel.runtastic.model.SportSession;
+import me.crespel.runtastic.model.SportSessionLoader;
+import me.crespel.runtastic.parser.SportSessionParser;
+
+/**
+ * Lazy loading tests of sport session data.
+ */
+public class TestLazySportSession {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final SportSessionParser parser = new SportSessionParser();
+
+	@Test
+	public void testLazyLoad() throws Exception {
+		File file = createExport(folder);
+		parser.setLazy(true);
+		SportSession session = parser.parseSportSession(file, true);
+
+		assertNotNull(session.getLoader());
+		GpsSession gpsSession = session.getGpsSession();
+		assertNotNull(gpsSession);
+		assertEquals(parser.parseGpsSession(new File(new File(file.getParentFile(), SportSessionParser.GPS_DATA_DIR), file.getName())).getGpsData().size(), gpsSession.size());
+		assertSame(gpsSession, session.getGpsSession());
+		assertNull(session.getHeartRateSession());
+		assertNull(session.getImages());
+	}
+
+	@Test
+	public void testUnload() throws Exception {
+		File file = createExport(folder);
+		parser.setLazy(true);
+		SportSession session = parser.parseSportSession(file, true);
+
+		GpsSession gpsSession = session.getGpsSession();
+		session.unload();
+		assertNotSame(gpsSession, session.getGpsSession());
+		assertEquals(gpsSession.size(), session.getGpsSession().size());
+	}
+
+	@Test
+	public void testLoadFailure() throws Exception {
+		File file = createExport(folder);
+		parser.setLazy(true);
+		SportSession session = parser.parseSportSession(file, true);
+		SportSessionLoader loader = session.getLoader();
+		AtomicInteger failures = new AtomicInteger(1);
+		session.setLoader(new SportSessionLoader() {
+			@Override
+			public ElevationSession loadElevationSession(SportSession session) {
+				return loader.loadElevationSession(session);
+			}
+			@Override
+			public GpsSession loadGpsSession(SportSession session) {
+				if (failures.getAndDecrement() > 0) {
+					throw new RuntimeException("GPS data not readable");
+				}
+				return loader.loadGpsSession(session);
+			}
+			@Override
+			public GpxSession loadGpxSession(SportSession session) {
+				return loader.loadGpxSession(session);
+			}
+			@Override
+			public HeartRateSession loadHeartRateSession(SportSession session) {
+				return loader.loadHeartRateSession(session);
+			}
+			@Override
+			public List<ImagesMetaData> loadImages(SportSession session) {
+				return loader.loadImages(session);
+			}
+		});
+
+		try {
+			session.getGpsSession();
+			fail("GPS data loaded");
+		} catch (RuntimeException e) {
+			assertEquals("GPS data not readable", e.getMessage());
+		}
+		// not marked as loaded: read again on next access
+		assertNotNull(session.getGpsSession());
+	}
+
+	@Test
+	public void testLazyNotFull() throws Exception {
+		File file = createExport(folder);
+		parser.setLazy(true);
+		SportSession session = parser.parseSportSession(file, false);
+
+		assertNull(session.getGpsSession());
+	}
+
+	@Test
+	public void testEagerLoad() throws Exception {
+		File file = createExport(folder);
+		SportSession session = parser.parseSportSession(file, true);
+
+		assertNull(session.getLoader());
+		assertNotNull(session.getGpsSession());
+		session.unload();
+		assertNotNull(session.getGpsSession());
+	}
+
+}
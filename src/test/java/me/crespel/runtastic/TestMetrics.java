@@ -0,0 +1,83 @@
+package me.crespel.runtastic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import me.crespel.runtastic.util.Metrics;
+
+/**
+ * Metrics tests.
+ */
+public class TestMetrics {
+
+	@Test
+	public void testPercentiles() {
+		Metrics.Timer timer = new Metrics.Timer();
+		// 1 to 1000 microseconds
+		for (long i = 1; i <= 1000; i++) {
+			timer.record(i * 1000);
+		}
+
+		assertEquals(1000, timer.getCount());
+		assertEquals(1000000, timer.getMaxNanos());
+		assertPercentile(500000, timer.getPercentileNanos(0.5));
+		assertPercentile(990000, timer.getPercentileNanos(0.99));
+		assertEquals(1000000, timer.getPercentileNanos(1));
+	}
+
+	@Test
+	public void testBuckets() {
+		Random random = new Random(42);
+		for (int i = 0; i < 100000; i++) {
+			long nanos = (random.nextLong() >>> 1) >>> random.nextInt(63);
+			int bucket = Metrics.Timer.bucket(nanos);
+			assertTrue(nanos <= Metrics.Timer.upperBound(bucket));
+			assertTrue(bucket == 0 || nanos > Metrics.Timer.upperBound(bucket - 1));
+		}
+		assertEquals(Long.MAX_VALUE, Metrics.Timer.upperBound(Metrics.Timer.bucket(Long.MAX_VALUE)));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testReport() {
+		Metrics metrics = new Metrics();
+		metrics.recordNanos(Metrics.SESSIONS, 2000000);
+		metrics.recordNanos(Metrics.SESSIONS, 4000000);
+		metrics.recordNanos("parse.gps", 1000000);
+		metrics.add(Metrics.POINTS_READ, 500);
+		metrics.add(Metrics.BYTES_WRITTEN, 100);
+		metrics.add(Metrics.BYTES_COPIED, 50);
+
+		Map<String, Object> report = metrics.report("convert");
+		assertEquals("convert", report.get("action"));
+		assertEquals(2L, report.get("sessions"));
+		assertEquals(500L, report.get("points"));
+		assertEquals(150L, report.get("bytesWritten"));
+		Map<String, Object> latency = (Map<String, Object>) report.get("sessionLatency");
+		assertEquals(2L, latency.get("count"));
+		assertEquals(3.0, latency.get("meanMs"));
+		assertEquals(4.0, latency.get("maxMs"));
+		assertTrue(((Map<String, Object>) report.get("timers")).containsKey("parse.gps"));
+	}
+
+	@Test
+	public void testDisabled() {
+		Metrics.NONE.recordNanos(Metrics.SESSIONS, 1000);
+		Metrics.NONE.add(Metrics.BYTES_READ, 1000);
+
+		assertNull(Metrics.NONE.getTimer(Metrics.SESSIONS));
+		assertEquals(0, Metrics.NONE.getCount(Metrics.BYTES_READ));
+	}
+
+	private static void assertPercentile(long expected, long actual) {
+		// upper bound of a bucket, within 12.5%
+		assertTrue("percentile " + actual, actual >= expected && actual <= expected * 1.125);
+	}
+
+}
@@ -0,0 +1,162 @@
+package me.crespel.runtastic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import me.crespel.runtastic.model.PhotoIndex;
+import me.crespel.runtastic.model.SportSession;
+import me.crespel.runtastic.parser.ExportContext;
+import me.crespel.runtastic.parser.SportSessionParser;
+
+/**
+ * PhotoIndex tests.
+ */
+public class TestPhotoIndex {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final SportSessionParser parser = new SportSessionParser();
+
+	@Test
+	public void testBuildPhotoIndex() throws IOException {
+		ExportContext context = createExport();
+		PhotoIndex index = parser.getPhotoIndex(context);
+
+		assertEquals(3, index.size());
+		assertEquals("session-1", index.getSessionId("101"));
+		assertEquals("session-2", index.getSessionId("201"));
+		assertNull(index.getSessionId("999"));
+		assertEquals(2, context.getAlbums().size());
+	}
+
+	@Test
+	public void testSaveAndLoadPhotoIndex() throws IOException {
+		ExportContext context = createExport();
+		File indexFile = new File(folder.getRoot(), "photo-index.properties");
+		context.setPhotoIndexFile(indexFile);
+		parser.getPhotoIndex(context);
+		assertTrue(indexFile.isFile());
+
+		PhotoIndex loaded = PhotoIndex.load(indexFile);
+		assertEquals(3, loaded.size());
+		assertEquals("session-1", loaded.getSessionId("102"));
+
+		// albums still parsed on demand with an index loaded from its file
+		ExportContext context2 = parser.createContext(context.getRoot());
+		context2.setPhotoIndexFile(indexFile);
+		assertEquals("session-2", parser.getPhotoIndex(context2).getSessionId("201"));
+		assertTrue(context2.getAlbums().isEmpty());
+		assertNotNull(parser.getSportSessionAlbum(context2, "session-1"));
+	}
+
+	@Test
+	public void testSavedPhotoIndexOfAnotherExport() throws IOException {
+		File indexFile = new File(folder.getRoot(), "photo-index.properties");
+		ExportContext context = createExport();
+		context.setPhotoIndexFile(indexFile);
+		parser.getPhotoIndex(context);
+
+		// another export, extracted later with older modification times
+		File root = folder.newFolder("export2");
+		File albums = new File(root, SportSessionParser.PHOTOS_SPORT_SESSION_ALBUMS_DIR);
+		albums.mkdirs();
+		File album = new File(albums, "session-3.json");
+		write(album, "{\"id\":\"session-3\",\"photos_ids\":[\"301\"]}");
+		album.setLastModified(indexFile.lastModified() - 60000);
+		albums.setLastModified(indexFile.lastModified() - 60000);
+		ExportContext context2 = parser.createContext(root);
+		context2.setPhotoIndexFile(indexFile);
+		PhotoIndex index = parser.getPhotoIndex(context2);
+
+		assertEquals("session-3", index.getSessionId("301"));
+		assertNull(index.getSessionId("101"));
+	}
+
+	@Test
+	public void testSavedPhotoIndexOfModifiedAlbum() throws IOException {
+		File indexFile = new File(folder.getRoot(), "photo-index.properties");
+		ExportContext context = createExport();
+		context.setPhotoIndexFile(indexFile);
+		parser.getPhotoIndex(context);
+
+		// album edited in place: the modification time of its directory is unchanged
+		File albums = new File(context.getRoot(), SportSessionParser.PHOTOS_SPORT_SESSION_ALBUMS_DIR);
+		long albumsModified = albums.lastModified();
+		File album = new File(albums, "session-2.json");
+		write(album, "{\"id\":\"session-2\",\"photos_ids\":[\"201\",\"202\"]}");
+		album.setLastModified(album.lastModified() + 2000);
+		albums.setLastModified(albumsModified);
+		context = parser.createContext(context.getRoot());
+		context.setPhotoIndexFile(indexFile);
+
+		assertEquals("session-2", parser.getPhotoIndex(context).getSessionId("202"));
+		assertEquals(4, PhotoIndex.load(indexFile).size());
+	}
+
+	@Test
+	public void testUnreadableAlbum() throws IOException {
+		File indexFile = new File(folder.getRoot(), "photo-index.properties");
+		ExportContext context = createExport();
+		write(new File(new File(context.getRoot(), SportSessionParser.PHOTOS_SPORT_SESSION_ALBUMS_DIR), "session-3.json"), "{\"id\":");
+		context.setPhotoIndexFile(indexFile);
+		PhotoIndex index = parser.getPhotoIndex(context);
+
+		// other albums indexed, the incomplete index not saved
+		assertEquals(3, index.size());
+		assertFalse(indexFile.exists());
+	}
+
+	@Test
+	public void testContainsPhotoFilter() throws IOException {
+		PhotoIndex index = parser.getPhotoIndex(createExport());
+		SportSession session = new SportSession();
+		session.setId("session-1");
+		session.setUserEquipmentIds(Collections.singletonList("shoe"));
+
+		assertTrue(session.contains("101", index));
+		assertFalse(session.contains("201", index));
+	}
+
+	@Test
+	public void testCountImages() throws IOException {
+		ExportContext context = createExport();
+		File metaData = new File(context.getRoot(), SportSessionParser.PHOTOS_META_DATA_DIR);
+		metaData.mkdirs();
+		write(new File(metaData, "2019-08-07_10-00-00-UTC_101.json"), "{\"id\":101}");
+
+		assertEquals(1, parser.countImages(context, parser.getSportSessionAlbum(context, "session-1")));
+		assertEquals(0, parser.countImages(context, parser.getSportSessionAlbum(context, "session-2")));
+		assertEquals(0, parser.countImages(context, null));
+	}
+
+	private ExportContext createExport() throws IOException {
+		File root = folder.newFolder("export");
+		File albums = new File(root, SportSessionParser.PHOTOS_SPORT_SESSION_ALBUMS_DIR);
+		albums.mkdirs();
+		write(new File(albums, "session-1.json"), "{\"id\":\"session-1\",\"photos_ids\":[\"101\",\"102\"]}");
+		write(new File(albums, "session-2.json"), "{\"id\":\"session-2\",\"photos_ids\":[\"201\"]}");
+		return parser.createContext(root);
+	}
+
+	private void write(File file, String content) throws IOException {
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(content.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+}
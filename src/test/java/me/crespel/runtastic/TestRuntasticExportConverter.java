@@ -0,0 +1,70 @@
+package me.crespel.runtastic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+
+import org.junit.Test;
+
+/**
+ * RuntasticExportConverter (command line) tests.
+ */
+public class TestRuntasticExportConverter {
+
+	@Test
+	public void testActionOptions() {
+		RuntasticExportConverter main = new RuntasticExportConverter();
+		String[] args = main.parseActionOptions("export", new String[] { "export", "path", "all", "dest", "gpx", "--parse-threads=3", "--write-threads=2", "--link" });
+		assertArrayEquals(new String[] { "export", "path", "all", "dest", "gpx" }, args);
+		assertEquals(3, main.converter.getParseThreads());
+		assertEquals(2, main.converter.getWriteThreads());
+
+		main = new RuntasticExportConverter();
+		args = main.parseActionOptions("overlap", new String[] { "overlap", "path", "all", "dest", "--queue-size=5", "--summary-cache=summaries.properties", "--cluster-files" });
+		assertArrayEquals(new String[] { "overlap", "path", "all", "dest" }, args);
+		assertEquals(5, main.converter.getQueueCapacity());
+		assertEquals(new File("summaries.properties"), main.summaryIndexFile);
+		assertTrue(main.clusterFiles);
+	}
+
+	@Test
+	public void testOptionsOfOtherActions() {
+		assertUnknownOption("convert", "--link");
+		assertUnknownOption("export", "--cluster-files");
+		assertUnknownOption("convert", "--summary-cache=summaries.properties");
+		assertUnknownOption("export", "--summary-cache=summaries.properties");
+		assertUnknownOption("check", "--map-threads=2");
+		assertUnknownOption("compound", "--write-threads=2");
+		assertUnknownOption("info", "--parse-threads=2");
+		assertUnknownOption("convert", "--unknown");
+	}
+
+	@Test
+	public void testInvalidOptionValues() {
+		assertInvalidValue("convert", "--parse-threads=x");
+		assertInvalidValue("convert", "--queue-size=0");
+		assertInvalidValue("check", "--summary-cache");
+	}
+
+	private void assertUnknownOption(String action, String option) {
+		try {
+			new RuntasticExportConverter().parseActionOptions(action, new String[] { action, "path", option });
+			fail("Option " + option + " accepted for action " + action);
+		} catch (IllegalArgumentException e) {
+			assertEquals("Unknown option for action '" + action + "': '" + option + "'", e.getMessage());
+		}
+	}
+
+	private void assertInvalidValue(String action, String option) {
+		try {
+			new RuntasticExportConverter().parseActionOptions(action, new String[] { action, "path", option });
+			fail("Option " + option + " accepted for action " + action);
+		} catch (IllegalArgumentException e) {
+			assertEquals("Invalid value for option '" + option + "'", e.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,102 @@
+package me.crespel.runtastic;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.Test;
+
+/**
+ * Scale tests: convert, export, overlap and compound on generated exports (see {@link ExportGenerator}),
+ * recording wall time and peak heap of each action to target/scale-results.csv.
+ * These tests are opt-in, with the session counts to test, e.g.
+ * {@code ./mvnw test -Dtest=TestScale -Dscale.sessions=1000,10000,50000 [-Dscale.points=100] [-Dscale.overlap=0.3]}.
+ */
+public class TestScale {
+
+	private static final File RESULTS = new File("target/scale-results.csv");
+
+	@Test
+	public void testScale() throws Exception {
+		String sessionCounts = System.getProperty("scale.sessions");
+		assumeTrue("Scale tests are run only with -Dscale.sessions=<n>[,<n>...]", sessionCounts != null && !sessionCounts.isEmpty());
+		for (String sessions : sessionCounts.split(",")) {
+			runScale(Integer.parseInt(sessions.trim()));
+		}
+	}
+
+	private void runScale(int sessions) throws Exception {
+		File dir = new File("target/scale/" + sessions);
+		FileUtils.deleteDirectory(dir);
+		File export = new File(dir, "export");
+
+		ExportGenerator generator = new ExportGenerator();
+		generator.setSessions(sessions);
+		generator.setPointsPerSession(Integer.getInteger("scale.points", 100));
+		generator.setOverlapDensity(Double.parseDouble(System.getProperty("scale.overlap", "0.3")));
+		long start = System.currentTimeMillis();
+		generator.generate(export);
+		System.out.println("Generated " + sessions + " sessions in " + (System.currentTimeMillis() - start) + " ms");
+
+		try {
+			run(sessions, "convert", export.getPath(), "all", mkdir(dir, "convert").getPath(), "gpx");
+			run(sessions, "export", export.getPath(), "all", mkdir(dir, "export-gpx").getPath(), "gpx");
+			// one file per cluster: written volume linear in the number of points
+			run(sessions, "overlap", "all", export.getPath(), mkdir(dir, "overlap").getPath(), "gpx", "--cluster-files");
+			run(sessions, "compound", "all", export.getPath(), mkdir(dir, "compound").getPath(), "gpx", "--cluster-files");
+		} finally {
+			FileUtils.deleteDirectory(dir);
+		}
+	}
+
+	/**
+	 * Run an action, with its output discarded, and record its wall time and peak heap.
+	 */
+	private void run(int sessions, String... args) throws Exception {
+		System.gc();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			pool.resetPeakUsage();
+		}
+		PrintStream out = System.out;
+		long start = System.currentTimeMillis();
+		try {
+			System.setOut(new PrintStream(NullOutputStream.NULL_OUTPUT_STREAM));
+			new RuntasticExportConverter().run(args);
+		} finally {
+			System.setOut(out);
+		}
+		long time = System.currentTimeMillis() - start;
+		long peakHeap = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peakHeap += pool.getPeakUsage().getUsed();
+			}
+		}
+
+		System.out.println(args[0] + " of " + sessions + " sessions: " + time + " ms, peak heap " + peakHeap / (1024 * 1024) + " MB");
+		boolean header = !RESULTS.exists();
+		try (PrintWriter w = new PrintWriter(new FileWriter(RESULTS, true))) {
+			if (header) {
+				w.println("sessions,action,time_ms,peak_heap_bytes");
+			}
+			w.println(sessions + "," + args[0] + "," + time + "," + peakHeap);
+		}
+	}
+
+	private static File mkdir(File parent, String name) throws IOException {
+		File dir = new File(parent, name);
+		assertTrue(dir.mkdirs());
+		return dir;
+	}
+
+}
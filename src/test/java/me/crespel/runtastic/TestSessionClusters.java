@@ -0,0 +1,90 @@
+package me.crespel.runtastic;
+
+import static me.crespel.runtastic.SportSessionFixtures.createSession;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import me.crespel.runtastic.converter.ExportConverter;
+import me.crespel.runtastic.model.SessionCluster;
+import me.crespel.runtastic.model.SportSession;
+import me.crespel.runtastic.util.DisjointSets;
+
+/**
+ * Overlap and compound cluster tests.
+ */
+public class TestSessionClusters {
+
+	private final ExportConverter converter = new ExportConverter();
+
+	@Test
+	public void testDisjointSets() {
+		DisjointSets sets = new DisjointSets(6);
+		assertTrue(sets.union(0, 1));
+		assertTrue(sets.union(2, 1));
+		assertFalse(sets.union(0, 2));
+		assertTrue(sets.union(4, 5));
+		assertEquals(sets.find(0), sets.find(2));
+		assertEquals(3, sets.size(1));
+		assertEquals(1, sets.size(3));
+		assertEquals(2, sets.size(5));
+		assertTrue(sets.find(0) != sets.find(4));
+	}
+
+	@Test
+	public void testOverlapChain() {
+		// each session overlaps with the next one only: all are in one cluster
+		List<SportSession> sessions = new ArrayList<>();
+		for (int i = 0; i < 20000; i++) {
+			BigDecimal shift = BigDecimal.valueOf(i * 0.0004);
+			sessions.add(createSession("chain" + i, 1000, BigDecimal.valueOf(47).add(shift), BigDecimal.valueOf(8).add(shift), BigDecimal.valueOf(47.01).add(shift), BigDecimal.valueOf(8.01).add(shift)));
+		}
+		sessions.add(createSession("single", 1000, BigDecimal.valueOf(10), BigDecimal.valueOf(10), BigDecimal.valueOf(10.01), BigDecimal.valueOf(10.01)));
+
+		converter.doOverlap(sessions);
+		SessionCluster cluster = sessions.get(0).getOverlapCluster();
+		assertEquals(20000, cluster.getSessions().size());
+		for (int i = 0; i < 20000; i++) {
+			assertSame(cluster, sessions.get(i).getOverlapCluster());
+			assertSame(sessions.get(i), cluster.getSessions().get(i));
+		}
+		assertNull(sessions.get(20000).getOverlapSessions());
+		assertEquals(47.01 + 19999 * 0.0004, sessions.get(5).getOuterBound().getMaxLat(), 1e-9);
+		assertEquals(47, sessions.get(5).getOuterBound().getMinLat(), 1e-9);
+		assertEquals(47.01, sessions.get(5).getInnerBound().getMaxLat(), 1e-9);
+		assertEquals(47 + 19999 * 0.0004, sessions.get(5).getInnerBound().getMinLat(), 1e-9);
+	}
+
+	@Test
+	public void testCompoundClusters() {
+		// A-B-C adjacent from south to north, D overlapping with C (not compound with it), E far away
+		List<SportSession> sessions = new ArrayList<>();
+		sessions.add(createSession("A", 1000, BigDecimal.valueOf(47.00), BigDecimal.valueOf(8), BigDecimal.valueOf(47.01), BigDecimal.valueOf(8.01)));
+		sessions.add(createSession("B", 1000, BigDecimal.valueOf(47.01), BigDecimal.valueOf(8), BigDecimal.valueOf(47.02), BigDecimal.valueOf(8.01)));
+		sessions.add(createSession("C", 1000, BigDecimal.valueOf(47.02), BigDecimal.valueOf(8), BigDecimal.valueOf(47.03), BigDecimal.valueOf(8.01)));
+		sessions.add(createSession("D", 1000, BigDecimal.valueOf(47.0201), BigDecimal.valueOf(8), BigDecimal.valueOf(47.0301), BigDecimal.valueOf(8.01)));
+		sessions.add(createSession("E", 1000, BigDecimal.valueOf(10), BigDecimal.valueOf(10), BigDecimal.valueOf(10.01), BigDecimal.valueOf(10.01)));
+		sessions.add(createSession("F", 0, BigDecimal.valueOf(47.03), BigDecimal.valueOf(8), BigDecimal.valueOf(47.04), BigDecimal.valueOf(8.01)));
+
+		converter.doCompound(sessions);
+		assertSame(sessions.get(2).getOverlapCluster(), sessions.get(3).getOverlapCluster());
+		SessionCluster cluster = sessions.get(0).getCompoundCluster();
+		// D is compound with B
+		assertEquals(4, cluster.getSessions().size());
+		for (int i = 0; i < 4; i++) {
+			assertSame(cluster, sessions.get(i).getCompoundCluster());
+		}
+		assertNull(sessions.get(4).getCompoundSessions());
+		// no distance
+		assertNull(sessions.get(5).getCompoundSessions());
+	}
+
+}
@@ -0,0 +1,171 @@
+package me.crespel.runtastic;
+
+import static me.crespel.runtastic.SportSessionFixtures.createExport;
+import static me.crespel.runtastic.SportSessionFixtures.getResource;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.List;
+
+import javax.xml.datatype.DatatypeFactory;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.topografix.gpx._1._1.TrkType;
+import com.topografix.gpx._1._1.TrksegType;
+import com.topografix.gpx._1._1.WptType;
+
+import me.crespel.runtastic.converter.ExportConverter;
+import me.crespel.runtastic.model.GpsTrack;
+import me.crespel.runtastic.model.GpxSession;
+import me.crespel.runtastic.model.SessionSummary;
+import me.crespel.runtastic.model.SessionSummaryIndex;
+import me.crespel.runtastic.model.SportSession;
+import me.crespel.runtastic.parser.ExportContext;
+import me.crespel.runtastic.parser.ParseMode;
+import me.crespel.runtastic.parser.SportSessionParser;
+
+/**
+ * SessionSummary tests.
+ */
+public class TestSessionSummary {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final SportSessionParser parser = new SportSessionParser();
+
+	@Test
+	public void testSummaryOfGpsTrack() throws Exception {
+		File file = createExport(folder);
+		ExportContext context = parser.createContext(file.getParentFile().getParentFile());
+		SportSession session = parser.parseSportSession(file, false, context);
+		SessionSummary summary = parser.getSessionSummary(context, session, false);
+
+		GpsTrack track = parser.parseGpsSession(new File(new File(file.getParentFile(), SportSessionParser.GPS_DATA_DIR), file.getName())).asTrack();
+		assertEquals(track.size(), summary.getPointCount());
+		assertEquals(track.getMinLatitude(), summary.getBounds().getMinLat(), 0.0);
+		assertEquals(track.getMaxLongitude(), summary.getBounds().getMaxLon(), 0.0);
+		assertEquals(track.getLatitude(0), summary.getStartLatitude(), 0.0);
+		assertEquals(track.getLongitude(track.size() - 1), summary.getEndLongitude(), 0.0);
+		assertEquals(track.getStartTime(), summary.getStartTime());
+		assertEquals(track.getEndTime(), summary.getEndTime());
+
+		// up to date: taken from the index
+		assertSame(summary, parser.getSessionSummary(context, session, false));
+	}
+
+	@Test
+	public void testSummaryOfGpxTrack() throws Exception {
+		File gpx = new File(getClass().getResource("GpxData.gpx").toURI());
+		parser.setParseMode(ParseMode.STREAMING);
+		GpxSession streamed = parser.parseGpxSession(gpx);
+		parser.setParseMode(ParseMode.DATABIND);
+		GpxSession unmarshalled = parser.parseGpxSession(gpx);
+
+		SessionSummary summary = new SessionSummary();
+		summary.add(streamed.getTrack());
+		SessionSummary summary2 = new SessionSummary();
+		summary2.add(unmarshalled.getGpx().getTrk().get(0));
+		assertTrue(summary.getPointCount() > 0);
+		assertEquals(summary, summary2);
+	}
+
+	@Test
+	public void testSummaryOfGpxTracks() throws Exception {
+		SessionSummary summary = new SessionSummary();
+		summary.add(createTrk(new double[] { 47.5, 8.5, 47.25, 8.75 }, "2020-05-01T10:00:00Z", "2020-05-01T10:05:00Z"));
+		summary.add(createTrk(new double[] { 47.75, 8.25 }, null, null));
+		summary.add(new TrkType());
+
+		assertEquals(3, summary.getPointCount());
+		assertEquals(47.25, summary.getBounds().getMinLat(), 0.0);
+		assertEquals(8.25, summary.getBounds().getMinLon(), 0.0);
+		assertEquals(47.75, summary.getBounds().getMaxLat(), 0.0);
+		assertEquals(8.75, summary.getBounds().getMaxLon(), 0.0);
+		assertEquals(47.5, summary.getStartLatitude(), 0.0);
+		assertEquals(8.5, summary.getStartLongitude(), 0.0);
+		assertEquals(47.75, summary.getEndLatitude(), 0.0);
+		assertEquals(8.25, summary.getEndLongitude(), 0.0);
+		assertEquals(1588327200000L, summary.getStartTime());
+		assertEquals(1588327500000L, summary.getEndTime());
+	}
+
+	@Test
+	public void testSaveAndLoadSummaryIndex() throws Exception {
+		File file = createExport(folder);
+		File indexFile = new File(folder.getRoot(), "summaries.properties");
+		ExportContext context = parser.createContext(file.getParentFile().getParentFile());
+		context.setSummaryIndexFile(indexFile);
+		SportSession session = parser.parseSportSession(file, false, context);
+		SessionSummary summary = parser.getSessionSummary(context, session, false);
+		assertTrue(context.getSummaryIndex().isModified());
+		parser.saveSessionSummaryIndex(context);
+		assertTrue(indexFile.isFile());
+		assertFalse(context.getSummaryIndex().isModified());
+
+		SessionSummaryIndex loaded = SessionSummaryIndex.load(indexFile);
+		assertEquals(1, loaded.size());
+		assertEquals(summary, loaded.get(session.getId()));
+		assertNull(loaded.get("unknown"));
+
+		// a new context loads the index, and computes the summary again once the track is modified
+		ExportContext context2 = parser.createContext(file.getParentFile().getParentFile());
+		context2.setSummaryIndexFile(indexFile);
+		SessionSummary summary2 = parser.getSessionSummary(context2, session, false);
+		assertEquals(summary, summary2);
+		assertFalse(context2.getSummaryIndex().isModified());
+		File gpsData = new File(new File(file.getParentFile(), SportSessionParser.GPS_DATA_DIR), file.getName());
+		gpsData.setLastModified(gpsData.lastModified() + 10000);
+		SessionSummary summary3 = parser.getSessionSummary(context2, session, false);
+		assertNotSame(summary2, summary3);
+		assertEquals(gpsData.lastModified(), summary3.getSourceModified());
+		assertTrue(context2.getSummaryIndex().isModified());
+	}
+
+	@Test
+	public void testLoadSportSessionSummaries() throws Exception {
+		File file = createExport(folder);
+		ExportConverter converter = new ExportConverter();
+		ExportContext context = converter.createContext(file.getParentFile());
+		List<SportSession> sessions = converter.loadSportSessionSummaries(context);
+		assertEquals(1, sessions.size());
+		SportSession session = sessions.get(0);
+		SessionSummary summary = session.getSummary();
+		assertTrue(summary.hasBounds());
+		assertEquals(summary.getBounds(), converter.getBounds(session));
+		assertFalse(converter.hasHeartRateData(session));
+
+		// data loaded for conversion: GPX session mapped from the GPS track
+		converter.loadSportSessionData(session, "gpx");
+		assertEquals(summary.getPointCount(), session.getGpxSession().getTrack().size());
+		assertEquals(summary.getBounds(), session.getGpxSession().getBounds());
+	}
+
+	private static TrkType createTrk(double[] coordinates, String startTime, String endTime) throws Exception {
+		DatatypeFactory factory = DatatypeFactory.newInstance();
+		TrksegType trkseg = new TrksegType();
+		for (int i = 0; i < coordinates.length; i += 2) {
+			WptType wpt = new WptType();
+			wpt.setLat(BigDecimal.valueOf(coordinates[i]));
+			wpt.setLon(BigDecimal.valueOf(coordinates[i + 1]));
+			String time = i == 0 ? startTime : i == coordinates.length - 2 ? endTime : null;
+			if (time != null) {
+				wpt.setTime(factory.newXMLGregorianCalendar(time));
+			}
+			trkseg.getTrkpt().add(wpt);
+		}
+		TrkType trk = new TrkType();
+		trk.getTrkseg().add(trkseg);
+		return trk;
+	}
+
+}
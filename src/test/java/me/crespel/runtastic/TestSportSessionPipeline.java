@@ -0,0 +1,168 @@
+package me.crespel.runtastic;
+
+import static me.crespel.runtastic.SportSessionFixtures.SESSION_ID;
+import static me.crespel.runtastic.SportSessionFixtures.createExport;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import me.crespel.runtastic.converter.ExportConverter;
+import me.crespel.runtastic.converter.SportSessionPipeline;
+import me.crespel.runtastic.model.SportSession;
+import me.crespel.runtastic.parser.ExportContext;
+import me.crespel.runtastic.util.Metrics;
+
+/**
+ * SportSessionPipeline tests.
+ */
+public class TestSportSessionPipeline {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testResultsInOrder() throws Exception {
+		SportSessionPipeline<String> pipeline = createPipeline(4, 3, 2, 2);
+		AtomicInteger written = new AtomicInteger();
+		SportSessionPipeline.Result result = pipeline.run(createFiles(200), file -> {
+			int i = Integer.parseInt(file.getName());
+			return i % 2 == 0 ? createSession(file) : null;
+		}, session -> "mapped-" + session.getId(), (session, mapped) -> {
+			assertEquals("mapped-" + session.getId(), mapped);
+			written.incrementAndGet();
+		});
+
+		assertEquals(100, written.get());
+		assertTrue(result.getErrors().isEmpty());
+		List<SportSession> sessions = result.getSessions();
+		assertEquals(100, sessions.size());
+		for (int i = 0; i < sessions.size(); i++) {
+			assertEquals(String.valueOf(i * 2), sessions.get(i).getId());
+		}
+	}
+
+	@Test
+	public void testConvertAndExportSportSessions() throws Exception {
+		File file = createExport(folder);
+		ExportConverter converter = new ExportConverter();
+		ExportContext context = converter.createContext(file.getParentFile());
+
+		// output streamed to its file in the write stage
+		File convertDest = folder.newFolder("convert");
+		assertEquals(1, converter.convertSportSessions(context, "all", convertDest, "gpx"));
+		File[] converted = convertDest.listFiles();
+		assertEquals(1, converted.length);
+		assertTrue(converted[0].getName().endsWith(".gpx"));
+		assertTrue(converted[0].length() > 0);
+
+		File exportDest = folder.newFolder("export-all");
+		assertEquals(1, converter.exportSportSessions(context, "all", exportDest, "gpx"));
+		File sessionFolder = new File(exportDest, SESSION_ID);
+		assertArrayEquals(Files.readAllBytes(converted[0].toPath()), Files.readAllBytes(new File(sessionFolder, converted[0].getName()).toPath()));
+		assertTrue(new File(sessionFolder, "info.txt").isFile());
+	}
+
+	@Test
+	public void testErrorsPerSession() throws Exception {
+		SportSessionPipeline<String> pipeline = createPipeline(2, 2, 2, 4);
+		File[] files = createFiles(50);
+		SportSessionPipeline.Result result = pipeline.run(files, file -> {
+			if ("3".equals(file.getName())) {
+				throw new IOException("parse");
+			}
+			return createSession(file);
+		}, session -> {
+			if ("5".equals(session.getId())) {
+				throw new IllegalStateException("map");
+			}
+			return session.getId();
+		}, (session, mapped) -> {
+			if ("7".equals(mapped)) {
+				throw new IOException("write");
+			}
+		});
+
+		assertEquals(47, result.getSessions().size());
+		assertEquals(3, result.getErrors().size());
+		assertEquals("parse", result.getErrors().get(files[3]).getMessage());
+		assertEquals("map", result.getErrors().get(files[5]).getMessage());
+		assertEquals("write", result.getErrors().get(files[7]).getMessage());
+	}
+
+	@Test
+	public void testBoundedQueues() throws Exception {
+		int capacity = 2;
+		SportSessionPipeline<String> pipeline = createPipeline(2, 1, 1, capacity);
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+		pipeline.run(createFiles(40), file -> {
+			maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			return createSession(file);
+		}, session -> session.getId(), (session, mapped) -> {
+			Thread.sleep(5);
+			inFlight.decrementAndGet();
+		});
+
+		// parsed but not yet written: held by the workers of each stage and in the queues
+		assertTrue("max in flight " + maxInFlight.get(), maxInFlight.get() <= 2 + 1 + 1 + 2 * capacity);
+	}
+
+	@Test
+	public void testMetrics() throws Exception {
+		SportSessionPipeline<String> pipeline = createPipeline(2, 2, 2, 2);
+		Metrics metrics = new Metrics();
+		pipeline.setMetrics(metrics);
+		pipeline.run(createFiles(30), file -> "3".equals(file.getName()) ? null : createSession(file), session -> session.getId(), (session, mapped) -> {
+			Thread.sleep(1);
+		});
+
+		// skipped sessions are parsed only, the other ones go through all stages
+		assertEquals(30, metrics.getTimer("pipeline.parse").getCount());
+		assertEquals(29, metrics.getTimer("pipeline.map").getCount());
+		assertEquals(29, metrics.getTimer("pipeline.write").getCount());
+		assertEquals(29, metrics.getTimer(Metrics.SESSIONS).getCount());
+		assertTrue(metrics.getTimer(Metrics.SESSIONS).getPercentileNanos(0.5) >= 1000000);
+	}
+
+	@Test(expected = AssertionError.class, timeout = 10000)
+	public void testFailureStopsAllStages() throws Exception {
+		SportSessionPipeline<String> pipeline = createPipeline(2, 1, 1, 1);
+		pipeline.run(createFiles(100), file -> createSession(file), session -> {
+			throw new AssertionError("fatal");
+		}, null);
+	}
+
+	private SportSessionPipeline<String> createPipeline(int parseThreads, int mapThreads, int writeThreads, int queueCapacity) {
+		SportSessionPipeline<String> pipeline = new SportSessionPipeline<>();
+		pipeline.setParseThreads(parseThreads);
+		pipeline.setMapThreads(mapThreads);
+		pipeline.setWriteThreads(writeThreads);
+		pipeline.setQueueCapacity(queueCapacity);
+		return pipeline;
+	}
+
+	private File[] createFiles(int count) {
+		File[] files = new File[count];
+		for (int i = 0; i < count; i++) {
+			files[i] = new File(String.valueOf(i));
+		}
+		return files;
+	}
+
+	private SportSession createSession(File file) {
+		SportSession session = new SportSession();
+		session.setId(file.getName());
+		return session;
+	}
+
+}
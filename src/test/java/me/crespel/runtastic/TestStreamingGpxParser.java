@@ -0,0 +1,109 @@
+package me.crespel.runtastic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.topografix.gpx._1._1.GpxType;
+import com.topografix.gpx._1._1.TrksegType;
+import com.topografix.gpx._1._1.WptType;
+
+import me.crespel.runtastic.converter.ExportConverter;
+import me.crespel.runtastic.model.GpsTrack;
+import me.crespel.runtastic.model.GpxSession;
+import me.crespel.runtastic.parser.ParseMode;
+import me.crespel.runtastic.parser.SportSessionParser;
+import me.crespel.runtastic.parser.StreamingGpxParser;
+
+/**
+ * StreamingGpxParser tests, compared to JAXB unmarshalling.
+ */
+public class TestStreamingGpxParser {
+
+	private final SportSessionParser parser = new SportSessionParser();
+	private final StreamingGpxParser gpxParser = new StreamingGpxParser();
+
+	@Test
+	public void testCountGpxPoints() throws Exception {
+		File file = getResource("GpxData.gpx");
+		GpxSession expected = parser.parseGpxSession(file);
+		GpxSession gpxSession = gpxParser.parseGpxSession(file);
+		ExportConverter converter = new ExportConverter();
+
+		// counted on the streamed track as on the unmarshalled document: first segment only
+		assertEquals(expected.getGpx().getTrk().get(0).getTrkseg().get(0).getTrkpt().size(), converter.countGpxPoints(expected));
+		assertEquals(converter.countGpxPoints(expected), converter.countGpxPoints(gpxSession));
+	}
+
+	@Test
+	public void testParseGpxSession() throws Exception {
+		File file = getResource("GpxData.gpx");
+		GpxType expected = parser.parseGpxSession(file).getGpx();
+		GpxSession gpxSession = gpxParser.parseGpxSession(file);
+		GpsTrack track = gpxSession.getTrack();
+
+		List<WptType> points = new ArrayList<>();
+		for (TrksegType trkseg : expected.getTrk().get(0).getTrkseg()) {
+			points.addAll(trkseg.getTrkpt());
+		}
+		assertEquals(points.size(), track.size());
+		assertEquals(2, gpxSession.getSegments().length);
+		assertEquals(expected.getTrk().get(0).getTrkseg().get(0).getTrkpt().size(), gpxSession.getSegments()[1]);
+
+		double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+		for (int i = 0; i < track.size(); i++) {
+			WptType wpt = points.get(i);
+			assertEquals(wpt.getLat().doubleValue(), track.getLatitude(i), 0.0);
+			assertEquals(wpt.getLon().doubleValue(), track.getLongitude(i), 0.0);
+			assertEquals(wpt.getEle().doubleValue(), track.getAltitude(i), 0.0);
+			assertEquals(wpt.getTime().toGregorianCalendar().getTimeInMillis(), track.getTimestamp(i));
+			minLat = Math.min(minLat, track.getLatitude(i));
+			maxLat = Math.max(maxLat, track.getLatitude(i));
+		}
+		assertEquals(minLat, track.getMinLatitude(), 0.0);
+		assertEquals(maxLat, track.getMaxLatitude(), 0.0);
+		assertEquals(track.getTimestamp(0), track.getStartTime());
+		assertEquals(track.getTimestamp(track.size() - 1), track.getEndTime());
+	}
+
+	@Test
+	public void testFallbackOnExtensions() throws Exception {
+		File file = getResource("GpxDataExtensions.gpx");
+		assertNull(gpxParser.parseGpxSession(file));
+
+		parser.setParseMode(ParseMode.STREAMING);
+		GpxSession gpxSession = parser.parseGpxSession(file);
+		assertNull(gpxSession.getTrack());
+		assertNotNull(gpxSession.getGpx().getTrk().get(0).getTrkseg().get(0).getTrkpt().get(1).getExtensions());
+	}
+
+	@Test
+	public void testConvertToGpx() throws Exception {
+		File file = getResource("GpxData.gpx");
+		GpxType expected = parser.parseGpxSession(file).getGpx();
+		GpxType gpx = gpxParser.parseGpxSession(file).getGpx();
+
+		assertEquals(expected.getTrk().get(0).getTrkseg().size(), gpx.getTrk().get(0).getTrkseg().size());
+		for (int s = 0; s < gpx.getTrk().get(0).getTrkseg().size(); s++) {
+			List<WptType> expectedPoints = expected.getTrk().get(0).getTrkseg().get(s).getTrkpt();
+			List<WptType> points = gpx.getTrk().get(0).getTrkseg().get(s).getTrkpt();
+			assertEquals(expectedPoints.size(), points.size());
+			for (int i = 0; i < points.size(); i++) {
+				assertEquals(0, expectedPoints.get(i).getLat().compareTo(points.get(i).getLat()));
+				assertEquals(0, expectedPoints.get(i).getEle().compareTo(points.get(i).getEle()));
+				assertEquals(0, expectedPoints.get(i).getTime().compare(points.get(i).getTime()));
+			}
+		}
+	}
+
+	private File getResource(String name) throws Exception {
+		return new File(getClass().getResource(name).toURI());
+	}
+
+}
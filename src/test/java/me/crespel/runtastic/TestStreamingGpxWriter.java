@@ -0,0 +1,159 @@
+package me.crespel.runtastic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Date;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.junit.Test;
+
+import com.topografix.gpx._1._1.GpxType;
+import com.topografix.gpx._1._1.TrkType;
+import com.topografix.gpx._1._1.TrksegType;
+
+import me.crespel.runtastic.mapper.GpxSportSessionMapper;
+import me.crespel.runtastic.model.SessionCluster;
+import me.crespel.runtastic.model.SportSession;
+import me.crespel.runtastic.parser.ParseMode;
+import me.crespel.runtastic.parser.SportSessionParser;
+import me.crespel.runtastic.util.JaxbContextPool;
+
+/**
+ * Streaming GPX writer tests, compared to JAXB marshalling and validated against the GPX schema.
+ */
+public class TestStreamingGpxWriter {
+
+	private final SportSessionParser parser = new SportSessionParser();
+	private final GpxSportSessionMapper mapper = new GpxSportSessionMapper();
+
+	@Test
+	public void testSameAsJaxb() throws Exception {
+		parser.setParseMode(ParseMode.STREAMING);
+		assertArrayEquals(write(createSession("GpxData.gpx"), false, false), write(createSession("GpxData.gpx"), true, false));
+	}
+
+	@Test
+	public void testSameAsJaxbWithoutStreamedTrack() throws Exception {
+		parser.setParseMode(ParseMode.DATABIND);
+		assertArrayEquals(write(createSession("GpxData.gpx"), false, false), write(createSession("GpxData.gpx"), true, false));
+	}
+
+	@Test
+	public void testValidate() throws Exception {
+		parser.setParseMode(ParseMode.STREAMING);
+		validate(write(createSession("GpxData.gpx"), true, false));
+		validate(write(createSession("GpxDataExtensions.gpx"), true, false));
+	}
+
+	@Test
+	public void testCompact() throws Exception {
+		parser.setParseMode(ParseMode.STREAMING);
+		byte[] compact = write(createSession("GpxData.gpx"), true, true);
+		validate(compact);
+		assertFalse(new String(compact, StandardCharsets.UTF_8).contains("\n"));
+
+		GpxType expected = (GpxType) JaxbContextPool.GPX.getUnmarshaller().unmarshal(new StreamSource(new ByteArrayInputStream(write(createSession("GpxData.gpx"), true, false))), GpxType.class).getValue();
+		GpxType gpx = (GpxType) JaxbContextPool.GPX.getUnmarshaller().unmarshal(new StreamSource(new ByteArrayInputStream(compact)), GpxType.class).getValue();
+		assertEquals(expected.getWpt().size(), gpx.getWpt().size());
+		assertEquals(expected.getTrk().size(), gpx.getTrk().size());
+		for (int i = 0; i < gpx.getTrk().size(); i++) {
+			assertEquals(expected.getTrk().get(i).getTrkseg().size(), gpx.getTrk().get(i).getTrkseg().size());
+		}
+	}
+
+	@Test
+	public void testSessionBounds() throws Exception {
+		parser.setParseMode(ParseMode.STREAMING);
+		SportSession expected = createSession("GpxData.gpx");
+		mapper.mapSportSession(expected, "gpx");
+		SportSession session = createSession("GpxData.gpx");
+		write(session, true, false);
+
+		GpxType expectedGpx = expected.getGpxSession().getGpx();
+		GpxType gpx = session.getGpxSession().getGpx();
+		assertEquals(expectedGpx.getMetadata().getBounds().getMinlat(), gpx.getMetadata().getBounds().getMinlat());
+		assertEquals(expectedGpx.getMetadata().getBounds().getMaxlon(), gpx.getMetadata().getBounds().getMaxlon());
+		assertEquals(expectedGpx.getTrk().get(0).getTrkseg().get(0).getTrkpt().size(), gpx.getTrk().get(0).getTrkseg().get(0).getTrkpt().size());
+	}
+
+	@Test
+	public void testSessionCluster() throws Exception {
+		parser.setParseMode(ParseMode.STREAMING);
+		SessionCluster cluster = new SessionCluster(1);
+		cluster.getSessions().add(createSession("GpxData.gpx"));
+		cluster.getSessions().add(createSession("GpxDataExtensions.gpx"));
+		int points = 0;
+		for (SportSession session : cluster.getSessions()) {
+			session.setGpxSession(mapper.mapGpxSession(session));
+			points += session.getGpxSession().getTrack().size();
+		}
+
+		// each track once
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		mapper.writeSessionCluster(cluster, "Overlap cluster 1", out);
+		validate(out.toByteArray());
+		GpxType gpx = (GpxType) JaxbContextPool.GPX.getUnmarshaller().unmarshal(new StreamSource(new ByteArrayInputStream(out.toByteArray())), GpxType.class).getValue();
+		assertEquals(2, gpx.getTrk().size());
+		int written = 0;
+		for (TrkType trk : gpx.getTrk()) {
+			for (TrksegType trkseg : trk.getTrkseg()) {
+				written += trkseg.getTrkpt().size();
+			}
+		}
+		assertEquals(points, written);
+		assertEquals("Overlap cluster 1", gpx.getMetadata().getName());
+
+		// session without tracks, referencing the cluster file
+		SportSession session = cluster.getSessions().get(0);
+		out = new ByteArrayOutputStream();
+		mapper.writeSessionClusterReference(session, session.getGpxSession().getBounds(), "Overlap cluster 1", "runtastic_overlap_cluster_1.gpx", out);
+		validate(out.toByteArray());
+		gpx = (GpxType) JaxbContextPool.GPX.getUnmarshaller().unmarshal(new StreamSource(new ByteArrayInputStream(out.toByteArray())), GpxType.class).getValue();
+		assertTrue(gpx.getTrk().isEmpty());
+		assertEquals("runtastic_overlap_cluster_1.gpx", gpx.getMetadata().getLink().get(0).getHref());
+		assertEquals(1, gpx.getWpt().size());
+	}
+
+	private byte[] write(SportSession session, boolean streaming, boolean compact) {
+		mapper.setStreaming(streaming);
+		mapper.setCompact(compact);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		mapper.mapSportSession(session, "gpx", out);
+		return out.toByteArray();
+	}
+
+	private void validate(byte[] gpx) throws Exception {
+		Schema schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(new File("src/main/xsd/gpx.xsd"));
+		schema.newValidator().validate(new StreamSource(new ByteArrayInputStream(gpx)));
+	}
+
+	private SportSession createSession(String gpxName) throws Exception {
+		SportSession session = new SportSession();
+		session.setId("fdd2f131-ef65-4e6c-b27e-50b8ecf465d4");
+		session.setNotes("Morning run <& friends>");
+		session.setSportTypeId("1");
+		session.setCreatedAt(new Date(1535809749000L));
+		session.setUser(parser.parseUser(getResource("user.json")));
+		session.setImages(Collections.singletonList(parser.parseImagesMetaData(getResource("ImagesMetaData.json"))));
+		session.setGpsSession(parser.parseGpsSession(getResource("GpsData.json")));
+		session.setGpxSession(parser.parseGpxSession(getResource(gpxName)));
+		return session;
+	}
+
+	private File getResource(String name) throws Exception {
+		return new File(getClass().getResource(name).toURI());
+	}
+
+}
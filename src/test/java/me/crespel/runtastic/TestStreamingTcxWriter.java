@@ -0,0 +1,132 @@
+package me.crespel.runtastic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.junit.Test;
+
+import me.crespel.runtastic.mapper.TcxSportSessionMapper;
+import me.crespel.runtastic.model.ElevationSession;
+import me.crespel.runtastic.model.ElevationTrack;
+import me.crespel.runtastic.model.GpsSession;
+import me.crespel.runtastic.model.GpsTrack;
+import me.crespel.runtastic.model.HeartRateSession;
+import me.crespel.runtastic.model.HeartRateTrack;
+import me.crespel.runtastic.model.SportSession;
+import me.crespel.runtastic.parser.SportSessionParser;
+
+/**
+ * Streaming TCX writer tests, compared to JAXB marshalling and validated against the TCX schema.
+ */
+public class TestStreamingTcxWriter {
+
+	private final SportSessionParser parser = new SportSessionParser();
+	private final TcxSportSessionMapper mapper = new TcxSportSessionMapper();
+
+	@Test
+	public void testSameAsJaxb() throws Exception {
+		assertArrayEquals(write(createSession(), false, false), write(createSession(), true, false));
+	}
+
+	@Test
+	public void testSameAsJaxbWithMergedTrackpoints() throws Exception {
+		// unordered data, with several data points at the same time
+		GpsTrack gps = new GpsTrack();
+		gps.add(1535809760000L, 47.1, 8.1, Double.NaN, 2.5, 10, 20);
+		gps.add(1535809750000L, 47.0, 8.0, 450.5, 2.5, 0, 0);
+		gps.add(1535809760000L, 47.2, 8.2, 451.0, 2.5, 10, 21);
+		gps.add(1535809790000L, 47.3, 8.3, 452.0, 2.5, 40, 80);
+		HeartRateTrack hr = new HeartRateTrack();
+		hr.add(1535809750000L, 120, 0, 0);
+		hr.add(1535809760000L, 125, 10, 20);
+		hr.add(1535809770000L, 130, 20, 40);
+		hr.add(1535809770000L, 131, 20, 41);
+		hr.add(1535809790000L, 140, 40, 80);
+		ElevationTrack elevation = new ElevationTrack();
+		elevation.add(1535809760000L, 449, 10, 20);
+		elevation.add(1535809780000L, 450, 30, 60);
+
+		SportSession session = createSession(gps, hr);
+		ElevationSession elevationSession = new ElevationSession();
+		elevationSession.setTrack(elevation);
+		session.setElevationSession(elevationSession);
+		assertArrayEquals(write(session, false, false), write(session, true, false));
+		assertArrayEquals(write(createSession(gps, hr), false, false), write(createSession(gps, hr), true, false));
+		assertArrayEquals(write(createSession(gps, null), false, false), write(createSession(gps, null), true, false));
+		assertArrayEquals(write(createSession(null, hr), false, false), write(createSession(null, hr), true, false));
+		assertArrayEquals(write(createSession(null, null), false, false), write(createSession(null, null), true, false));
+	}
+
+	@Test
+	public void testValidate() throws Exception {
+		validate(write(createSession(), true, false));
+	}
+
+	@Test
+	public void testCompact() throws Exception {
+		byte[] compact = write(createSession(), true, true);
+		validate(compact);
+		assertFalse(new String(compact, StandardCharsets.UTF_8).contains("\n"));
+	}
+
+	private byte[] write(SportSession session, boolean streaming, boolean compact) {
+		mapper.setStreaming(streaming);
+		mapper.setCompact(compact);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		mapper.mapSportSession(session, "tcx", out);
+		return out.toByteArray();
+	}
+
+	private void validate(byte[] tcx) throws Exception {
+		Schema schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(new File("src/main/xsd/TrainingCenterDatabasev2.xsd"));
+		schema.newValidator().validate(new StreamSource(new ByteArrayInputStream(tcx)));
+	}
+
+	private SportSession createSession() throws Exception {
+		SportSession session = createSession(null, null);
+		session.setGpsSession(parser.parseGpsSession(getResource("GpsData.json")));
+		session.setHeartRateSession(parser.parseHeartRateSession(getResource("HeartRateData.json")));
+		return session;
+	}
+
+	private SportSession createSession(GpsTrack gps, HeartRateTrack hr) {
+		SportSession session = new SportSession();
+		session.setId("fdd2f131-ef65-4e6c-b27e-50b8ecf465d4");
+		session.setSportTypeId("1");
+		session.setStartTime(new Date(1535809749000L));
+		session.setDuration(2400000);
+		session.setDistance(6012);
+		session.setCalories(452);
+		session.setPulseAvg(135);
+		session.setPulseMax(171);
+		session.setMaxSpeed(new BigDecimal("14.4"));
+		if (gps != null) {
+			GpsSession gpsSession = new GpsSession();
+			gpsSession.setTrack(gps);
+			session.setGpsSession(gpsSession);
+		}
+		if (hr != null) {
+			HeartRateSession heartRateSession = new HeartRateSession();
+			heartRateSession.setTrack(hr);
+			session.setHeartRateSession(heartRateSession);
+		}
+		return session;
+	}
+
+	private File getResource(String name) throws Exception {
+		return new File(getClass().getResource(name).toURI());
+	}
+
+}
@@ -0,0 +1,72 @@
+package me.crespel.runtastic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.Test;
+
+import me.crespel.runtastic.model.GpsData;
+import me.crespel.runtastic.model.GpsTrack;
+import me.crespel.runtastic.model.HeartRateData;
+import me.crespel.runtastic.model.HeartRateTrack;
+import me.crespel.runtastic.parser.ParseMode;
+import me.crespel.runtastic.parser.SportSessionParser;
+import me.crespel.runtastic.parser.StreamingTrackParser;
+
+/**
+ * StreamingTrackParser tests, compared to the data binding parser.
+ */
+public class TestStreamingTrackParser {
+
+	private final SportSessionParser parser = new SportSessionParser();
+	private final StreamingTrackParser trackParser = new StreamingTrackParser();
+
+	@Test
+	public void testParseGpsTrack() throws Exception {
+		File file = getResource("GpsData.json");
+		List<GpsData> expected = parser.parseGpsSession(file).getGpsData();
+		GpsTrack track = trackParser.parseGpsTrack(file);
+
+		assertEquals(expected.size(), track.size());
+		for (int i = 0; i < track.size(); i++) {
+			GpsData gps = expected.get(i);
+			assertEquals(gps.getTimestamp().getTime(), track.getTimestamp(i));
+			assertEquals(gps.getLatitude().doubleValue(), track.getLatitude(i), 0.0);
+			assertEquals(gps.getLongitude().doubleValue(), track.getLongitude(i), 0.0);
+			assertEquals(gps.getAltitude().doubleValue(), track.getAltitude(i), 0.0);
+			assertEquals(gps.getDistance().intValue(), track.getDistance(i));
+			assertEquals(gps.getDuration().intValue(), track.getDuration(i));
+		}
+	}
+
+	@Test
+	public void testParseHeartRateTrack() throws Exception {
+		File file = getResource("HeartRateData.json");
+		List<HeartRateData> expected = parser.parseHeartRateSession(file).getHeartRateData();
+		HeartRateTrack track = trackParser.parseHeartRateTrack(file);
+
+		assertEquals(expected.size(), track.size());
+		for (int i = 0; i < track.size(); i++) {
+			HeartRateData hr = expected.get(i);
+			assertEquals(hr.getTimestamp().getTime(), track.getTimestamp(i));
+			assertEquals(hr.getHeartRate().intValue(), track.getHeartRate(i));
+			assertEquals(hr.getDistance().intValue(), track.getDistance(i));
+		}
+	}
+
+	@Test
+	public void testStreamingParseMode() throws Exception {
+		SportSessionParser streamingParser = new SportSessionParser();
+		streamingParser.setParseMode(ParseMode.STREAMING);
+		File file = getResource("GpsData.json");
+
+		assertEquals(parser.parseGpsSession(file).getGpsData().size(), streamingParser.parseGpsSession(file).getTrack().size());
+	}
+
+	private File getResource(String name) throws Exception {
+		return new File(getClass().getResource(name).toURI());
+	}
+
+}
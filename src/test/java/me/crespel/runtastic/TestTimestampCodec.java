@@ -0,0 +1,92 @@
+package me.crespel.runtastic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+import javax.xml.bind.DatatypeConverter;
+import javax.xml.datatype.DatatypeFactory;
+
+import org.junit.Test;
+
+import me.crespel.runtastic.util.TimestampCodec;
+
+/**
+ * TimestampCodec tests, compared to the JDK parsers and formatters.
+ */
+public class TestTimestampCodec {
+
+	private static final String[] ZONES = {"UTC", "Europe/Zurich", "America/St_Johns", "Asia/Kathmandu", "Pacific/Chatham"};
+
+	@Test
+	public void testParseExportFormat() {
+		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss Z");
+		TimestampCodec codec = new TimestampCodec(TimeZone.getTimeZone("UTC"));
+		for (String text : new String[] {"2018-09-01 09:29:09 +0000", "2018-09-01 11:29:09 +0200", "2016-02-29 23:59:59 -0330", "1970-01-01 00:00:00 +0000"}) {
+			assertEquals(text, OffsetDateTime.parse(text, formatter).toInstant().toEpochMilli(), codec.parse(text));
+			assertTrue(codec.hasOffset());
+		}
+		codec.parse("2018-09-01 11:29:09 +0200");
+		assertEquals(120, codec.getOffset());
+	}
+
+	@Test
+	public void testParseDateTime() {
+		TimestampCodec codec = new TimestampCodec(TimeZone.getTimeZone("Europe/Zurich"));
+		TimeZone defaultZone = TimeZone.getDefault();
+		TimeZone.setDefault(TimeZone.getTimeZone("Europe/Zurich"));
+		try {
+			for (String text : new String[] {"2018-09-01T09:29:09Z", "2018-09-01T09:29:09.123Z", "2018-09-01T09:29:09.98765+01:00", "2018-09-01T09:29:09-05:30",
+					"2018-09-01T09:29:09", " 2018-03-25T02:30:00 ", "2018-10-28T02:30:00.5"}) {
+				assertEquals(text, DatatypeConverter.parseDateTime(text.trim()).getTimeInMillis(), codec.parse(text));
+			}
+		} finally {
+			TimeZone.setDefault(defaultZone);
+		}
+		codec.parse("2018-09-01T09:29:09");
+		assertFalse(codec.hasOffset());
+		assertEquals(120, codec.getOffset());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseInvalid() {
+		new TimestampCodec().parse("2018-09-01 09:29");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseInvalidOffset() {
+		new TimestampCodec().parse("2018-09-01 09:29:09 CEST");
+	}
+
+	@Test
+	public void testFormat() throws Exception {
+		DatatypeFactory dtf = DatatypeFactory.newInstance();
+		Random random = new Random(42);
+		for (String id : ZONES) {
+			TimeZone zone = TimeZone.getTimeZone(id);
+			TimestampCodec codec = new TimestampCodec(zone);
+			for (int i = 0; i < 1000; i++) {
+				// 1900 to 2100, and around the Gregorian cutover
+				long millis = i < 990 ? -2208988800000L + (long) (random.nextDouble() * 6311433600000L) : -12219292800000L - 86400000L + random.nextInt(172800000);
+				GregorianCalendar cal = new GregorianCalendar(zone);
+				cal.setTimeInMillis(millis);
+				assertEquals(id + " " + millis, dtf.newXMLGregorianCalendar(cal).toXMLFormat(), codec.formatToString(millis));
+			}
+		}
+	}
+
+	@Test
+	public void testFormatBuffer() {
+		TimestampCodec codec = new TimestampCodec(TimeZone.getTimeZone("UTC"));
+		int length = codec.format(1535794149000L);
+		assertEquals("2018-09-01T09:29:09.000Z", new String(codec.getBuffer(), 0, length));
+		assertEquals(1535794149000L, codec.parse(codec.getBuffer(), 0, length));
+	}
+
+}
@@ -0,0 +1,92 @@
+package me.crespel.runtastic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import me.crespel.runtastic.mapper.TrackpointMerger;
+import me.crespel.runtastic.model.ElevationTrack;
+import me.crespel.runtastic.model.GpsTrack;
+import me.crespel.runtastic.model.HeartRateTrack;
+
+/**
+ * TrackpointMerger tests.
+ */
+public class TestTrackpointMerger {
+
+	@Test
+	public void testMerge() {
+		GpsTrack gps = new GpsTrack();
+		gps.add(1000L, 47.0, 8.0, Double.NaN, 2.5, 0, 0);
+		gps.add(3000L, 47.1, 8.1, 451.0, 2.5, 2, 5);
+		gps.add(3000L, 47.2, 8.2, 452.0, 2.5, 2, 6);
+		HeartRateTrack hr = new HeartRateTrack();
+		hr.add(2000L, 120, 1, 3);
+		hr.add(3000L, 125, 2, 5);
+		ElevationTrack elevation = new ElevationTrack();
+		elevation.add(1000L, 440, 0, 0);
+		elevation.add(4000L, 455, 3, 8);
+
+		TrackpointMerger merger = new TrackpointMerger(gps, hr, elevation);
+		assertTrue(merger.next());
+		assertEquals(1000L, merger.getTimestamp());
+		assertEquals(0, merger.getGpsIndex());
+		assertEquals(-1, merger.getHeartRateIndex());
+		assertEquals(440.0, merger.getAltitude(), 0.0);
+
+		assertTrue(merger.next());
+		assertEquals(2000L, merger.getTimestamp());
+		assertEquals(-1, merger.getGpsIndex());
+		assertEquals(0, merger.getHeartRateIndex());
+		assertEquals(3, merger.getDistance());
+		assertTrue(Double.isNaN(merger.getAltitude()));
+
+		assertTrue(merger.next());
+		assertEquals(3000L, merger.getTimestamp());
+		assertEquals(1, merger.getGpsIndex());
+		assertEquals(1, merger.getHeartRateIndex());
+		assertEquals(451.0, merger.getAltitude(), 0.0);
+
+		assertTrue(merger.next());
+		assertEquals(4000L, merger.getTimestamp());
+		assertEquals(1, merger.getElevationIndex());
+		assertEquals(8, merger.getDistance());
+		assertFalse(merger.next());
+	}
+
+	@Test
+	public void testMergeUnordered() {
+		HeartRateTrack hr = new HeartRateTrack();
+		hr.add(3000L, 130, 2, 5);
+		hr.add(1000L, 110, 0, 0);
+		hr.add(2000L, 120, 1, 3);
+
+		TrackpointMerger merger = new TrackpointMerger(null, hr, null);
+		int[] expected = {1, 2, 0};
+		for (int index : expected) {
+			assertTrue(merger.next());
+			assertEquals(index, merger.getHeartRateIndex());
+		}
+		assertFalse(merger.next());
+	}
+
+	@Test
+	public void testWithElevation() {
+		GpsTrack gps = new GpsTrack();
+		gps.add(1000L, 47.0, 8.0, Double.NaN, 2.5, 0, 0);
+		gps.add(2000L, 47.1, 8.1, 451.0, 2.5, 1, 3);
+		ElevationTrack elevation = new ElevationTrack();
+		elevation.add(1000L, 440, 0, 0);
+		elevation.add(2000L, 445, 1, 3);
+
+		GpsTrack completed = TrackpointMerger.withElevation(gps, elevation);
+		assertEquals(440.0, completed.getAltitude(0), 0.0);
+		assertEquals(451.0, completed.getAltitude(1), 0.0);
+		assertTrue(Double.isNaN(gps.getAltitude(0)));
+		assertSame(gps, TrackpointMerger.withElevation(gps, null));
+	}
+
+}